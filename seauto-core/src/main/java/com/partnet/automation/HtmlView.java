@@ -20,15 +20,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.openqa.selenium.Alert;
 import org.openqa.selenium.By;
-import org.openqa.selenium.Cookie;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.NoAlertPresentException;
 import org.openqa.selenium.NoSuchElementException;
@@ -39,14 +36,27 @@ import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.FluentWait;
 import org.openqa.selenium.support.ui.Select;
+import org.openqa.selenium.support.ui.UnexpectedTagNameException;
 import org.openqa.selenium.support.ui.Wait;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
+import com.partnet.automation.html.ElementData;
+import com.partnet.automation.html.ElementReader;
+import com.partnet.automation.html.FormFiller;
+import com.partnet.automation.html.ScriptRegistry;
+import com.partnet.automation.html.TableReader;
+import com.partnet.automation.selenium.DocumentGeneration;
+import com.partnet.automation.selenium.DriverRegistry;
+import com.partnet.automation.selenium.WindowIndex;
+import com.partnet.automation.wait.AdaptiveWait;
+import com.partnet.automation.wait.EventDrivenWait;
+import com.partnet.automation.wait.NetworkIdleCondition;
+import com.partnet.automation.wait.PageCondition;
+import com.partnet.automation.wait.PagePredicate;
+import com.partnet.automation.wait.WaitType;
 
 /**
  * Represents a view of some HTML that can be interacted with via a
@@ -64,11 +74,74 @@ public abstract class HtmlView
 {
   private static final Logger LOG = LoggerFactory.getLogger(HtmlView.class);
   private static final String JAVASCRIPT_AJAX_MESSAGE_ARRAY = "window.document.msgArray";
+
+  // the array holds the latest responses, msgSeq counts every response captured
+  private static final String JAVASCRIPT_AJAX_LISTENER = "var doc = window.document;"
+      + "doc.msgArray = []; doc.msgSeq = doc.msgSeq || 0; doc.msgMax = arguments[0];"
+      + "if (!doc.msgListener) {"
+      + "  doc.msgListener = true;"
+      + "  $(document).ajaxSuccess(function(event, xhr, settings) {"
+      + "    var d = window.document;"
+      + "    d.msgArray.push(xhr.responseText);"
+      + "    d.msgSeq++;"
+      + "    if (d.msgArray.length > d.msgMax) { d.msgArray.splice(0, d.msgArray.length - d.msgMax); }"
+      + "  });"
+      + "}";
+
+  // returns [cursor, responses dropped since the cursor, first new response holding the key or null]
+  private static final String JAVASCRIPT_AJAX_READ = "var doc = window.document, cursor = arguments[0], key = arguments[1];"
+      + "var messages = doc.msgArray || [], last = doc.msgSeq || 0, first = last - messages.length + 1;"
+      + "var dropped = cursor > 0 ? Math.max(first - cursor - 1, 0) : 0;"
+      + "for (var seq = Math.max(cursor + 1, first); seq <= last; seq++) {"
+      + "  var text = messages[seq - first];"
+      + "  if (typeof text !== 'string' || text.indexOf(key) < 0) { continue; }"
+      + "  if (window.JSON) {"
+      + "    try {"
+      + "      var obj = JSON.parse(text);"
+      + "      if (!obj || !Object.prototype.hasOwnProperty.call(obj, key)) { continue; }"
+      + "    } catch (e) { continue; }"
+      + "  }"
+      + "  return [seq, dropped, text];"
+      + "}"
+      + "return [last, dropped, null];";
+
+  private static final String AJAX_BUFFER_PROP = "test.config.ajax.buffer";
   protected final WebDriver webDriver;
 
-  // used for javascript alerts for headless browsers
-  private static final String ALERT_COOKIE_NAME = "alertMsg";
-  private static final String ALERT_NEW_LINE_REPLACE = "#newLine#";
+  // used for javascript alerts for headless browsers: the dialogs are replaced
+  // by functions queueing their messages in the page, and in the session
+  // storage in case the click navigates to another page of the site
+  private static final String JAVASCRIPT_ALERT_QUEUE = "var accept = arguments[0];"
+      + "var save = function(alerts) {"
+      + "  try { if (window.sessionStorage && window.JSON) { sessionStorage.setItem('seautoAlerts', JSON.stringify(alerts)); } } catch (e) {}"
+      + "};"
+      + "var queue = function(type, result) {"
+      + "  return function(msg, value) {"
+      + "    window.seautoAlerts.push({ type: type, message: msg == null ? '' : '' + msg });"
+      + "    save(window.seautoAlerts);"
+      + "    return type === 'prompt' ? (accept ? (value == null ? '' : '' + value) : null) : result;"
+      + "  };"
+      + "};"
+      + "window.seautoAlerts = [];"
+      + "save([]);"
+      + "window.alert = queue('alert', undefined);"
+      + "window.confirm = queue('confirm', accept);"
+      + "window.prompt = queue('prompt', null);";
+
+  private static final String JAVASCRIPT_ALERT_READ = "var alerts = window.seautoAlerts;"
+      + "try {"
+      + "  if (!alerts && window.sessionStorage && window.JSON) { alerts = JSON.parse(sessionStorage.getItem('seautoAlerts')); }"
+      + "  if (window.sessionStorage) { sessionStorage.removeItem('seautoAlerts'); }"
+      + "} catch (e) {}"
+      + "window.seautoAlerts = [];"
+      + "var messages = [];"
+      + "for (var i = 0; alerts && i < alerts.length; i++) { messages.push(alerts[i].message); }"
+      + "return messages;";
+
+  private static final ScriptRegistry.Script ALERT_QUEUE = ScriptRegistry.register("seauto.alerts.queue", JAVASCRIPT_ALERT_QUEUE);
+  private static final ScriptRegistry.Script ALERT_READ = ScriptRegistry.register("seauto.alerts.read", JAVASCRIPT_ALERT_READ);
+  private static final ScriptRegistry.Script AJAX_LISTENER = ScriptRegistry.register("seauto.ajax.listen", JAVASCRIPT_AJAX_LISTENER);
+  private static final ScriptRegistry.Script AJAX_READ = ScriptRegistry.register("seauto.ajax.read", JAVASCRIPT_AJAX_READ);
 
   private static final String WAIT_FOR_PAGE_PROP = "test.config.page.load.timeout";
   
@@ -78,12 +151,13 @@ public abstract class HtmlView
   }
 
   /**
-   * Get the current browser - convenience method
+   * Get the current browser - convenience method. The browser is resolved once
+   * per driver, when it is launched.
    * @return current {@link Browser} enum value
    */
   protected Browser getBrowser()
   {
-    return Browser.getBrowser(webDriver);
+    return DriverRegistry.getInstance().getBrowser(webDriver);
   }
 
   /**
@@ -116,6 +190,11 @@ public abstract class HtmlView
    * href="http://code.google.com/p/selenium/issues/detail?id=2676">2676</a>, <a
    * href="http://code.google.com/p/selenium/issues/detail?id=2936">2936</a>
    *
+   * <p>
+   * When <code>test.config.page.network.idle</code> is true, it also waits
+   * for the XHR and fetch requests started by the click to finish, see
+   * {@link #waitForNetworkIdle()}.
+   *
    * @author <a href="mailto:bbarker@part.net">bbarker</a>
    *
    * @param webElement web element to click on
@@ -124,8 +203,18 @@ public abstract class HtmlView
   protected final HtmlView clickAndWait(WebElement webElement)
   {
     LOG.debug("click element {}", webElement);
+    boolean waitForNetwork = Boolean.getBoolean(NetworkIdleCondition.WAIT_FOR_IDLE);
+    if (waitForNetwork) {
+      injectNetworkTracker();
+    }
+
     webElement.click();
+    DocumentGeneration.next(webDriver);
     waitForPageToLoad();
+
+    if (waitForNetwork) {
+      waitForNetworkIdle();
+    }
     return this;
   }
 
@@ -178,6 +267,31 @@ public abstract class HtmlView
     return this;
   }
 
+  /**
+   * Fills many fields with a single script, see {@link FormFiller}. Fields the
+   * script cannot find or fill, or that do not keep their value, are then set
+   * one at a time with {@link #setValue(WebElement, String)}.
+   * 
+   * @param fields
+   *          fields to fill, as {@link WebElement}s or {@link By} locators, in
+   *          the order they are filled. Locators are found by the script.
+   * @param values
+   *          value of the field at the same index
+   * @return The {@link HtmlView} instance that invoked this method; enables
+   *         fluent calls
+   */
+  protected HtmlView setValues(List<?> fields, List<String> values)
+  {
+    List<Integer> notFilled = FormFiller.fill(webDriver, fields, values);
+    LOG.debug("Filled {} of {} field(s) at once", fields.size() - notFilled.size(), fields.size());
+
+    for (int i : notFilled) {
+      Object field = fields.get(i);
+      setValue(field instanceof By ? webDriver.findElement((By) field) : (WebElement) field, values.get(i));
+    }
+    return this;
+  }
+
   /**
    * Get the text value in the given WebElement.
    * 
@@ -211,6 +325,7 @@ public abstract class HtmlView
     LOG.debug("selectByVisibleTextAndWait - {}", visibleText);
     select.selectByVisibleText(visibleText);
 
+    DocumentGeneration.next(webDriver);
     waitForPageToLoad();
 
     return this;
@@ -276,24 +391,107 @@ public abstract class HtmlView
    * @param webElement
    *          - the element to get the text of
    * @return list of visible dropdown text entries
+   * @throws UnexpectedTagNameException
+   *           if the element is not a select, as {@link Select} would
    */
   protected List<String> getAllDropdownVisibleTextEntries(WebElement webElement)
   {
-    List<String> optionsToReturn = new ArrayList<>();
+    String tagName = webElement.getTagName();
+    if (!"select".equalsIgnoreCase(tagName)) {
+      throw new UnexpectedTagNameException("select", tagName);
+    }
 
-    Select sel = new Select(webElement);
-    List<WebElement> allOptions = sel.getOptions();
+    List<String> optionsToReturn = new ArrayList<>();
 
-    for (WebElement option : allOptions) {
+    for (ElementData option : readElements(webElement, "option")) {
       optionsToReturn.add(option.getText());
     }
     LOG.debug("Found options: {}", optionsToReturn);
     return optionsToReturn;
   }
 
+  /**
+   * Reads the tag name, text, value and attributes of the elements with a
+   * single script call, see {@link ElementReader}.
+   * 
+   * @param elements
+   *          elements to read
+   * @param attributes
+   *          names of the attributes to read
+   * @return what was read of each element, in the same order
+   */
+  protected List<ElementData> readElements(List<WebElement> elements, String... attributes)
+  {
+    return ElementReader.read(webDriver, elements, attributes);
+  }
+
+  /**
+   * Reads the tag name, text, value and attributes of the elements found by
+   * the locator. Elements found by a css selector are read with a single
+   * script call, see {@link ElementReader}.
+   * 
+   * @param by
+   *          locator of the elements to read
+   * @param attributes
+   *          names of the attributes to read
+   * @return what was read of each element, in document order
+   */
+  protected List<ElementData> readElements(By by, String... attributes)
+  {
+    return ElementReader.read(webDriver, by, attributes);
+  }
+
+  /**
+   * Reads the tag name, text, value and attributes of the descendants of an
+   * element with a single script call, see {@link ElementReader}.
+   * 
+   * @param parent
+   *          element whose descendants are read
+   * @param tagName
+   *          tag name of the descendants to read, e.g. <code>option</code>
+   * @param attributes
+   *          names of the attributes to read
+   * @return what was read of each descendant, in document order
+   */
+  protected List<ElementData> readElements(WebElement parent, String tagName, String... attributes)
+  {
+    return ElementReader.read(webDriver, parent, tagName, attributes);
+  }
+
+  /**
+   * Reads the rows of a table, a page of rows per script call. See
+   * {@link TableReader} for how the headers are found.
+   * 
+   * @param table
+   *          the table element
+   * @param columns
+   *          headers of the columns to read; all columns when none are given
+   * @return a map of column header to cell text for each row
+   */
+  protected List<Map<String, String>> readTable(WebElement table, String... columns)
+  {
+    return newTableReader(table).columns(columns).read();
+  }
+
+  /**
+   * Creates a reader to filter the rows of a table in the browser, or to
+   * handle the rows of a large table while they are read.
+   * 
+   * @param table
+   *          the table element
+   * @return reader of the table
+   */
+  protected TableReader newTableReader(WebElement table)
+  {
+    return new TableReader(webDriver, table);
+  }
+
   /**
    * An expectation for checking that an element is present on the DOM of a
    * page. This does not necessarily mean that the element is visible.
+   * <p>
+   * The page is watched for the element rather than polled, see
+   * {@link EventDrivenWait}.
    * 
    * @param by locator for the element
    * @param maxWaitInSeconds max seconds to wait for element to appear
@@ -301,7 +499,7 @@ public abstract class HtmlView
    */
   protected WebElement waitForPresenceOfElement(By by, int maxWaitInSeconds)
   {
-    return (new WebDriverWait(webDriver, maxWaitInSeconds)).until(ExpectedConditions.presenceOfElementLocated(by));
+    return new EventDrivenWait(webDriver, maxWaitInSeconds).until(PagePredicate.presenceOf(by), ExpectedConditions.presenceOfElementLocated(by));
   }
 
   /**
@@ -316,7 +514,7 @@ public abstract class HtmlView
    */
   protected List<WebElement> waitForPresenceOfAllElements(By by, int maxWaitInSeconds)
   {
-    return (new WebDriverWait(webDriver, maxWaitInSeconds)).until(ExpectedConditions.presenceOfAllElementsLocatedBy(by));
+    return new EventDrivenWait(webDriver, maxWaitInSeconds).until(PagePredicate.presenceOf(by), ExpectedConditions.presenceOfAllElementsLocatedBy(by));
   }
 
   /**
@@ -334,7 +532,7 @@ public abstract class HtmlView
    */
   protected WebElement waitForElementToBeClickable(By by, int maxWaitInSeconds)
   {
-    return (new WebDriverWait(webDriver, maxWaitInSeconds)).until(ExpectedConditions.elementToBeClickable(by));
+    return new EventDrivenWait(webDriver, maxWaitInSeconds).until(PagePredicate.clickable(by), ExpectedConditions.elementToBeClickable(by));
   }
 
   /**
@@ -376,7 +574,7 @@ public abstract class HtmlView
    */
   protected WebElement waitForExpectedCondition(ExpectedCondition<WebElement> condition, int maxWaitInSeconds)
   {
-    return (new WebDriverWait(webDriver, maxWaitInSeconds)).until(condition);
+    return new AdaptiveWait(webDriver, maxWaitInSeconds, WaitType.ELEMENT).until(condition);
   }
 
   /**
@@ -419,7 +617,29 @@ public abstract class HtmlView
    */
   protected Boolean waitForExpectedConditionBoolean(ExpectedCondition<Boolean> condition, int maxWaitInSeconds)
   {
-    return (new WebDriverWait(webDriver, maxWaitInSeconds)).until(condition);
+    return new AdaptiveWait(webDriver, maxWaitInSeconds, WaitType.ELEMENT).until(condition);
+  }
+
+  /**
+   * Waits for a condition on several elements at once, checked by a single
+   * script rather than a wait per element. Example:
+   * 
+   * <pre>
+   * waitForCondition(all(not(visible(spinner)), visible(grid), enabled(saveButton)), MAX_WAIT_IN_SECONDS);
+   * </pre>
+   * <p>
+   * The page is watched for the condition rather than polled, see
+   * {@link EventDrivenWait}.
+   * 
+   * @param condition
+   *          - built with the factories of {@link PageCondition}
+   * @param maxWaitInSeconds
+   *          - the maximum time in seconds before a {@link TimeoutException}
+   *          is thrown
+   */
+  protected void waitForCondition(PageCondition condition, int maxWaitInSeconds)
+  {
+    new EventDrivenWait(webDriver, maxWaitInSeconds).until(condition.getPredicate(), condition);
   }
 
   /**
@@ -429,11 +649,12 @@ public abstract class HtmlView
    * 
    * @param elm
    *          - web element that triggers the alert
-   * @return - the string of the accepted alert
+   * @return - the string of the accepted alert; the first one if the click
+   *         triggered several
    */
   protected String clickAndAcceptAlert(WebElement elm)
   {
-    return clickAndHandleAlert(elm, true, true);
+    return first(clickAndHandleAlerts(elm, true, true));
   }
 
   /**
@@ -443,21 +664,47 @@ public abstract class HtmlView
    * 
    * @param elm
    *          - web element that triggers the alert
-   * @return - the string of the dismissed alert
+   * @return - the string of the dismissed alert; the first one if the click
+   *         triggered several
    */
   protected String clickAndDismissAlert(WebElement elm)
   {
-    return clickAndHandleAlert(elm, false, true);
+    return first(clickAndHandleAlerts(elm, false, true));
   }
 
   protected String clickAndAcceptAlertIfPresent(WebElement elm)
   {
-    return clickAndHandleAlert(elm, true, false);
+    return first(clickAndHandleAlerts(elm, true, false));
+  }
+
+  /**
+   * Clicks element and accepts every alert, confirm and prompt that follows.
+   * 
+   * @param elm
+   *          - web element that triggers the alerts
+   * @return - the messages of the accepted alerts, in the order they appeared
+   */
+  protected List<String> clickAndAcceptAlerts(WebElement elm)
+  {
+    return clickAndHandleAlerts(elm, true, true);
+  }
+
+  /**
+   * Clicks element and dismisses every alert, confirm and prompt that
+   * follows.
+   * 
+   * @param elm
+   *          - web element that triggers the alerts
+   * @return - the messages of the dismissed alerts, in the order they appeared
+   */
+  protected List<String> clickAndDismissAlerts(WebElement elm)
+  {
+    return clickAndHandleAlerts(elm, false, true);
   }
 
-  private String clickAndHandleAlert(WebElement elm, boolean accept, boolean throwIfNoAlertPresent)
+  private List<String> clickAndHandleAlerts(WebElement elm, boolean accept, boolean throwIfNoAlertPresent)
   {
-    String alertMsg = null;
+    List<String> alertMsgs = new ArrayList<>();
     LOG.debug("{} alert created by clicking button {}", accept ? "accept" : "dismiss", elm);
 
     Browser browser = getBrowser();
@@ -465,49 +712,19 @@ public abstract class HtmlView
     // headless browsers need to inject javascript before the button is clicked
     // to handle the alert correctly
     if (browser.isHeadless()) {
-
-      // webDriver.manage().deleteCookieNamed(ALERT_COOKIE_NAME);
-      StringBuilder alertJs = new StringBuilder();
-
-      alertJs.append("window.alert = window.confirm = function(msg){ ")
-      // .append( "var date = new Date();")
-      // .append( "date.setDate(date.getDate() + 1);")
-
-          // cookies don't like to store new lines. This becomes a problem when
-          // taking a screenshot for HTMLUNIT, and
-          // transferring the cookie to PhantomJs.
-          // This prevents newlines from being injected into the cookie. Later
-          // on, the return string containing these
-          // newline keywords will be replaced with actual newlines.
-          .append("msg = msg.replace(/(\\r\\n|\\n|\\r)/gm, '" + ALERT_NEW_LINE_REPLACE + "');").append("document.cookie = '" + ALERT_COOKIE_NAME + "=' + msg + '';").append("return %s;").append("};");
-      executeScript(String.format(alertJs.toString(), accept));
+      ALERT_QUEUE.execute(webDriver, accept);
     }
 
     elm.click();
 
     if (browser.isHeadless()) {
-      Cookie alertCookie = webDriver.manage().getCookieNamed(ALERT_COOKIE_NAME);
-
-      for (Cookie cook : webDriver.manage().getCookies()) {
-        System.err.print(cook.getName());
-      }
-
-      if (alertCookie != null) {
-        // replace all newline keywords, to get original message
-        alertMsg = StringUtils.trimToNull(alertCookie.getValue());
-
-        if (alertMsg != null) alertMsg = alertMsg.replaceAll(ALERT_NEW_LINE_REPLACE, "\n");
-
-        LOG.debug("Headless browser msg: {}", alertMsg);
-      }
-      else {
-        LOG.debug("Cookie where headless alert messages are stored is null!");
+      for (Object msg : (List<?>) ALERT_READ.execute(webDriver)) {
+        alertMsgs.add(String.valueOf(msg));
       }
+      LOG.debug("Headless browser msg(s): {}", alertMsgs);
 
-      if (StringUtils.isBlank(alertMsg)) {
-        if (throwIfNoAlertPresent) {
-          throw new NoAlertPresentException(String.format("No alert message found for headless browser %s!", browser));
-        }
+      if (alertMsgs.isEmpty() && throwIfNoAlertPresent) {
+        throw new NoAlertPresentException(String.format("No alert message found for headless browser %s!", browser));
       }
     }
     else {
@@ -524,13 +741,17 @@ public abstract class HtmlView
           alert = webDriver.switchTo().alert();
         }
 
-        alertMsg = alert.getText();
+        // handle the alerts opened by the handlers of the previous ones
+        while (alert != null) {
+          alertMsgs.add(alert.getText());
 
-        if (accept) {
-          alert.accept();
-        }
-        else {
-          alert.dismiss();
+          if (accept) {
+            alert.accept();
+          }
+          else {
+            alert.dismiss();
+          }
+          alert = nextAlert();
         }
       }
       catch (NoAlertPresentException | TimeoutException e) {
@@ -540,12 +761,31 @@ public abstract class HtmlView
         else {
           LOG.debug("No alert is present! return...");
         }
-        return null;
+        return alertMsgs;
       }
     }
 
-    LOG.debug("{} alert message: {}", accept ? "Accepted" : "Dismissed", alertMsg);
-    return alertMsg;
+    LOG.debug("{} alert message(s): {}", accept ? "Accepted" : "Dismissed", alertMsgs);
+    return alertMsgs;
+  }
+
+  /**
+   * @return the alert opened while handling the previous one, or null. Unlike
+   *         {@link #isAlertPresent()} this does not wait for it on IE.
+   */
+  private Alert nextAlert()
+  {
+    try {
+      return webDriver.switchTo().alert();
+    }
+    catch (NoAlertPresentException e) {
+      return null;
+    }
+  }
+
+  private static String first(List<String> alertMsgs)
+  {
+    return alertMsgs.isEmpty() ? null : alertMsgs.get(0);
   }
 
   protected Object executeScript(String script, Object... args)
@@ -553,6 +793,22 @@ public abstract class HtmlView
     return executeScript(webDriver, script, args);
   }
 
+  /**
+   * Invokes a script of the {@link ScriptRegistry} by its id. The source of
+   * the script is only sent to the page the first time a registered script is
+   * invoked in it.
+   * 
+   * @param id
+   *          id the script was registered with
+   * @param args
+   *          arguments of the script
+   * @return what the script returned
+   */
+  protected Object executeRegisteredScript(String id, Object... args)
+  {
+    return ScriptRegistry.get(id).execute(webDriver, args);
+  }
+
   private Object executeScript(WebDriver driver, String script, Object... args)
   {
     return ((JavascriptExecutor) driver).executeScript(script, args);
@@ -597,7 +853,7 @@ public abstract class HtmlView
    */
   protected Alert waitForAlertToBePresent()
   {
-    return new WebDriverWait(webDriver, 3).until(conditionAlertPresent);
+    return new AdaptiveWait(webDriver, 3, WaitType.ALERT).until(conditionAlertPresent);
   }
 
   /**
@@ -613,7 +869,7 @@ public abstract class HtmlView
   {
     // checks to see if field matches the regex
     ToggleFocusCondition fieldPopulated = new ToggleFocusCondition(regex, field, null);
-    new WebDriverWait(webDriver, seconds).withMessage(String.format("Field #%s never matched the regex: '%s", field.getAttribute("id"), regex)).until(fieldPopulated);
+    new EventDrivenWait(webDriver, seconds, WaitType.FIELD).withMessage(String.format("Field #%s never matched the regex: '%s", field.getAttribute("id"), regex)).until(PagePredicate.valueMatches(field, regex), fieldPopulated);
   }
 
   /**
@@ -625,7 +881,7 @@ public abstract class HtmlView
    */
   protected WebElement waitForDialogToAppear(By dialogContentLocator)
   {
-    return new WebDriverWait(webDriver, 30).until(new JQueryUiDialogsCondition(dialogContentLocator));
+    return new EventDrivenWait(webDriver, 30, WaitType.DIALOG).until(PagePredicate.dialogReady(dialogContentLocator), new JQueryUiDialogsCondition(dialogContentLocator));
   }
 
   /**
@@ -637,8 +893,7 @@ public abstract class HtmlView
    */
   protected void waitForElementToBeClickable(WebElement elm, int maxWaitSeconds)
   {
-    WebDriverWait wait = new WebDriverWait(webDriver, maxWaitSeconds);
-    wait.until(ExpectedConditions.elementToBeClickable(elm));
+    new EventDrivenWait(webDriver, maxWaitSeconds).until(PagePredicate.clickable(elm), ExpectedConditions.elementToBeClickable(elm));
   }
 
   /**
@@ -667,17 +922,8 @@ public abstract class HtmlView
   protected void waitForPageToLoad(boolean ignoreWebDriverException)
   {
     LOG.debug("Wait for page to load..");
-    String stringWaitProp = System.getProperty(WAIT_FOR_PAGE_PROP, "90");
-    int waitProp;
-    
-    try {
-      waitProp = Integer.parseInt(stringWaitProp);
-    }
-    catch (NumberFormatException e) {
-      throw new NumberFormatException(String.format("%s, could not determine %s", e.getMessage(), WAIT_FOR_PAGE_PROP));
-    }
-    
-    WebDriverWait wait = new WebDriverWait(webDriver, waitProp);
+
+    AdaptiveWait wait = new AdaptiveWait(webDriver, getPageLoadTimeout(), WaitType.PAGE_LOAD);
 
     if (ignoreWebDriverException) {
       wait.ignoring(WebDriverException.class);
@@ -686,6 +932,55 @@ public abstract class HtmlView
     wait.until(conditionPageLoaded); // wait for the page to load
   }
 
+  /**
+   * Injects a tracker of outstanding XHR and fetch requests into the current
+   * page, so requests started by the next action are seen by
+   * {@link #waitForNetworkIdle(long)}. The tracker is lost when the page
+   * changes.
+   */
+  protected void injectNetworkTracker()
+  {
+    NetworkIdleCondition.inject(webDriver);
+  }
+
+  /**
+   * Waits for the page to load and to make no requests for the default quiet
+   * period.
+   *
+   * @see #waitForNetworkIdle(long)
+   */
+  protected void waitForNetworkIdle()
+  {
+    waitForNetworkIdle(Long.getLong(NetworkIdleCondition.QUIET_PERIOD_MILLIS, 500));
+  }
+
+  /**
+   * Waits for the page to load and to make no XHR or fetch requests for the
+   * quiet period. The page load timeout applies.
+   *
+   * @param quietPeriodMillis
+   *          how long the page has to be without requests
+   * @see NetworkIdleCondition
+   */
+  protected void waitForNetworkIdle(long quietPeriodMillis)
+  {
+    LOG.debug("Wait for network to be idle for {}ms..", quietPeriodMillis);
+    NetworkIdleCondition networkIdle = new NetworkIdleCondition(quietPeriodMillis);
+    new EventDrivenWait(webDriver, getPageLoadTimeout(), WaitType.NETWORK_IDLE).until(networkIdle.getPredicate(), networkIdle);
+  }
+
+  private int getPageLoadTimeout()
+  {
+    String stringWaitProp = System.getProperty(WAIT_FOR_PAGE_PROP, "90");
+
+    try {
+      return Integer.parseInt(stringWaitProp);
+    }
+    catch (NumberFormatException e) {
+      throw new NumberFormatException(String.format("%s, could not determine %s", e.getMessage(), WAIT_FOR_PAGE_PROP));
+    }
+  }
+
   /**
    * Switches to a newly opened window that was created during a test, such as
    * clicking a Help Text link.
@@ -761,6 +1056,8 @@ public abstract class HtmlView
 
   /**
    * Overloaded method to handle the various cases of switching to a window.
+   * The windows are tracked by a {@link WindowIndex}, so the window opened
+   * last, or the window found by the same arguments before, is tried first.
    * 
    * @param element
    *          - the element that should be searched for on the page, or
@@ -791,25 +1088,24 @@ public abstract class HtmlView
       throw new IllegalArgumentException("element and locator cannot both be used to identify window");
     }
 
-    WebDriverWait wait = new WebDriverWait(webDriver, 15);
+    WindowIndex index = WindowIndex.of(webDriver);
+    String key = String.format("%s|%s", element == null ? locator : element, pageTitle);
 
-    // TODO: Nov 13, 2014 (fpedroza) - this logic is flawed as it assumes only 2
-    // windows will be open at a time
-    int windowsToWaitFor = findNewWindow ? 2 : 1;
+    // wait for a window that was not switched to yet, when looking for a new
+    // one
+    new AdaptiveWait(webDriver, 15, WaitType.WINDOW).until(new WindowIndexedCondition(index, findNewWindow));
 
-    // wait for the specified number of windows to be open
-    wait.until(new MultipleWindowHandlesVisibleCondition(windowsToWaitFor));
-
-    Set<String> windowHandles = webDriver.getWindowHandles();
+    List<String> windowHandles = index.getCandidates(key, pageTitle, findNewWindow);
 
     LOG.debug("Window handles: {}", windowHandles);
 
-    // try all windows, because I don't know if the current focused window
-    // correct, or if it is a different one
+    // try the likeliest window first, but fall back to the others in case the
+    // index is wrong
     for (String window : windowHandles) {
 
       LOG.debug("Switch to window '{}'", window);
       webDriver.switchTo().window(window);
+      DocumentGeneration.next(webDriver);
 
       // wait for switched to window to load, because it still could be in the
       // process of loading when switching to it
@@ -829,25 +1125,21 @@ public abstract class HtmlView
         }
       }
       catch (NoSuchElementException e) {
-        LOG.debug("Nope, try again. Msg: {}", e.getMessage().substring(0, e.getMessage().indexOf("\n")));
+        LOG.debug("Nope, try again. Msg: {}", e.getMessage().split("\n")[0]);
         continue;
       }
 
-      // optionally check that the page title is correct (if one was provided)
-      if (pageTitle != null) {
+      List<?> page = (List<?>) executeScript("return [document.URL, document.title];");
+      String currentPageTitle = String.valueOf(page.get(1));
 
-        String currentPageTitle = webDriver.getTitle();
-        if (currentPageTitle.equals(pageTitle)) {
-          LOG.debug("Found correct page title!");
-          return;
-        }
-        else {
-          LOG.debug("Found window title of '{}' but searching for '{}' - continue", pageTitle, currentPageTitle);
-          continue;
-        }
+      // optionally check that the page title is correct (if one was provided)
+      if (pageTitle != null && !currentPageTitle.equals(pageTitle)) {
+        LOG.debug("Found window title of '{}' but searching for '{}' - continue", currentPageTitle, pageTitle);
+        continue;
       }
 
       // no additional check need so we're done
+      index.switchedTo(window, key, String.valueOf(page.get(0)), currentPageTitle);
       return;
     }
 
@@ -869,14 +1161,12 @@ public abstract class HtmlView
     Map<String, String> descriptionList = new HashMap<>(termsAndDescriptions.size());
     String term = null;
 
-    for (WebElement elt : termsAndDescriptions) // the WebElement expected is
-                                                // the array of a dl's dt/dd
-                                                // WebElements
-    {
+    // the WebElements expected are the array of a dl's dt/dd WebElements, read
+    // in a single call
+    for (ElementData elt : readElements(termsAndDescriptions)) {
       String tag = elt.getTagName(); // this gets the tag type. It is expecting
                                      // either dt or dd
-      String taggedText = elt.getText().trim(); // this gets the value that is
-                                                // tagged
+      String taggedText = elt.getText(); // this gets the value that is tagged
       LOG.debug("tag({}) text({})", tag, taggedText);
 
       if (tag.equals("dt")) { // if tag is <dt> description list term; the "key"
@@ -963,7 +1253,7 @@ public abstract class HtmlView
   {
     // checks to see if field matches the regex
     ToggleFocusCondition fieldPopulated = new ToggleFocusCondition(regex, field, triggerElm);
-    new WebDriverWait(webDriver, seconds).withMessage(String.format("Field #%s never matched the regex: '%s", field.getAttribute("id"), regex)).until(fieldPopulated);
+    new AdaptiveWait(webDriver, seconds, WaitType.FIELD).withMessage(String.format("Field #%s never matched the regex: '%s", field.getAttribute("id"), regex)).until(fieldPopulated);
   }
 
   // TODO: Nov 4, 2014 (fpedroza) - need more/better javadoc
@@ -1019,10 +1309,14 @@ public abstract class HtmlView
   /**
    * This injects a javascript ajax listener into the current page. If the page
    * is refreshed or changed, this listener will need to be injected again.
+   * Injecting it again on the same page only clears the captured responses.
+   * <p>
+   * The page keeps the latest <code>test.config.ajax.buffer</code> responses
+   * (default 100); older ones are dropped.
    */
   protected void injectAjaxListener()
   {
-    executeScript(JAVASCRIPT_AJAX_MESSAGE_ARRAY + " = new Array();" + "$( document ).ajaxSuccess(function( event, xhr, settings ) {" + "var msg = xhr.responseText;" + JAVASCRIPT_AJAX_MESSAGE_ARRAY + ".push(msg);" + "console.log(msg);" + "});");
+    AJAX_LISTENER.execute(webDriver, Math.max(Integer.getInteger(AJAX_BUFFER_PROP, 100), 1));
   }
 
   /**
@@ -1044,7 +1338,7 @@ public abstract class HtmlView
    */
   protected WebElement waitForElementToAppear(final By locator)
   {
-    Wait<WebDriver> wait = new FluentWait<WebDriver>(webDriver).withTimeout(30, TimeUnit.SECONDS).pollingEvery(5, TimeUnit.SECONDS).ignoring(NoSuchElementException.class);
+    Wait<WebDriver> wait = new AdaptiveWait(webDriver, 30, WaitType.ELEMENT).ignoring(NoSuchElementException.class);
 
     WebElement element = null;
     try {
@@ -1055,6 +1349,12 @@ public abstract class HtmlView
         {
           return driver.findElement(locator);
         }
+
+        @Override
+        public String toString()
+        {
+          return String.format("element to appear - locator:%s", locator);
+        }
       });
     }
     catch (TimeoutException e) {
@@ -1085,9 +1385,7 @@ public abstract class HtmlView
    */
   protected JSONObject waitForAjaxResponse(String key)
   {
-    WebDriverWait wait = new WebDriverWait(webDriver, 90);
-    wait.pollingEvery(1, TimeUnit.SECONDS);
-    return wait.until(new AjaxResponseOccursCondition(key));
+    return new AdaptiveWait(webDriver, 90, WaitType.AJAX).until(new AjaxResponseOccursCondition(key));
   }
 
   /**
@@ -1141,7 +1439,10 @@ public abstract class HtmlView
   };
 
   /**
-   * Implementation of ExpectedCondition to listen for a ajax request json
+   * Implementation of ExpectedCondition to listen for a ajax request json. Each
+   * check only reads the responses captured since the previous one, and the
+   * responses are filtered by key in the page, so only a matching response is
+   * sent back.
    * 
    * @author bbarker
    */
@@ -1151,59 +1452,46 @@ public abstract class HtmlView
 
     private final String key;
 
+    // sequence number of the last response read
+    private long cursor;
+
     public AjaxResponseOccursCondition(String key)
     {
       this.key = key;
     }
 
-    @Override
-    public JSONObject apply(WebDriver driver)
-    {
-      List<JSONObject> response = getResponses(driver);
-
-      for (JSONObject obj : response) {
-        if (obj.has(key)) {
-          return obj;
-        }
-      }
-
-      return null;
-    }
-
     /**
-     * Obtains the ajax response
-     * 
      * Note: {@link HtmlView#injectAjaxListener()} will need to be called so the
      * listener is injected into the page.
-     * 
-     * @return a list of all of the responses obtained by the listener from the
-     *         time it was injected until the time this was called
      */
-    private List<JSONObject> getResponses(WebDriver driver)
+    @Override
+    public JSONObject apply(WebDriver driver)
     {
-      List<?> allResponses = (List<?>) executeScript(driver, String.format("return %s;", JAVASCRIPT_AJAX_MESSAGE_ARRAY));
-      List<JSONObject> listOfJson = new ArrayList<>();
-
-      StringBuilder sb = new StringBuilder();
+      List<?> read = (List<?>) AJAX_READ.execute(driver, cursor, key);
+      cursor = ((Number) read.get(0)).longValue();
 
-      if (allResponses != null) {
+      long dropped = ((Number) read.get(1)).longValue();
+      if (dropped > 0) {
+        LOG.warn("{} ajax response(s) were dropped before they were read, consider raising {}", dropped, AJAX_BUFFER_PROP);
+      }
 
-        sb.append("Ajax response(s):");
+      String response = (String) read.get(2);
+      if (response == null) {
+        return null;
+      }
 
-        for (Object o : allResponses) {
-          String response = (String) o;
-          sb.append("\n").append(response);
-          try {
-            listOfJson.add(new JSONObject(response));
-          }
-          catch (JSONException e) {
-            LOG.error("Could not create new JSON Object", e);
-          }
+      try {
+        // the page may not parse json, in which case it only matched the text
+        JSONObject obj = new JSONObject(response);
+        if (obj.has(key)) {
+          LOG.debug("Ajax response: {}", response);
+          return obj;
         }
-
-        LOG.debug(sb.toString());
       }
-      return listOfJson;
+      catch (JSONException e) {
+        LOG.error("Could not create new JSON Object", e);
+      }
+      return null;
     }
 
     @Override
@@ -1263,7 +1551,7 @@ public abstract class HtmlView
     @Override
     public String toString()
     {
-      return "JQueryUiDialogsCondition";
+      return String.format("JQueryUiDialogsCondition - dialogContentLocator:%s", dialogContentLocator);
     }
   }
 
@@ -1316,30 +1604,28 @@ public abstract class HtmlView
   }
 
   /**
-   * Expected condition to wait for multiple window handles. Returns whether or
-   * not the specified number of window handles is currently present.
+   * Expected condition to wait for the windows of the driver to be indexed.
+   * When looking for a new window, waits for a window that was not switched to
+   * yet.
    */
-  private class MultipleWindowHandlesVisibleCondition
+  private class WindowIndexedCondition
       implements ExpectedCondition<Boolean>
   {
 
-    private final int windowsToWaitFor;
+    private final WindowIndex index;
+
+    private final boolean findNewWindow;
 
-    public MultipleWindowHandlesVisibleCondition(int windowsToWaitFor)
+    public WindowIndexedCondition(WindowIndex index, boolean findNewWindow)
     {
-      if (windowsToWaitFor < 1) {
-        throw new IllegalArgumentException(String.format("windowsToWaitFor(%d) must be > 1", windowsToWaitFor));
-      }
-      this.windowsToWaitFor = windowsToWaitFor;
+      this.index = index;
+      this.findNewWindow = findNewWindow;
     }
 
     @Override
     public Boolean apply(WebDriver driver)
     {
-      if (driver.getWindowHandles().size() >= windowsToWaitFor) {
-        return true;
-      }
-      return false;
+      return index.refresh() || !findNewWindow;
     }
 
     // Used when the timeout exception is thrown.
@@ -1347,7 +1633,7 @@ public abstract class HtmlView
     @Override
     public String toString()
     {
-      return String.format("MultipleWindowHandlesVisibleCondition - windowsToWaitFor:%d", windowsToWaitFor);
+      return String.format("WindowIndexedCondition - findNewWindow:%s", findNewWindow);
     }
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.html;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What {@link ElementReader} read of an element: its tag name, text, value and
+ * the attributes that were asked for.
+ */
+public final class ElementData
+{
+
+  private final String tagName;
+
+  private final String text;
+
+  private final String value;
+
+  private final Map<String, String> attributes;
+
+  /**
+   * @param tagName
+   *          lower case tag name of the element
+   * @param text
+   *          trimmed text of the element
+   * @param value
+   *          value of the element, or null if it has none
+   * @param attributes
+   *          attributes read, mapped to null when the element does not have
+   *          them
+   */
+  public ElementData(String tagName, String text, String value, Map<String, String> attributes)
+  {
+    this.tagName = tagName;
+    this.text = text;
+    this.value = value;
+    this.attributes = Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+  }
+
+  /**
+   * @return lower case tag name of the element
+   */
+  public String getTagName()
+  {
+    return tagName;
+  }
+
+  /**
+   * @return trimmed text of the element
+   */
+  public String getText()
+  {
+    return text;
+  }
+
+  /**
+   * @return value of the element, e.g. of an input or option, or null if it
+   *         has none
+   */
+  public String getValue()
+  {
+    return value;
+  }
+
+  /**
+   * @param name
+   *          name of an attribute that was read
+   * @return value of the attribute, or null if the element does not have it or
+   *         it was not read
+   */
+  public String getAttribute(String name)
+  {
+    return attributes.get(name);
+  }
+
+  /**
+   * @return the attributes that were read
+   */
+  public Map<String, String> getAttributes()
+  {
+    return attributes;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("<%s%s>%s", tagName, attributes.isEmpty() ? "" : " " + attributes, text);
+  }
+}
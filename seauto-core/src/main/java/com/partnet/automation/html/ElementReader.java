@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.html;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Reads the tag name, text, value and attributes of many elements with a
+ * single script, rather than a command per element and property. This matters
+ * most on remote drivers, where reading a long dropdown one option at a time
+ * takes hundreds of round trips.
+ * <p>
+ * The text is the rendered text where the browser supports
+ * <code>innerText</code>, and the text content otherwise, so it may differ
+ * from {@link WebElement#getText()} for hidden elements. Attributes are read
+ * as they are in the html, e.g. a checked box has <code>checked=""</code>.
+ */
+public final class ElementReader
+{
+
+  // trimmed text of an element, shared with the other readers of the package
+  static final String TEXT_OF = "var textOf = function(e) {"
+      + "  var text = e.tagName.toLowerCase() === 'option' ? e.text : e.innerText != null ? e.innerText : e.textContent;"
+      + "  return (text || '').replace(/\\u00a0/g, ' ').replace(/^\\s+|\\s+$/g, '');"
+      + "};";
+
+  private static final String READ_SCRIPT = TEXT_OF + "var elements = arguments[0], attributes = arguments[1], result = [], i, j;"
+      + "if (arguments[2]) {"
+      + "  elements = elements.getElementsByTagName(arguments[2]);"
+      + "} else if (typeof elements === 'string') {"
+      + "  if (!document.querySelectorAll) { return null; }"
+      + "  elements = document.querySelectorAll(elements);"
+      + "}"
+      + "for (i = 0; i < elements.length; i++) {"
+      + "  var e = elements[i], tag = e.tagName.toLowerCase(), attrs = {};"
+      // old IE modes answer getAttribute with the property of the same name
+      + "  for (j = 0; j < attributes.length; j++) {"
+      + "    var node = e.getAttributeNode(attributes[j]);"
+      + "    attrs[attributes[j]] = node && node.specified ? node.value : null;"
+      + "  }"
+      + "  result.push({"
+      + "    tag: tag,"
+      + "    text: textOf(e),"
+      + "    value: e.value === undefined ? null : '' + e.value,"
+      + "    attributes: attrs"
+      + "  });"
+      + "}"
+      + "return result;";
+
+  private static final ScriptRegistry.Script READ = ScriptRegistry.register("seauto.elements.read", READ_SCRIPT);
+
+  private ElementReader()
+  {
+  }
+
+  /**
+   * @param driver
+   *          driver of the page
+   * @param elements
+   *          elements to read
+   * @param attributes
+   *          names of the attributes to read
+   * @return what was read of each element, in the same order
+   */
+  public static List<ElementData> read(WebDriver driver, List<WebElement> elements, String... attributes)
+  {
+    if (elements.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return toData(execute(driver, elements, attributes, ""));
+  }
+
+  /**
+   * Reads the elements found by the locator. A css selector is looked up and
+   * read by the same script, any other locator costs an extra command to find
+   * the elements.
+   *
+   * @param driver
+   *          driver of the page
+   * @param by
+   *          locator of the elements to read
+   * @param attributes
+   *          names of the attributes to read
+   * @return what was read of each element, in document order
+   */
+  public static List<ElementData> read(WebDriver driver, By by, String... attributes)
+  {
+    if (by instanceof By.ByCssSelector) {
+      String selector = by.toString().substring("By.cssSelector: ".length());
+      Object result = execute(driver, selector, attributes, "");
+      if (result != null) {
+        return toData(result);
+      }
+    }
+    return read(driver, driver.findElements(by), attributes);
+  }
+
+  /**
+   * @param driver
+   *          driver of the page
+   * @param parent
+   *          element whose descendants are read
+   * @param tagName
+   *          tag name of the descendants to read, e.g. <code>option</code>
+   * @param attributes
+   *          names of the attributes to read
+   * @return what was read of each descendant, in document order
+   */
+  public static List<ElementData> read(WebDriver driver, WebElement parent, String tagName, String... attributes)
+  {
+    return toData(execute(driver, parent, attributes, tagName));
+  }
+
+  // the tag name is empty unless the descendants of an element are read
+  private static Object execute(WebDriver driver, Object elements, String[] attributes, String tagName)
+  {
+    return READ.execute(driver, elements, Arrays.asList(attributes), tagName);
+  }
+
+  private static List<ElementData> toData(Object result)
+  {
+    List<?> read = (List<?>) result;
+    List<ElementData> data = new ArrayList<>(read.size());
+    for (Object element : read) {
+      Map<?, ?> properties = (Map<?, ?>) element;
+      Map<String, String> attributes = new LinkedHashMap<>();
+      for (Map.Entry<?, ?> attribute : ((Map<?, ?>) properties.get("attributes")).entrySet()) {
+        attributes.put(attribute.getKey().toString(), toString(attribute.getValue()));
+      }
+      data.add(new ElementData(toString(properties.get("tag")), toString(properties.get("text")), toString(properties.get("value")), attributes));
+    }
+    return data;
+  }
+
+  // some drivers return strings as other char sequences
+  private static String toString(Object value)
+  {
+    return value == null ? null : value.toString();
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.html;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.partnet.automation.wait.PagePredicate;
+
+/**
+ * Fills text fields with a single script rather than clicking and typing into
+ * each of them. Every field is focused, given its value, sent
+ * <code>input</code> and <code>change</code> events, and blurred, the way a
+ * user filling the form would; the value is set through the setter of the
+ * element's prototype, so frameworks that track the value of an input see the
+ * change. Once every field is filled their values are read back, so fields
+ * cleared or rewritten by the handlers of other fields are noticed too.
+ * <p>
+ * Fields given by a standard {@link By} locator are found by the script
+ * itself, with the helpers of {@link PagePredicate}, so they cost no command
+ * of their own.
+ * <p>
+ * Only enabled, writable <code>input</code> and <code>textarea</code> elements
+ * that hold text are filled, and only with values that fit their
+ * <code>maxlength</code>; any other element is left to the caller.
+ */
+public final class FormFiller
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(FormFiller.class);
+
+  private static final String FILL_SCRIPT = "var fields = [], values = arguments[1], filled = [], i;"
+      // a field is an element, or the locator of one; a locator the page
+      // cannot evaluate, like css without querySelectorAll, finds nothing
+      + "for (i = 0; i < arguments[0].length; i++) {"
+      + "  var field = arguments[0][i], found = null;"
+      + "  try { found = field && field.tagName ? field : find(field); } catch (ignored) {}"
+      + "  fields.push(found);"
+      + "}"
+      + "var skipped = { button: 1, checkbox: 1, file: 1, hidden: 1, image: 1, radio: 1, reset: 1, submit: 1 };"
+      + "var fire = function(e, type) {"
+      + "  if (document.createEvent) {"
+      + "    var event = document.createEvent('HTMLEvents');"
+      + "    event.initEvent(type, true, true);"
+      + "    e.dispatchEvent(event);"
+      + "  } else if (e.fireEvent) {"
+      + "    e.fireEvent('on' + type);"
+      + "  }"
+      + "};"
+      + "var setter = function(e) {"
+      + "  var type = e.tagName.toLowerCase() === 'textarea' ? window.HTMLTextAreaElement : window.HTMLInputElement;"
+      + "  var descriptor = type && Object.getOwnPropertyDescriptor ? Object.getOwnPropertyDescriptor(type.prototype, 'value') : null;"
+      + "  return descriptor && descriptor.set;"
+      + "};"
+      + "for (i = 0; i < fields.length; i++) {"
+      + "  var e = fields[i], tag = e ? e.tagName.toLowerCase() : null;"
+      + "  var text = tag === 'textarea' || (tag === 'input' && !skipped[(e.type || 'text').toLowerCase()]);"
+      // typing a longer value than the field takes is truncated, leave that to the caller
+      + "  filled.push(text && !e.disabled && !e.readOnly && !(e.maxLength >= 0 && values[i].length > e.maxLength));"
+      + "  if (!filled[i]) { continue; }"
+      + "  e.focus();"
+      + "  var set = setter(e);"
+      + "  if (set) { set.call(e, values[i]); } else { e.value = values[i]; }"
+      + "  fire(e, 'input');"
+      + "  fire(e, 'change');"
+      + "  e.blur();"
+      + "}"
+      + "var result = [];"
+      + "for (i = 0; i < fields.length; i++) { result.push(filled[i] ? '' + fields[i].value : null); }"
+      + "return result;";
+
+  private static final ScriptRegistry.Script FILL = ScriptRegistry.register("seauto.form.fill", PagePredicate.HELPERS + FILL_SCRIPT);
+
+  private FormFiller()
+  {
+  }
+
+  /**
+   * @param driver
+   *          driver of the page
+   * @param fields
+   *          fields to fill, in the order they are filled, as
+   *          {@link WebElement}s or {@link By} locators
+   * @param values
+   *          value of the field at the same index; a null value clears the
+   *          field
+   * @return indexes of the fields that could not be found or filled, or did
+   *         not keep their value, in ascending order
+   */
+  public static List<Integer> fill(WebDriver driver, List<?> fields, List<String> values)
+  {
+    if (fields.size() != values.size()) {
+      throw new IllegalArgumentException(String.format("Got %d fields, but %d values", fields.size(), values.size()));
+    }
+
+    List<Integer> notFilled = new ArrayList<>();
+    if (fields.isEmpty()) {
+      return notFilled;
+    }
+
+    List<Object> targets = new ArrayList<>(fields.size());
+    List<String> texts = new ArrayList<>(values.size());
+    for (int i = 0; i < fields.size(); i++) {
+      targets.add(toTarget(driver, fields.get(i)));
+      texts.add(values.get(i) == null ? "" : values.get(i));
+    }
+
+    List<?> filled = (List<?>) FILL.execute(driver, targets, texts);
+    for (int i = 0; i < fields.size(); i++) {
+      Object actual = filled.get(i);
+      // browsers may store the line breaks of a textarea as \r\n
+      if (actual == null || !texts.get(i).replace("\r\n", "\n").equals(actual.toString().replace("\r\n", "\n"))) {
+        LOG.debug("Field {} was not filled with '{}', but has '{}'", fields.get(i), texts.get(i), actual);
+        notFilled.add(i);
+      }
+    }
+    return notFilled;
+  }
+
+  private static Object toTarget(WebDriver driver, Object field)
+  {
+    if (field instanceof WebElement) {
+      return field;
+    }
+    if (field instanceof By) {
+      List<String> locator = PagePredicate.toLocator((By) field);
+      // a locator the script cannot evaluate is found by the driver
+      return locator != null ? locator : driver.findElement((By) field);
+    }
+    throw new IllegalArgumentException("Expected a WebElement or a By, but got " + field);
+  }
+}
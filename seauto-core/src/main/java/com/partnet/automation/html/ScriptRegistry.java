@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.html;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.json.JSONObject;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.MapMaker;
+import com.partnet.automation.selenium.DocumentGeneration;
+
+/**
+ * Scripts that are installed into the page once and then invoked by their id,
+ * so their source is not sent and parsed again with every command.
+ * <p>
+ * Every registered script is installed together, as functions of the window,
+ * the first time one of them is invoked in a document. The registry remembers
+ * the {@link DocumentGeneration} of the driver it last installed the scripts
+ * in: the first invocation in a document the driver has moved to since sends
+ * the scripts and the invocation in one command, later ones only send the
+ * invocation. An invocation that still finds the scripts missing, e.g. after
+ * a navigation made around HtmlView, installs them with a second command. A
+ * script invoked while the driver is switched to a frame is installed into
+ * that frame.
+ * <p>
+ * The body of a script is written as for
+ * {@link JavascriptExecutor#executeScript(String, Object...)}: it reads its
+ * arguments from <code>arguments</code> and returns its result. Asynchronous
+ * scripts are not supported.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #ENABLED} - false to send the source of the scripts with every
+ * command, e.g. to debug them (default true)</li>
+ * </ul>
+ */
+public final class ScriptRegistry
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScriptRegistry.class);
+
+  public static final String ENABLED = "test.config.script.registry";
+
+  // returned by the invocation when the scripts are not installed
+  private static final String MISSING = "seauto:scripts-missing";
+
+  private static final String INVOKE_SCRIPT = "var s = window.seautoScripts, id = arguments[0];"
+      + "return s && s[id] ? s[id].apply(window, Array.prototype.slice.call(arguments, 1)) : '" + MISSING + "';";
+
+  private static final Map<String, Script> SCRIPTS = new ConcurrentHashMap<>();
+
+  // document generation of each driver the scripts were last installed in
+  private static final ConcurrentMap<WebDriver, Integer> INSTALLED = new MapMaker().weakKeys().makeMap();
+
+  // installs every script, rebuilt when a script is registered
+  private static volatile String installScript;
+
+  private ScriptRegistry()
+  {
+  }
+
+  /**
+   * @param id
+   *          short id the script is invoked by, e.g.
+   *          <code>myapp.grid.rows</code>
+   * @param body
+   *          source of the script
+   * @return the registered script
+   * @throws IllegalStateException
+   *           if another script is registered with the id
+   */
+  public static synchronized Script register(String id, String body)
+  {
+    Script script = SCRIPTS.get(id);
+    if (script != null) {
+      if (!script.body.equals(body)) {
+        throw new IllegalStateException(String.format("Another script is registered as '%s'", id));
+      }
+      return script;
+    }
+
+    script = new Script(id, body);
+    SCRIPTS.put(id, script);
+    installScript = null;
+    return script;
+  }
+
+  /**
+   * @param id
+   *          id of a registered script
+   * @return the script
+   * @throws IllegalArgumentException
+   *           if no script is registered with the id
+   */
+  public static Script get(String id)
+  {
+    Script script = SCRIPTS.get(id);
+    if (script == null) {
+      throw new IllegalArgumentException(String.format("No script is registered as '%s'", id));
+    }
+    return script;
+  }
+
+  private static String getInstallScript()
+  {
+    String install = installScript;
+    if (install == null) {
+      synchronized (ScriptRegistry.class) {
+        StringBuilder source = new StringBuilder("var s = window.seautoScripts = window.seautoScripts || {};");
+        for (Script script : SCRIPTS.values()) {
+          source.append("s[").append(JSONObject.quote(script.id)).append("] = function() {").append(script.body).append("\n};");
+        }
+        install = source.toString();
+        installScript = install;
+      }
+    }
+    return install;
+  }
+
+  /**
+   * A script of the registry.
+   */
+  public static final class Script
+  {
+
+    private final String id;
+
+    private final String body;
+
+    private Script(String id, String body)
+    {
+      this.id = id;
+      this.body = body;
+    }
+
+    /**
+     * Invokes the script in the current page, installing the scripts of the
+     * registry first if they are not in the page.
+     *
+     * @param driver
+     *          driver of the page
+     * @param args
+     *          arguments of the script
+     * @return what the script returned, as returned by
+     *         {@link JavascriptExecutor#executeScript(String, Object...)}
+     */
+    public Object execute(WebDriver driver, Object... args)
+    {
+      JavascriptExecutor executor = (JavascriptExecutor) driver;
+      if (!Boolean.parseBoolean(System.getProperty(ENABLED, "true"))) {
+        return executor.executeScript(body, args);
+      }
+
+      Object[] invokeArgs = new Object[args.length + 1];
+      invokeArgs[0] = id;
+      System.arraycopy(args, 0, invokeArgs, 1, args.length);
+
+      int generation = DocumentGeneration.of(driver);
+      Integer installed = INSTALLED.get(driver);
+
+      Object result;
+      if (installed == null || installed != generation) {
+        // nothing says this document has the scripts, don't ask it first
+        LOG.debug("Installing the scripts into the new page to invoke {}", id);
+        result = executor.executeScript(getInstallScript() + INVOKE_SCRIPT, invokeArgs);
+      }
+      else {
+        result = executor.executeScript(INVOKE_SCRIPT, invokeArgs);
+        if (result != null && MISSING.equals(result.toString())) {
+          LOG.debug("Installing the scripts into the page to invoke {}", id);
+          result = executor.executeScript(getInstallScript() + INVOKE_SCRIPT, invokeArgs);
+        }
+      }
+      INSTALLED.put(driver, generation);
+      return result;
+    }
+
+    /**
+     * @return short id the script is invoked by
+     */
+    public String getId()
+    {
+      return id;
+    }
+
+    /**
+     * @return source of the script
+     */
+    public String getBody()
+    {
+      return body;
+    }
+
+    @Override
+    public String toString()
+    {
+      return id;
+    }
+  }
+}
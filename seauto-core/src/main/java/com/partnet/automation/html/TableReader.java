@@ -0,0 +1,244 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.html;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Reads the rows of an html table into maps of column header to cell text. A
+ * page of rows is read with a single script, which also picks the columns and
+ * filters the rows, so only the wanted cells are sent back by the browser.
+ * <p>
+ * The headers are the cells of the last row of the <code>thead</code>, or of
+ * the first row when the table has no <code>thead</code> and that row holds
+ * <code>th</code> cells; a blank header is named by the index of its column.
+ * Rows of the <code>thead</code> and <code>tfoot</code> are not read. Cells
+ * spanning several columns are not expanded.
+ * <p>
+ * Large tables are read a page at a time, either by {@link #read()} or, to
+ * handle the rows while they are read, by iterating over the reader.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #PAGE_SIZE} - rows read by a single script (default 500)</li>
+ * </ul>
+ */
+public class TableReader
+    implements Iterable<Map<String, String>>
+{
+
+  public static final String PAGE_SIZE = "test.config.table.page.size";
+
+  private static final String READ_SCRIPT = ElementReader.TEXT_OF
+      + "var table = arguments[0], columns = arguments[1], filter = arguments[2], start = arguments[3], max = arguments[4];"
+      + "var rows = table.rows, headerRow = null, headers = [], index = {}, filters = [], i, j;"
+      + "if (table.tHead && table.tHead.rows.length) {"
+      + "  headerRow = table.tHead.rows[table.tHead.rows.length - 1];"
+      + "} else if (rows.length && rows[0].getElementsByTagName('th').length) {"
+      + "  headerRow = rows[0];"
+      + "}"
+      + "if (headerRow) {"
+      + "  for (i = 0; i < headerRow.cells.length; i++) {"
+      + "    headers.push(textOf(headerRow.cells[i]) || '' + i);"
+      + "    index[headers[i]] = i;"
+      + "  }"
+      + "}"
+      + "if (!columns.length) { columns = headers; }"
+      + "for (i = 0; i < columns.length; i++) {"
+      + "  if (!index.hasOwnProperty(columns[i])) { return 'Unknown column: ' + columns[i]; }"
+      + "}"
+      + "for (var name in filter) {"
+      + "  if (!index.hasOwnProperty(name)) { return 'Unknown column: ' + name; }"
+      + "  filters.push([index[name], new RegExp('^(?:' + filter[name] + ')$')]);"
+      + "}"
+      + "var result = [];"
+      + "for (i = start; i < rows.length && result.length < max; i++) {"
+      + "  var row = rows[i], section = row.parentNode.tagName.toLowerCase();"
+      + "  if (row === headerRow || section === 'thead' || section === 'tfoot') { continue; }"
+      + "  var keep = true;"
+      + "  for (j = 0; j < filters.length && keep; j++) {"
+      + "    var filtered = row.cells[filters[j][0]];"
+      + "    keep = filters[j][1].test(filtered ? textOf(filtered) : '');"
+      + "  }"
+      + "  if (!keep) { continue; }"
+      + "  var values = [];"
+      + "  for (j = 0; j < columns.length; j++) {"
+      + "    var cell = row.cells[index[columns[j]]];"
+      + "    values.push(cell ? textOf(cell) : null);"
+      + "  }"
+      + "  result.push(values);"
+      + "}"
+      + "return { columns: columns, rows: result, next: i < rows.length ? i : -1 };";
+
+  private static final ScriptRegistry.Script READ = ScriptRegistry.register("seauto.table.read", READ_SCRIPT);
+
+  private final WebDriver driver;
+
+  private final WebElement table;
+
+  private final List<String> columns = new ArrayList<>();
+
+  private final Map<String, String> filter = new LinkedHashMap<>();
+
+  private int pageSize;
+
+  /**
+   * @param driver
+   *          driver of the page
+   * @param table
+   *          the <code>table</code> element
+   */
+  public TableReader(WebDriver driver, WebElement table)
+  {
+    this.driver = driver;
+    this.table = table;
+    this.pageSize = Math.max(Integer.getInteger(PAGE_SIZE, 500), 1);
+  }
+
+  /**
+   * @param columns
+   *          headers of the columns to read, in the order they are wanted; all
+   *          columns are read when none are given
+   * @return this reader
+   */
+  public TableReader columns(String... columns)
+  {
+    this.columns.clear();
+    this.columns.addAll(Arrays.asList(columns));
+    return this;
+  }
+
+  /**
+   * Only reads the rows whose cell in the column matches the regex. The regex
+   * is evaluated by the browser, so it has to be a valid Javascript regex.
+   *
+   * @param column
+   *          header of the column
+   * @param regex
+   *          regex the entire text of the cell has to match
+   * @return this reader
+   */
+  public TableReader where(String column, String regex)
+  {
+    filter.put(column, regex);
+    return this;
+  }
+
+  /**
+   * @param rows
+   *          rows read by a single script
+   * @return this reader
+   */
+  public TableReader pageSize(int rows)
+  {
+    if (rows < 1) {
+      throw new IllegalArgumentException(String.format("page size(%d) must be > 0", rows));
+    }
+    this.pageSize = rows;
+    return this;
+  }
+
+  /**
+   * @return every row that was asked for, mapping the header of each column
+   *         to the text of its cell, or to null when the row has no such cell
+   * @throws IllegalArgumentException
+   *           if a column is not in the table
+   */
+  public List<Map<String, String>> read()
+  {
+    List<Map<String, String>> rows = new ArrayList<>();
+    for (Map<String, String> row : this) {
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /**
+   * Reads the rows a page at a time, while they are iterated over.
+   *
+   * @throws IllegalArgumentException
+   *           if a column is not in the table
+   */
+  @Override
+  public Iterator<Map<String, String>> iterator()
+  {
+    return new Iterator<Map<String, String>>() {
+
+      private Iterator<Map<String, String>> page = Collections.emptyIterator();
+
+      // row the next page starts at, -1 once the table is read
+      private long next = 0;
+
+      @Override
+      public boolean hasNext()
+      {
+        while (!page.hasNext() && next >= 0) {
+          page = readPage();
+        }
+        return page.hasNext();
+      }
+
+      @Override
+      public Map<String, String> next()
+      {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return page.next();
+      }
+
+      @Override
+      public void remove()
+      {
+        throw new UnsupportedOperationException();
+      }
+
+      private Iterator<Map<String, String>> readPage()
+      {
+        Object result = READ.execute(driver, table, columns, filter, next, pageSize);
+        if (!(result instanceof Map)) {
+          throw new IllegalArgumentException(String.valueOf(result));
+        }
+
+        Map<?, ?> read = (Map<?, ?>) result;
+        next = ((Number) read.get("next")).longValue();
+
+        List<?> headers = (List<?>) read.get("columns");
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (Object cells : (List<?>) read.get("rows")) {
+          Map<String, String> row = new LinkedHashMap<>();
+          for (int i = 0; i < headers.size(); i++) {
+            Object cell = ((List<?>) cells).get(i);
+            row.put(headers.get(i).toString(), cell == null ? null : cell.toString());
+          }
+          rows.add(row);
+        }
+        return rows.iterator();
+      }
+    };
+  }
+}
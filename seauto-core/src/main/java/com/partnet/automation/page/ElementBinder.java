@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.page;
+
+import java.lang.reflect.Field;
+
+import org.openqa.selenium.SearchContext;
+
+/**
+ * Creates instances of one page object class and initializes their element
+ * fields without reading the class at runtime. Binders are generated at
+ * compile time by the seauto-processor annotation processor, as
+ * <code>&lt;binary class name&gt;_ElementBinder</code> next to the class, and
+ * are used by {@link PageBinding} when they are present.
+ * <p>
+ * A binder only avoids reflection for the element fields it can assign
+ * directly: fields that are neither private nor final, and that are public or
+ * declared in the package of the page object class. Every other field,
+ * including every private one, is still written through a {@link Field},
+ * resolved once per binder with {@link #field(Class, String)} and set with
+ * {@link #set(Field, Object, Object)} for each instance. Declare element fields
+ * package-private to have them assigned without reflection.
+ *
+ * @param <T>
+ *          the page object class
+ */
+public abstract class ElementBinder<T>
+{
+
+  /**
+   * Creates an instance with the public constructor taking a single argument.
+   *
+   * @param parameterType
+   *          declared type of the constructor's parameter
+   * @param argument
+   *          passed to the constructor
+   * @return the new instance
+   * @throws Exception
+   *           if there is no such constructor, or it failed
+   */
+  public abstract T newInstance(Class<?> parameterType, Object argument)
+      throws Exception;
+
+  /**
+   * Sets the element fields of the instance to {@link LocatingElement}s and
+   * {@link LocatingElementList}s.
+   *
+   * @param searchContext
+   *          where the elements are searched, usually the driver
+   * @param target
+   *          the instance
+   */
+  public abstract void initElements(SearchContext searchContext, T target);
+
+  /**
+   * @param type
+   *          class declaring the field
+   * @param name
+   *          name of the field
+   * @return the field, accessible
+   */
+  protected static Field field(Class<?> type, String name)
+  {
+    try {
+      Field field = type.getDeclaredField(name);
+      field.setAccessible(true);
+      return field;
+    }
+    catch (NoSuchFieldException e) {
+      throw new IllegalStateException("The binder of " + type.getName() + " is out of date, recompile it", e);
+    }
+  }
+
+  /**
+   * @param field
+   *          field returned by {@link #field(Class, String)}
+   * @param target
+   *          instance whose field is set
+   * @param value
+   *          value of the field
+   */
+  protected static void set(Field field, Object target, Object value)
+  {
+    try {
+      field.set(target, value);
+    }
+    catch (IllegalAccessException e) {
+      throw new IllegalStateException("Unable to set " + field, e);
+    }
+  }
+}
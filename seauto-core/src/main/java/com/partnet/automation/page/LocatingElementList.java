@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.page;
+
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebElement;
+
+import com.google.common.collect.ForwardingList;
+
+/**
+ * List field of a page object that finds its elements whenever it is used, or
+ * once if the lookup is cached, like the proxies of
+ * {@link org.openqa.selenium.support.PageFactory}. Set by {@link PageBinding}
+ * and generated {@link ElementBinder}s.
+ */
+public class LocatingElementList
+    extends ForwardingList<WebElement>
+{
+
+  private final SearchContext searchContext;
+
+  private final By by;
+
+  private final boolean cacheLookup;
+
+  private List<WebElement> elements;
+
+  /**
+   * @param searchContext
+   *          where the elements are searched, usually the driver
+   * @param by
+   *          locator of the elements
+   * @param cacheLookup
+   *          true to find the elements once and keep them
+   */
+  public LocatingElementList(SearchContext searchContext, By by, boolean cacheLookup)
+  {
+    this.searchContext = searchContext;
+    this.by = by;
+    this.cacheLookup = cacheLookup;
+  }
+
+  @Override
+  protected List<WebElement> delegate()
+  {
+    if (elements != null) {
+      return elements;
+    }
+
+    List<WebElement> found = searchContext.findElements(by);
+    if (cacheLookup) {
+      elements = found;
+    }
+    return found;
+  }
+}
@@ -25,6 +25,8 @@ import org.slf4j.LoggerFactory;
 
 import com.partnet.automation.DependencyContainer;
 import com.partnet.automation.HtmlView;
+import com.partnet.automation.page.panel.Panel;
+import com.partnet.automation.page.panel.PanelHandle;
 import com.partnet.automation.page.panel.PanelProvider;
 
 /**
@@ -64,6 +66,26 @@ public abstract class Page
     this.panelProvider = panelProvider;
   }
 
+  /**
+   * Obtains a handle to a panel of this page. The panel is created the first
+   * time the handle is used, and reused until the page loads another
+   * document. Handles are meant to be kept in fields of the page:
+   *
+   * <pre>
+   * private final PanelHandle&lt;SearchPanel&gt; searchPanel = panel(SearchPanel.class);
+   * </pre>
+   *
+   * @param panelClass
+   *          type of the panel
+   * @param <T>
+   *          panel class
+   * @return handle of the panel
+   */
+  protected final <T extends Panel> PanelHandle<T> panel(Class<T> panelClass)
+  {
+    return panelProvider.getHandle(panelClass);
+  }
+
   /**
    * Get the current title of the current page the browser is on
    * @return String of the pages title
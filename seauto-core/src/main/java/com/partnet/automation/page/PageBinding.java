@@ -0,0 +1,267 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.partnet.automation.page;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.FindAll;
+import org.openqa.selenium.support.FindBy;
+import org.openqa.selenium.support.FindBys;
+import org.openqa.selenium.support.pagefactory.Annotations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates page objects ({@link Page}, {@link com.partnet.automation.page.panel.Panel}
+ * and {@link Site}) and initializes their element fields the way
+ * {@link org.openqa.selenium.support.PageFactory#initElements(org.openqa.selenium.WebDriver, Object)}
+ * does, but resolves everything reflective once per class: the constructor as
+ * a method handle, and the fields to decorate with their locators. Binding an
+ * instance then only creates the {@link LocatingElement}s and writes the
+ * fields.
+ * <p>
+ * When an {@link ElementBinder} was generated for the class at compile time,
+ * it creates and initializes the instances instead, and the class is not
+ * scanned at all.
+ * <p>
+ * Bindings are cached with a {@link ClassValue}, so they do not keep the page
+ * classes from being unloaded.
+ * <p>
+ * Configured with the following system property, read when a class is first
+ * bound:
+ * <ul>
+ * <li>{@value #GENERATED_BINDERS} - use generated binders (default true)</li>
+ * </ul>
+ */
+public final class PageBinding
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(PageBinding.class);
+
+  public static final String GENERATED_BINDERS = "test.config.page.binders";
+
+  private static final String BINDER_SUFFIX = "_ElementBinder";
+
+  private static final ClassValue<PageBinding> BINDINGS = new ClassValue<PageBinding>() {
+
+    @Override
+    protected PageBinding computeValue(Class<?> type)
+    {
+      return new PageBinding(type);
+    }
+  };
+
+  private final Class<?> type;
+
+  private final ElementBinder<Object> binder;
+
+  private final List<ElementField> fields;
+
+  // constructor parameter type -> constructor
+  private final ConcurrentMap<Class<?>, MethodHandle> constructors = new ConcurrentHashMap<>(2);
+
+  private PageBinding(Class<?> type)
+  {
+    this.type = type;
+    this.binder = Boolean.parseBoolean(System.getProperty(GENERATED_BINDERS, "true")) ? findBinder(type) : null;
+
+    // a generated binder knows the fields already
+    List<ElementField> found = new ArrayList<>();
+    for (Class<?> c = type; binder == null && c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (WebElement.class.isAssignableFrom(field.getType()) || isElementList(field)) {
+          found.add(new ElementField(field));
+        }
+      }
+    }
+    this.fields = Collections.unmodifiableList(found);
+  }
+
+  /**
+   * @param type
+   *          class of the page object
+   * @return the binding of the class
+   * @throws IllegalArgumentException
+   *           if the locator annotations of a field are invalid
+   */
+  public static PageBinding of(Class<?> type)
+  {
+    return BINDINGS.get(type);
+  }
+
+  /**
+   * Creates an instance with the public constructor taking a single argument.
+   * The element fields are not initialized, see
+   * {@link #initElements(SearchContext, Object)}.
+   *
+   * @param parameterType
+   *          declared type of the constructor's parameter
+   * @param argument
+   *          passed to the constructor
+   * @return the new instance
+   * @throws Exception
+   *           if there is no such constructor, or it failed
+   */
+  public Object newInstance(Class<?> parameterType, Object argument)
+      throws Exception
+  {
+    if (binder != null) {
+      return binder.newInstance(parameterType, argument);
+    }
+
+    MethodHandle constructor = constructors.get(parameterType);
+    if (constructor == null) {
+      constructor = MethodHandles.publicLookup().unreflectConstructor(type.getConstructor(parameterType));
+      constructors.put(parameterType, constructor);
+    }
+
+    try {
+      return constructor.invoke(argument);
+    }
+    catch (Exception | Error e) {
+      throw e;
+    }
+    catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  /**
+   * Sets every {@link WebElement} field to a {@link LocatingElement}, and every
+   * list of elements annotated with {@link FindBy}, {@link FindBys} or
+   * {@link FindAll} to a {@link LocatingElementList}.
+   *
+   * @param searchContext
+   *          where the elements are searched, usually the driver
+   * @param target
+   *          instance of the bound class
+   */
+  public void initElements(SearchContext searchContext, Object target)
+  {
+    if (binder != null) {
+      binder.initElements(searchContext, target);
+      return;
+    }
+
+    for (ElementField element : fields) {
+      Object value = element.list ? new LocatingElementList(searchContext, element.by, element.lookupCached)
+          : new LocatingElement(searchContext, element.by, element.lookupCached);
+      try {
+        element.field.set(target, value);
+      }
+      catch (IllegalAccessException e) {
+        throw new IllegalStateException("Unable to set " + element.field, e);
+      }
+    }
+  }
+
+  /**
+   * @return true if a generated {@link ElementBinder} is used for the class
+   */
+  public boolean isGenerated()
+  {
+    return binder != null;
+  }
+
+  /**
+   * @return number of fields set by {@link #initElements(SearchContext, Object)}
+   *         when there is no generated binder; 0 when there is
+   */
+  public int getFieldCount()
+  {
+    return fields.size();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "PageBinding of " + type.getName();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ElementBinder<Object> findBinder(Class<?> type)
+  {
+    try {
+      Class<?> binderClass = Class.forName(type.getName() + BINDER_SUFFIX, true, type.getClassLoader());
+      if (ElementBinder.class.isAssignableFrom(binderClass)) {
+        return (ElementBinder<Object>) binderClass.getConstructor().newInstance();
+      }
+      LOG.warn("{} is not an ElementBinder, binding {} by reflection", binderClass.getName(), type.getName());
+    }
+    catch (ClassNotFoundException e) {
+      // not generated
+    }
+    catch (ReflectiveOperationException | LinkageError e) {
+      LOG.warn("Unable to create the binder of {}, binding it by reflection", type.getName(), e);
+    }
+    return null;
+  }
+
+  private static boolean isElementList(Field field)
+  {
+    if (!List.class.isAssignableFrom(field.getType())) {
+      return false;
+    }
+
+    Type genericType = field.getGenericType();
+    if (!(genericType instanceof ParameterizedType)) {
+      return false;
+    }
+
+    return WebElement.class.equals(((ParameterizedType) genericType).getActualTypeArguments()[0])
+        && (field.getAnnotation(FindBy.class) != null || field.getAnnotation(FindBys.class) != null || field.getAnnotation(FindAll.class) != null);
+  }
+
+  /**
+   * A field with its locator built from the annotations up front.
+   */
+  private static final class ElementField
+  {
+
+    private final Field field;
+
+    private final boolean list;
+
+    private final By by;
+
+    private final boolean lookupCached;
+
+    private ElementField(Field field)
+    {
+      Annotations annotations = new Annotations(field);
+      this.field = field;
+      this.list = !WebElement.class.isAssignableFrom(field.getType());
+      this.by = annotations.buildBy();
+      this.lookupCached = annotations.isLookupCached();
+      field.setAccessible(true);
+    }
+  }
+}
@@ -88,8 +88,9 @@ public class PageProvider
     depContainer.markFinalized();
 
     try {
-      T page = pageClass.getConstructor(DependencyContainer.class).newInstance(depContainer);
-      org.openqa.selenium.support.PageFactory.initElements(this.driverProvider.get(), page);
+      PageBinding binding = PageBinding.of(pageClass);
+      T page = pageClass.cast(binding.newInstance(DependencyContainer.class, depContainer));
+      binding.initElements(this.driverProvider.get(), page);
       return page;
     }
     catch (Exception e) {
@@ -22,10 +22,13 @@ import java.util.regex.Pattern;
 import org.openqa.selenium.By;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.partnet.automation.HtmlView;
+import com.partnet.automation.selenium.DocumentGeneration;
+import com.partnet.automation.wait.NetworkIdleCondition;
 
 /**
  * Provides functionality that should be accessible anywhere within a given
@@ -69,7 +72,9 @@ public abstract class Site
   }
 
   /**
-   * Open/navigate-to a given url.
+   * Open/navigate-to a given url. When
+   * <code>test.config.page.network.idle</code> is true, it also waits for the
+   * page to finish its XHR and fetch requests.
    * 
    * @param url
    *          - the url to go to
@@ -99,7 +104,21 @@ public abstract class Site
      * LOG.debug("\ttime: {}", stop.toString()); stop.reset(); } }
      */
 
+    boolean waitForNetwork = Boolean.getBoolean(NetworkIdleCondition.WAIT_FOR_IDLE);
+    if (waitForNetwork) {
+      // requests the navigation starts in this document, e.g. for a route of a
+      // single page application, are only seen by a tracker that is already in
+      // place
+      try {
+        injectNetworkTracker();
+      }
+      catch (WebDriverException e) {
+        LOG.debug("Unable to track requests before navigating to {}", url, e);
+      }
+    }
+
     try {
+      DocumentGeneration.next(webDriver);
       this.webDriver.navigate().to(url);
     }
     catch (TimeoutException e) {
@@ -119,6 +138,10 @@ public abstract class Site
 
       LOG.error(sb.toString());
     }
+
+    if (waitForNetwork) {
+      waitForNetworkIdle();
+    }
   }
 
   /**
@@ -53,7 +53,7 @@ public abstract class SiteProvider<T extends Site>
   {
     try {
       T site = newSiteInstance();
-      org.openqa.selenium.support.PageFactory.initElements(driverProvider.get(), site);
+      PageBinding.of(site.getClass()).initElements(driverProvider.get(), site);
       return site;
     }
     catch (Exception e) {
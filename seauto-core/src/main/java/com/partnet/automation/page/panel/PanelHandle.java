@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.partnet.automation.page.panel;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Supplier;
+import com.partnet.automation.selenium.DocumentGeneration;
+
+/**
+ * Creates a panel the first time it is used and hands out the same instance
+ * until the browser shows another document, e.g. after a navigation or a
+ * window switch made through the page. Pages hold handles to their panels instead of the panels, so
+ * panels that a test never uses are never created:
+ *
+ * <pre>
+ * private final PanelHandle&lt;SearchPanel&gt; searchPanel = panel(SearchPanel.class);
+ * ...
+ * searchPanel.get().search(term);
+ * </pre>
+ * <p>
+ * A change of document is noticed from the {@link DocumentGeneration} of the
+ * driver, which HtmlView and Site move on when they navigate or switch
+ * windows, so asking for the panel costs no browser command. A navigation
+ * made around them, e.g. a plain click on a link followed by
+ * waitForPageToLoad, keeps the panel until {@link #invalidate()}, unless
+ * the document check is turned on: the handle then also stores an id in the
+ * document and reads it back with one short script every time the panel is
+ * asked for.
+ * <p>
+ * Configured with the following system properties, read when a handle is
+ * created:
+ * <ul>
+ * <li>{@value #DOCUMENT_CHECK} - true to check the document with a script on
+ * every {@link #get()} (default false)</li>
+ * </ul>
+ *
+ * @param <T>
+ *          type of the panel
+ */
+public final class PanelHandle<T extends Panel>
+    implements Supplier<T>
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(PanelHandle.class);
+
+  public static final String DOCUMENT_CHECK = "test.config.panel.document.check";
+
+  // gives the document an id the first time, returns it after
+  private static final String DOCUMENT_ID_SCRIPT = "var d = document;"
+      + "if (!d.seautoId) { d.seautoId = new Date().getTime() + ':' + Math.random(); }"
+      + "return d.seautoId;";
+
+  private final PanelProvider panelProvider;
+
+  private final Class<T> panelClass;
+
+  private final WebDriver webDriver;
+
+  private final boolean documentCheck;
+
+  private T panel;
+
+  // generation and id of the document the panel was created for
+  private int generation;
+
+  private String document;
+
+  /**
+   * @param panelProvider
+   *          creates the panel
+   * @param panelClass
+   *          type of the panel
+   * @param webDriver
+   *          driver showing the page of the panel
+   */
+  PanelHandle(PanelProvider panelProvider, Class<T> panelClass, WebDriver webDriver)
+  {
+    this.panelProvider = panelProvider;
+    this.panelClass = panelClass;
+    this.webDriver = webDriver;
+    this.documentCheck = Boolean.getBoolean(DOCUMENT_CHECK) && webDriver instanceof JavascriptExecutor;
+  }
+
+  /**
+   * @return the panel, created if it was not yet or the document changed
+   */
+  @Override
+  public synchronized T get()
+  {
+    int currentGeneration = DocumentGeneration.of(webDriver);
+    String current = documentCheck ? getDocumentId() : null;
+    if (panel == null || generation != currentGeneration || (documentCheck && (current == null || !current.equals(document)))) {
+      LOG.debug("Creating {} for document {} ({})", panelClass.getSimpleName(), currentGeneration, current);
+      panel = panelProvider.get(panelClass);
+      generation = currentGeneration;
+      document = current;
+    }
+    return panel;
+  }
+
+  /**
+   * Drops the panel, so the next {@link #get()} creates a new one.
+   */
+  public synchronized void invalidate()
+  {
+    panel = null;
+    document = null;
+  }
+
+  /**
+   * @return true if the panel was created and not dropped since
+   */
+  public synchronized boolean isCreated()
+  {
+    return panel != null;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "PanelHandle of " + panelClass.getName();
+  }
+
+  private String getDocumentId()
+  {
+    try {
+      Object id = ((JavascriptExecutor) webDriver).executeScript(DOCUMENT_ID_SCRIPT);
+      return id == null ? null : id.toString();
+    }
+    catch (WebDriverException e) {
+      // e.g. an alert is open; don't trust the panel
+      LOG.debug("Unable to identify the document of {}", panelClass.getSimpleName(), e);
+      return null;
+    }
+  }
+}
@@ -20,6 +20,7 @@ import javax.inject.Inject;
 
 import org.openqa.selenium.WebDriver;
 
+import com.partnet.automation.page.PageBinding;
 import com.partnet.automation.selenium.DriverProvider;
 
 /**
@@ -47,11 +48,26 @@ public class PanelProvider
     return createPanel(clazz);
   }
 
+  /**
+   * Obtain a handle that creates the panel when it is first used.
+   *
+   * @param clazz  type of Panel requested
+   * @param <T> panel class
+   * @return handle of the panel
+   * @see PanelHandle
+   */
+  public <T extends Panel> PanelHandle<T> getHandle(Class<T> clazz)
+  {
+    return new PanelHandle<>(this, clazz, this.driverProvider.get());
+  }
+
   private <T extends Panel> T createPanel(Class<T> panelClass)
   {
     try {
-      T panel = panelClass.getConstructor(WebDriver.class).newInstance(this.driverProvider.get());
-      org.openqa.selenium.support.PageFactory.initElements(this.driverProvider.get(), panel);
+      WebDriver driver = this.driverProvider.get();
+      PageBinding binding = PageBinding.of(panelClass);
+      T panel = panelClass.cast(binding.newInstance(WebDriver.class, driver));
+      binding.initElements(driver, panel);
       return panel;
     }
     catch (Exception e) {
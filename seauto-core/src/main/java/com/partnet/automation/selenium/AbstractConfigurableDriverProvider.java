@@ -20,13 +20,22 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import io.appium.java_client.android.AndroidDriver;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
-import org.openqa.selenium.Cookie;
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
@@ -44,10 +53,12 @@ import org.openqa.selenium.remote.CapabilityType;
 import org.openqa.selenium.remote.DesiredCapabilities;
 import org.openqa.selenium.remote.LocalFileDetector;
 import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.service.DriverService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.partnet.automation.Browser;
 import com.partnet.automation.RuntimeConfiguration;
 import com.partnet.automation.download.OperatingSystem;
@@ -58,7 +69,7 @@ import com.partnet.automation.download.StandaloneDriverDownloadAssistant;
  * by various means.
  */
 public abstract class AbstractConfigurableDriverProvider
-    implements DriverProvider
+    implements DriverProvider, DriverPrelauncher
 {
 
   // too bad we can't inject the runConfig into abstract classes...
@@ -66,19 +77,88 @@ public abstract class AbstractConfigurableDriverProvider
 
   private ThreadLocal<WebDriver> delegate = new ThreadLocal<WebDriver>();
 
+  private ThreadLocal<PrelaunchedDriver> prelaunched = new ThreadLocal<PrelaunchedDriver>();
+
+  private final AsyncDriverTeardown.DriverStopper driverStopper = new AsyncDriverTeardown.DriverStopper() {
+
+    @Override
+    public void stop(WebDriver driver)
+    {
+      stopWebDriver(driver);
+    }
+  };
+
+  private final AsyncDriverTeardown.DriverStopper driverReleaser = new AsyncDriverTeardown.DriverStopper() {
+
+    @Override
+    public void stop(WebDriver driver)
+    {
+      releaseWebDriver(driver);
+    }
+  };
+
+  private final AsyncDriverTeardown.DriverStopper driverDiscarder = new AsyncDriverTeardown.DriverStopper() {
+
+    @Override
+    public void stop(WebDriver driver)
+    {
+      discardWebDriver(driver);
+    }
+  };
+
+  private final WebDriverPool.DriverFactory phantomJsRendererFactory = new WebDriverPool.DriverFactory() {
+
+    @Override
+    public WebDriver create(Browser browser)
+    {
+      return getPhantomJsWebDriver();
+    }
+
+    @Override
+    public void destroy(WebDriver driver)
+    {
+      quitWebDriver(driver);
+    }
+  };
+
+  private static final ExecutorService PRELAUNCH_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("seauto-driver-prelaunch-%d").build());
+
+  // prelaunched drivers that have not been claimed yet, released on shutdown
+  private static final Set<PrelaunchedDriver> UNCLAIMED = Collections.newSetFromMap(new ConcurrentHashMap<PrelaunchedDriver, Boolean>());
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread("seauto-driver-prelaunch-shutdown") {
+
+      @Override
+      public void run()
+      {
+        for (PrelaunchedDriver pending : UNCLAIMED) {
+          pending.release();
+        }
+      }
+    });
+  }
+
   private static final Logger LOG = LoggerFactory.getLogger(AbstractConfigurableDriverProvider.class);
 
   // TODO: Feb 4, 2015 (bbarker) - Fix proxy setting here
   protected final String USE_PROXY_BY_DEFAULT = "test.config.default.useProxy";
   protected final String BROWSER_SYSTEM_PROPERTY_NAME = "test.config.browser";
   protected final String SELENIUM_REMOTE_URL = "test.config.selenium.url";
-  protected final String REMOTE_WEBDRIVER_RETRY_ATTEMPTS = "remote.webdriver.retry.attempts";
-  protected final String REMOTE_WEBDRIVER_RETRY_PAUSE_MILLIS = "remote.webdriver.retry.pause.millis";
+  // read by RemoteSessionScheduler, which retries new remote sessions
+  protected final String REMOTE_WEBDRIVER_RETRY_ATTEMPTS = RemoteSessionScheduler.RETRY_ATTEMPTS;
+  protected final String REMOTE_WEBDRIVER_RETRY_PAUSE_MILLIS = RemoteSessionScheduler.RETRY_PAUSE_MILLIS;
   protected final String PAGE_LOAD_TIMEOUT_SECONDS = "test.config.page.load.timeout";
+  protected final String SCRIPT_TIMEOUT_SECONDS = "test.config.script.timeout";
   protected final String PHANTOM_JS_BIN_PROP = "test.config.driver.phantomjs.bin";
   protected final String CHROME_DRIVER_BIN_PROP = "test.config.driver.chrome.bin";
   protected final String IE_DRIVER_BIN_PROP = "test.config.driver.ie.bin";
   protected final String ALLOW_SCREENSHOTS = "test.config.driver.screenshots.allow";
+  protected final String PRELAUNCH = "test.config.driver.prelaunch";
+  protected final String ASYNC_TEARDOWN = "test.config.driver.teardown.async";
+  protected final String SHARED_DRIVER_SERVICE = "test.config.driver.service.shared";
+  protected final String HTMLUNIT_SCREENSHOT_MODE = "test.config.driver.screenshots.htmlunit.mode";
+  protected final String HTMLUNIT_DOM_SNAPSHOT = "dom";
   protected final String DRIVER_BIN_PATH_APPEND = ".path";
   protected final String WINDOWS_APPEND = ".windows";
   protected final String MAC_APPEND = ".mac";
@@ -161,6 +241,8 @@ public abstract class AbstractConfigurableDriverProvider
 
     if(!browser.isAndroid()) {
       driver.manage().timeouts().pageLoadTimeout(Integer.getInteger(PAGE_LOAD_TIMEOUT_SECONDS, 120), TimeUnit.SECONDS);
+      // event driven waits watch the page with asynchronous scripts
+      driver.manage().timeouts().setScriptTimeout(Integer.getInteger(SCRIPT_TIMEOUT_SECONDS, 30), TimeUnit.SECONDS);
     }
 
     return driver;
@@ -187,13 +269,35 @@ public abstract class AbstractConfigurableDriverProvider
     return driver;
   }
 
+  /**
+   * Gets the browser of the calling thread's driver. It is resolved once, when
+   * the driver is launched.
+   * 
+   * @return the current thread's {@link Browser}, or null if no driver is
+   *         running
+   */
+  public Browser getBrowser()
+  {
+    WebDriver driver = this.delegate.get();
+    return driver == null ? null : DriverRegistry.getInstance().getBrowser(driver);
+  }
+
+  /**
+   * Gets the capabilities of the calling thread's driver, as they were when
+   * the driver was launched.
+   * 
+   * @return the current thread's capabilities, or null if no driver is running
+   *         or the driver does not expose them
+   */
+  public Capabilities getCapabilities()
+  {
+    WebDriver driver = this.delegate.get();
+    return driver == null ? null : DriverRegistry.getInstance().getCapabilities(driver);
+  }
+
   @Override
   public void end()
   {
-    // suggestion to close web driver before quitting to prevent socket lock on
-    // 7054
-    // https://code.google.com/p/selenium/issues/detail?id=7272
-    // https://code.google.com/p/selenium/issues/detail?id=4790
     WebDriver driver = this.get();
 
     if (driver == null) {
@@ -202,13 +306,13 @@ public abstract class AbstractConfigurableDriverProvider
     }
 
     LOG.debug("Stopping driver");
-    //closing android browser is not supported
-    if(!Browser.getBrowser(driver).isAndroid()) {
-      driver.close();
-    }
-
-    this.get().quit();
     this.set(null);
+
+    if (!DriverRegistry.getInstance().unregister(driver)) {
+      LOG.info("Driver was already stopped by the driver reaper");
+      return;
+    }
+    releaseWebDriver(driver);
   }
 
   /**
@@ -229,8 +333,102 @@ public abstract class AbstractConfigurableDriverProvider
    *          by {@link #getBrowserFromProperty()} is set.
    * 
    * @see #getDefaultBrowser()
+   * @see #prelaunch(Browser)
    */
   public void launch(Browser browser)
+  {
+    Browser browserToLaunch = resolveBrowser(browser);
+
+    end();
+
+    WebDriver driver = claimPrelaunchedWebDriver(browserToLaunch);
+    if (driver == null) {
+      driver = acquireWebDriver(browserToLaunch);
+    }
+
+    DriverRegistry.getInstance().register(driver, browserToLaunch, driverReleaser, driverDiscarder);
+    this.set(driver);
+  }
+
+  /**
+   * Starts acquiring a driver for the given browser on a background thread, so
+   * the next {@link #launch(Browser)} on the calling thread for the same
+   * browser only has to hand it over. Does nothing unless the
+   * {@link #PRELAUNCH} system property is true.
+   * <p>
+   * A previously prelaunched driver for a different browser is released.
+   * 
+   * @param browser
+   *          - The browser to prelaunch, resolved the same way as
+   *          {@link #launch(Browser)}.
+   */
+  @Override
+  public void prelaunch(Browser browser)
+  {
+    if (!Boolean.getBoolean(PRELAUNCH)) {
+      return;
+    }
+
+    final Browser browserToLaunch = resolveBrowser(browser);
+    PrelaunchedDriver pending = prelaunched.get();
+
+    if (pending != null) {
+      if (pending.browser == browserToLaunch) {
+        LOG.debug("{} is already being prelaunched", browserToLaunch);
+        return;
+      }
+      prelaunched.remove();
+      pending.discard();
+    }
+
+    LOG.debug("Prelaunch {} for the next launch on this thread", browserToLaunch);
+    Future<WebDriver> future = PRELAUNCH_EXECUTOR.submit(new Callable<WebDriver>() {
+
+      @Override
+      public WebDriver call()
+      {
+        return acquireWebDriver(browserToLaunch);
+      }
+    });
+    prelaunched.set(new PrelaunchedDriver(browserToLaunch, future));
+  }
+
+  /**
+   * Takes the driver prelaunched for the calling thread, if it is for the
+   * given browser and started successfully.
+   * 
+   * @return the prelaunched driver, or null if the driver must be acquired
+   *         now
+   */
+  private WebDriver claimPrelaunchedWebDriver(Browser browser)
+  {
+    PrelaunchedDriver pending = prelaunched.get();
+
+    if (pending == null) {
+      return null;
+    }
+
+    prelaunched.remove();
+
+    if (pending.browser != browser) {
+      LOG.debug("Prelaunched {} does not match requested {}", pending.browser, browser);
+      pending.discard();
+      return null;
+    }
+
+    return pending.claim();
+  }
+
+  /**
+   * Determines which browser to launch.
+   * 
+   * @param browser
+   *          - The requested browser, or null for the default browser
+   * @return the browser from {@link #getBrowserFromProperty()} if set,
+   *         otherwise the requested browser, otherwise
+   *         {@link #getDefaultBrowser()}
+   */
+  private Browser resolveBrowser(Browser browser)
   {
     // system property value takes priority
     Browser browserFromProp = getBrowserFromProperty();
@@ -250,9 +448,86 @@ public abstract class AbstractConfigurableDriverProvider
     }
 
     Objects.requireNonNull(browserFromProp, "browser to use cannot be null");
+    return browserFromProp;
+  }
 
-    end();
-    this.set(getWebDriver(browserFromProp));
+  /**
+   * Obtains the {@link WebDriver} that {@link #launch(Browser)} hands to the
+   * calling thread. By default a brand new driver is started with
+   * {@link #getWebDriver(Browser)}; override to hand out drivers from
+   * somewhere else, such as a pool.
+   * 
+   * @param browser browser to obtain, never null
+   * @return {@link WebDriver} for the calling thread
+   * @see #releaseWebDriver(WebDriver)
+   */
+  protected WebDriver acquireWebDriver(Browser browser)
+  {
+    return getWebDriver(browser);
+  }
+
+  /**
+   * Gives back a {@link WebDriver} previously obtained by
+   * {@link #acquireWebDriver(Browser)} once {@link #end()} has detached it from
+   * the calling thread. By default the driver is stopped.
+   * 
+   * @param driver driver that is no longer used by the calling thread
+   * @see #quitWebDriver(WebDriver)
+   */
+  protected void releaseWebDriver(WebDriver driver)
+  {
+    quitWebDriver(driver);
+  }
+
+  /**
+   * Stops a {@link WebDriver} previously obtained by
+   * {@link #acquireWebDriver(Browser)} that must not be handed out again, such
+   * as an idle driver stopped by the {@link DriverRegistry} while its thread
+   * still holds it. By default the driver is stopped.
+   * 
+   * @param driver driver to stop for good
+   * @see #quitWebDriver(WebDriver)
+   */
+  protected void discardWebDriver(WebDriver driver)
+  {
+    quitWebDriver(driver);
+  }
+
+  /**
+   * Closes and quits the given driver. If the {@link #ASYNC_TEARDOWN} system
+   * property is true, the driver is handed to {@link AsyncDriverTeardown} and
+   * this returns right away.
+   * 
+   * @param driver driver to stop
+   */
+  protected void quitWebDriver(WebDriver driver)
+  {
+    if (Boolean.getBoolean(ASYNC_TEARDOWN)) {
+      AsyncDriverTeardown.getInstance().quit(driver, driverStopper);
+      return;
+    }
+
+    stopWebDriver(driver);
+  }
+
+  /**
+   * Closes and quits the given driver on the calling thread.
+   * 
+   * @param driver driver to stop
+   */
+  private void stopWebDriver(WebDriver driver)
+  {
+    // suggestion to close web driver before quitting to prevent socket lock on
+    // 7054
+    // https://code.google.com/p/selenium/issues/detail?id=7272
+    // https://code.google.com/p/selenium/issues/detail?id=4790
+
+    //closing android browser is not supported
+    if(!DriverRegistry.getInstance().getBrowser(driver).isAndroid()) {
+      driver.close();
+    }
+
+    driver.quit();
   }
 
   /**
@@ -260,7 +535,7 @@ public abstract class AbstractConfigurableDriverProvider
    * <p>
    * There is also the option of replacing all of the relative paths with a
    * given base url of the site so the page can be rendered when opened with a
-   * browser.
+   * browser. The html is written in the page's charset.
    * 
    * @param htmlPath
    *          - path and filename of where to save the html file to.
@@ -270,37 +545,23 @@ public abstract class AbstractConfigurableDriverProvider
    */
   public void saveHtml(String htmlPath, String baseUrl)
   {
-    if (StringUtils.isNotBlank(baseUrl) && !baseUrl.endsWith("/")) {
-      baseUrl += "/";
-    }
-
     LOG.debug("Write html to: {}", htmlPath);
-
-    String pageSource = this.get().getPageSource();
-
-    if (StringUtils.isNotBlank(baseUrl)) {
-      pageSource = pageSource.replaceAll("=(\\s)?\"/", "=\"" + baseUrl);
-    }
-
-    try {
-      // write to file, replacing relative path with something that it will find
-      // and render
-      FileUtils.write(new File(htmlPath), pageSource, "iso-8859-1");
-    }
-    catch (IOException e) {
-      LOG.error("Error writing html to '{}'!", htmlPath, e);
-    }
+    HtmlSnapshotWriter.getInstance().write(this.get(), htmlPath, baseUrl);
   }
 
   /**
-   * Screenshooter for HTMLUnit. It saves the html source to disk following the
-   * same pattern as the screenshot path. The HTMLUnit session is transfered to
-   * PhantomJs, which takes the screenshot, and is destroyed. The original
-   * driver is not destroyed
+   * Screenshooter for HTMLUnit. The HTMLUnit session's cookies and url are
+   * handed to a PhantomJs browser, which takes the screenshot. The PhantomJs
+   * browser is kept for the next screenshot, and the original driver is not
+   * destroyed.
    * 
    * Note: Javascript events, current page changes, etc.. are not saved and are
    * not captured in the screenshots taken.
    * 
+   * When test.config.driver.screenshots.htmlunit.mode is <code>dom</code>, no
+   * screenshot is taken. The page's DOM, with its stylesheets and images
+   * inlined, is saved to the path with an html extension instead.
+   * 
    * @param path
    *          - where to save the file. This assumes a png file will be
    *          generated
@@ -308,6 +569,8 @@ public abstract class AbstractConfigurableDriverProvider
    *          - used to transfer the cookies to the phantomjs driver properly.
    * 
    * @see #getPhantomJsWebDriver()
+   * @see HtmlUnitScreenshotRenderer
+   * @see DomSnapshotWriter
    */
   public void saveScreenshotForHtmlUnit(String path, String baseUrl)
   {
@@ -319,30 +582,19 @@ public abstract class AbstractConfigurableDriverProvider
       return;
     }
 
-    PhantomJSDriver phantomJs = (PhantomJSDriver) getPhantomJsWebDriver();
-
     try {
-      phantomJs.get(baseUrl);
-      String url = driver.getCurrentUrl();
-      LOG.debug("Url: {}", url);
-
-      for (Cookie cookie : driver.manage().getCookies()) {
-        LOG.debug("Cookie: {}", cookie.toString());
-        phantomJs.manage().addCookie(cookie);
+      if (HTMLUNIT_DOM_SNAPSHOT.equalsIgnoreCase(System.getProperty(HTMLUNIT_SCREENSHOT_MODE))) {
+        File htmlFile = new File(FilenameUtils.removeExtension(path) + ".html");
+        new DomSnapshotWriter().write(driver, htmlFile);
+        LOG.debug("HTML DOM snapshot taken: {}", htmlFile);
+        return;
       }
 
-      phantomJs.get(url);
-
-      // set current thread to phantomjs, and take screenshot in the default way
-      this.set(phantomJs);
-      LOG.debug("HTML Screenshot taken: {}", this.saveScreenshotAs(path));
+      byte[] png = HtmlUnitScreenshotRenderer.getInstance(phantomJsRendererFactory).render(driver, baseUrl);
+      LOG.debug("HTML Screenshot taken: {}", ScreenshotWriter.getInstance().write(png, path));
     }
-    finally {
-      // set back original driver for this thread
-      this.set(driver);
-
-      phantomJs.close();
-      phantomJs.quit();
+    catch (IOException e) {
+      throw new RuntimeException("Can't save screenshot!", e);
     }
   }
 
@@ -365,19 +617,18 @@ public abstract class AbstractConfigurableDriverProvider
     WebDriver driver = this.get();
 
     if (driver instanceof HtmlUnitDriver) {
-      LOG.info("Additional work needs to be done to take screenshots with HTMLUnit driver, skipping. " + "Email the SeAuto user list for more information.");
-      return false;
+      if (System.getProperty(HTMLUNIT_SCREENSHOT_MODE) == null) {
+        LOG.info("Set {} to take screenshots with HTMLUnit driver, skipping.", HTMLUNIT_SCREENSHOT_MODE);
+        return false;
+      }
+
+      saveScreenshotForHtmlUnit(path, driver.getCurrentUrl());
+      return true;
     }
 
     if (driver instanceof TakesScreenshot) {
-      File dstFile = new File(path);
-      File srcFile = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
-      try {
-        FileUtils.copyFile(srcFile, dstFile);
-      }
-      catch (IOException e) {
-        throw new RuntimeException("Can't save screenshot!", e);
-      }
+      byte[] png = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+      ScreenshotWriter.getInstance().write(png, path);
       return true;
     }
     return false;
@@ -456,7 +707,9 @@ public abstract class AbstractConfigurableDriverProvider
    * Helper method to launch remote web driver.
    *
    * At times there are issues with starting the remote web driver. For firefox,
-   * problems with locking port 7054 can arise.
+   * problems with locking port 7054 can arise, and a busy grid may not have a
+   * free slot. New sessions are requested through the
+   * {@link RemoteSessionScheduler}, which queues and retries them.
    *
    * See the Selenium <a
    * href="https://code.google.com/p/selenium/issues/detail?id=4790">bug</a> for
@@ -472,38 +725,19 @@ public abstract class AbstractConfigurableDriverProvider
   {
     URL remoteUrl = getRemoteSeleniumUrl();
     LOG.debug("Remote Selenium URL: {}", remoteUrl.toString());
-    WebDriver driver = null;
-    boolean isAndroid = false;
-    int tries = 1;
-
-    if(capabilities.getCapability(CapabilityType.BROWSER_NAME).equals(ANDROID_BROWSER_NAME)) {
-      isAndroid = true;
-    }
+    final boolean isAndroid = ANDROID_BROWSER_NAME.equals(capabilities.getCapability(CapabilityType.BROWSER_NAME));
 
-    while (driver == null) {
-      LOG.debug("Try {} {}", tries, capabilities.toString());
+    WebDriver driver = RemoteSessionScheduler.getInstance().newSession(remoteUrl, capabilities, new RemoteSessionScheduler.SessionFactory() {
 
-      try {
-
-        if(isAndroid) {
-          driver = new AndroidDriver(remoteUrl, capabilities);
-        }
-        else {
-          driver = new RemoteWebDriver(remoteUrl, capabilities);
+      @Override
+      public WebDriver create(URL hubUrl, DesiredCapabilities capabilities)
+      {
+        if (isAndroid) {
+          return new AndroidDriver(hubUrl, capabilities);
         }
-
-      } catch (WebDriverException e) {
-        LOG.error("Remote WebDriver was unable to start! " + e.getMessage(), e);
-
-        if (tries >= Integer.getInteger(REMOTE_WEBDRIVER_RETRY_ATTEMPTS, 10)) {
-          throw e;
-        }
-
-        sleep(Integer.getInteger(REMOTE_WEBDRIVER_RETRY_PAUSE_MILLIS, 5000) * tries);
-        tries++;
-        driver = null;
+        return new RemoteWebDriver(hubUrl, capabilities);
       }
-    }
+    });
 
     if(!isAndroid) {
       // allow screenshots to be taken
@@ -517,19 +751,6 @@ public abstract class AbstractConfigurableDriverProvider
   }
 
 
-  /**
-   * Simple Thread sleep method that catches InterruptException.
-   * @param millis time (in milliseconds) to sleep
-   */
-  private void sleep(int millis)
-  {
-    try {
-      Thread.sleep(millis);
-    } catch (InterruptedException e) {
-      LOG.error("Exception occurred sleeping", e);
-    }
-  }
-
   private boolean doesFileExist(final String path)
   {
     final File file = new File(path);
@@ -629,9 +850,20 @@ public abstract class AbstractConfigurableDriverProvider
   {
     String pathToBin = getOsSpecificBinaryPathFromProp(PHANTOM_JS_BIN_PROP, "phantomjs");
 
-    DesiredCapabilities capabilities = getPhantomJsCapabilities();
+    final DesiredCapabilities capabilities = getPhantomJsCapabilities();
     capabilities.setCapability(PhantomJSDriverService.PHANTOMJS_EXECUTABLE_PATH_PROPERTY, pathToBin);
 
+    if (Boolean.getBoolean(SHARED_DRIVER_SERVICE)) {
+      return SharedDriverServices.getInstance().newSession(pathToBin, new SharedDriverServices.ServiceBuilder() {
+
+        @Override
+        public DriverService build()
+        {
+          return PhantomJSDriverService.createDefaultService(capabilities);
+        }
+      }, capabilities);
+    }
+
     return new PhantomJSDriver(capabilities);
 
   }
@@ -747,9 +979,21 @@ public abstract class AbstractConfigurableDriverProvider
   protected WebDriver getChromeWebDriver()
   {
     String pathToDriverBin = getOsSpecificBinaryPathFromProp(CHROME_DRIVER_BIN_PROP, "chromedriver");
+    DesiredCapabilities capabilities = DesiredCapabilities.chrome();
+
+    if (Boolean.getBoolean(SHARED_DRIVER_SERVICE)) {
+      final File driverBin = new File(pathToDriverBin);
+      return SharedDriverServices.getInstance().newSession(pathToDriverBin, new SharedDriverServices.ServiceBuilder() {
+
+        @Override
+        public DriverService build()
+        {
+          return new ChromeDriverService.Builder().usingDriverExecutable(driverBin).usingAnyFreePort().build();
+        }
+      }, capabilities);
+    }
 
     System.setProperty(ChromeDriverService.CHROME_DRIVER_EXE_PROPERTY, pathToDriverBin);
-    DesiredCapabilities capabilities = DesiredCapabilities.chrome();
 
     return new ChromeDriver(capabilities);
   }
@@ -792,4 +1036,73 @@ public abstract class AbstractConfigurableDriverProvider
     return driver;
   }
 
+  /**
+   * A driver being acquired in the background for a later
+   * {@link AbstractConfigurableDriverProvider#launch(Browser)}.
+   */
+  private class PrelaunchedDriver
+  {
+    private final Browser browser;
+
+    private final Future<WebDriver> future;
+
+    PrelaunchedDriver(Browser browser, Future<WebDriver> future)
+    {
+      this.browser = browser;
+      this.future = future;
+      UNCLAIMED.add(this);
+    }
+
+    /**
+     * Waits for the driver to finish launching.
+     * 
+     * @return the driver, or null if it failed to launch
+     */
+    WebDriver claim()
+    {
+      UNCLAIMED.remove(this);
+      try {
+        return future.get();
+      }
+      catch (ExecutionException e) {
+        LOG.warn("Prelaunch of {} failed, launch it again", browser, e.getCause());
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        discard();
+      }
+      return null;
+    }
+
+    /**
+     * Releases the driver once it has launched, without blocking the caller.
+     */
+    void discard()
+    {
+      UNCLAIMED.remove(this);
+      PRELAUNCH_EXECUTOR.execute(new Runnable() {
+
+        @Override
+        public void run()
+        {
+          release();
+        }
+      });
+    }
+
+    /**
+     * Waits for the driver to launch and releases it.
+     */
+    void release()
+    {
+      UNCLAIMED.remove(this);
+      try {
+        releaseWebDriver(future.get());
+      }
+      catch (InterruptedException | ExecutionException | RuntimeException e) {
+        LOG.debug("Prelaunched {} could not be released", browser, e);
+      }
+    }
+  }
+
 }
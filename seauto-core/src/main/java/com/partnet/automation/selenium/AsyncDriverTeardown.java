@@ -0,0 +1,389 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.firefox.FirefoxBinary;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.service.DriverCommandExecutor;
+import org.openqa.selenium.remote.service.DriverService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Quits {@link WebDriver} instances on a bounded pool of background threads,
+ * so a slow <code>quit()</code> does not hold up the next test.
+ * <p>
+ * When every teardown thread is busy and the queue is full, the calling thread
+ * quits the driver itself. A watchdog force-stops the local driver process of
+ * any quit that is still running after the deadline, counted from when the
+ * quit starts, and a shutdown hook waits
+ * for outstanding quits before the JVM exits.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #THREADS} - teardown threads (default 4)</li>
+ * <li>{@value #QUEUE_SIZE} - quits waiting for a thread (default 16)</li>
+ * <li>{@value #DEADLINE_SECONDS} - seconds a quit may take (default 60)</li>
+ * </ul>
+ */
+public class AsyncDriverTeardown
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncDriverTeardown.class);
+
+  public static final String THREADS = "test.config.driver.teardown.threads";
+  public static final String QUEUE_SIZE = "test.config.driver.teardown.queue";
+  public static final String DEADLINE_SECONDS = "test.config.driver.teardown.deadline";
+
+  private static AsyncDriverTeardown instance;
+
+  /**
+   * Stops a driver; runs on a teardown thread.
+   */
+  public interface DriverStopper
+  {
+    /**
+     * @param driver driver to stop
+     */
+    void stop(WebDriver driver);
+  }
+
+  private final ThreadPoolExecutor executor;
+
+  private final ScheduledExecutorService watchdog;
+
+  private final long deadlineMillis;
+
+  private final AtomicLong teardownCount = new AtomicLong();
+  private final AtomicLong totalTeardownMillis = new AtomicLong();
+  private final AtomicLong maxTeardownMillis = new AtomicLong();
+  private final AtomicLong hungQuitCount = new AtomicLong();
+  private final AtomicLong failedQuitCount = new AtomicLong();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+
+  /**
+   * @return the JVM wide instance, configured by the system properties
+   */
+  public static synchronized AsyncDriverTeardown getInstance()
+  {
+    if (instance == null) {
+      instance = new AsyncDriverTeardown(Integer.getInteger(THREADS, 4), Integer.getInteger(QUEUE_SIZE, 16), Integer.getInteger(DEADLINE_SECONDS, 60));
+
+      Runtime.getRuntime().addShutdownHook(new Thread("seauto-driver-teardown-shutdown") {
+
+        @Override
+        public void run()
+        {
+          instance.drain();
+        }
+      });
+    }
+    return instance;
+  }
+
+  /**
+   * @param threads
+   *          number of teardown threads
+   * @param queueSize
+   *          number of quits that may wait for a teardown thread
+   * @param deadlineSeconds
+   *          seconds a quit may take before the driver process is force-stopped
+   */
+  public AsyncDriverTeardown(int threads, int queueSize, int deadlineSeconds)
+  {
+    this.deadlineMillis = TimeUnit.SECONDS.toMillis(deadlineSeconds);
+    this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(Math.max(queueSize, 1)),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("seauto-driver-teardown-%d").build(), new ThreadPoolExecutor.CallerRunsPolicy());
+    this.executor.allowCoreThreadTimeOut(true);
+    this.watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("seauto-driver-teardown-watchdog").build());
+  }
+
+  /**
+   * Queues the driver to be stopped and returns right away. Runs the stopper on
+   * the calling thread if the queue is full or the teardown threads have been
+   * shut down.
+   *
+   * @param driver driver to stop
+   * @param stopper how to stop the driver
+   */
+  public void quit(final WebDriver driver, final DriverStopper stopper)
+  {
+    pendingCount.incrementAndGet();
+
+    Runnable task = new Runnable() {
+
+      @Override
+      public void run()
+      {
+        long start = System.currentTimeMillis();
+        // the deadline starts with the quit, not while it waits in the queue
+        QuitWatch watch = watch(driver);
+        try {
+          stopper.stop(driver);
+        }
+        catch (RuntimeException e) {
+          failedQuitCount.incrementAndGet();
+          LOG.warn("Driver did not quit cleanly", e);
+        }
+        finally {
+          if (watch != null) {
+            watch.finish();
+          }
+          record(System.currentTimeMillis() - start);
+          pendingCount.decrementAndGet();
+        }
+      }
+    };
+
+    try {
+      executor.execute(task);
+    }
+    catch (RejectedExecutionException e) {
+      LOG.debug("Teardown threads are shut down, quit on the calling thread");
+      task.run();
+    }
+  }
+
+  /**
+   * Waits for outstanding quits to finish and stops the teardown threads.
+   * Queued quits are waited for as long as quits keep finishing within the
+   * deadline, so none is dropped before it started.
+   */
+  public void drain()
+  {
+    LOG.debug("Waiting for {} driver quit(s) to finish", pendingCount.get());
+    executor.shutdown();
+    try {
+      long finished = -1;
+      while (!executor.awaitTermination(Math.max(deadlineMillis, 1), TimeUnit.MILLISECONDS)) {
+        if (teardownCount.get() == finished) {
+          List<Runnable> unstarted = executor.shutdownNow();
+          LOG.warn("{} driver quit(s) did not finish before shutdown, {} never started", pendingCount.get(), unstarted.size());
+          break;
+        }
+        finished = teardownCount.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    watchdog.shutdownNow();
+
+    LOG.info("Driver teardown: {} quits, avg {}ms, max {}ms, {} hung, {} failed", getTeardownCount(), getAverageTeardownMillis(), getMaxTeardownMillis(), getHungQuitCount(), getFailedQuitCount());
+  }
+
+  /**
+   * @return number of quits that have finished
+   */
+  public long getTeardownCount()
+  {
+    return teardownCount.get();
+  }
+
+  /**
+   * @return average time, in milliseconds, a quit took
+   */
+  public long getAverageTeardownMillis()
+  {
+    long count = teardownCount.get();
+    return count == 0 ? 0 : totalTeardownMillis.get() / count;
+  }
+
+  /**
+   * @return longest time, in milliseconds, a quit took
+   */
+  public long getMaxTeardownMillis()
+  {
+    return maxTeardownMillis.get();
+  }
+
+  /**
+   * @return number of quits that ran past the deadline
+   */
+  public long getHungQuitCount()
+  {
+    return hungQuitCount.get();
+  }
+
+  /**
+   * @return number of quits that threw an exception
+   */
+  public long getFailedQuitCount()
+  {
+    return failedQuitCount.get();
+  }
+
+  /**
+   * @return number of quits queued or running
+   */
+  public int getPendingCount()
+  {
+    return pendingCount.get();
+  }
+
+  private void record(long millis)
+  {
+    teardownCount.incrementAndGet();
+    totalTeardownMillis.addAndGet(millis);
+
+    long max;
+    while ((max = maxTeardownMillis.get()) < millis && !maxTeardownMillis.compareAndSet(max, millis)) {
+      // retry
+    }
+  }
+
+  /**
+   * Starts the deadline of a quit that is starting on the calling thread.
+   *
+   * @return the watch, or null if there is no deadline
+   */
+  private QuitWatch watch(WebDriver driver)
+  {
+    if (deadlineMillis <= 0) {
+      return null;
+    }
+
+    QuitWatch watch = new QuitWatch(driver, Thread.currentThread());
+    try {
+      watch.timer = watchdog.schedule(watch, deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+    catch (RejectedExecutionException e) {
+      // drained, the quit runs without a deadline
+      return null;
+    }
+    return watch;
+  }
+
+  /**
+   * Best effort at stopping the process behind a local driver. Selenium does
+   * not expose the process, so it is dug out of the command executor. Drivers
+   * talking to a remote or shared server are left alone.
+   *
+   * @param driver driver whose quit is hung
+   */
+  protected void forceStop(WebDriver driver)
+  {
+    if (!(driver instanceof RemoteWebDriver)) {
+      return;
+    }
+
+    try {
+      Method getExecutor = RemoteWebDriver.class.getDeclaredMethod("getCommandExecutor");
+      getExecutor.setAccessible(true);
+      Object executor = getExecutor.invoke(driver);
+
+      if (executor instanceof DriverRegistry.TrackingCommandExecutor) {
+        executor = ((DriverRegistry.TrackingCommandExecutor) executor).getDelegate();
+      }
+
+      if (executor instanceof DriverCommandExecutor) {
+        ((DriverService) readField(executor, DriverService.class)).stop();
+        return;
+      }
+
+      Object binary = readField(executor, FirefoxBinary.class);
+      if (binary != null) {
+        ((FirefoxBinary) binary).quit();
+        return;
+      }
+
+      LOG.info("No local driver process found for {}", driver.getClass());
+    }
+    catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.warn("Unable to force-stop driver {}", driver.getClass(), e);
+    }
+  }
+
+  /**
+   * @return value of the first field of the object's class hierarchy that is
+   *         of the given type, or null if there is none
+   */
+  private static Object readField(Object obj, Class<?> type)
+      throws IllegalAccessException
+  {
+    for (Class<?> clazz = obj.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+      for (Field field : clazz.getDeclaredFields()) {
+        if (type.isAssignableFrom(field.getType())) {
+          field.setAccessible(true);
+          return field.get(obj);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Force-stops a quit that is still running at the deadline.
+   */
+  private class QuitWatch
+      implements Runnable
+  {
+    private final WebDriver driver;
+
+    private final Thread worker;
+
+    // set by whichever of the quit and the watchdog is done first
+    private final AtomicBoolean over = new AtomicBoolean();
+
+    private volatile Future<?> timer;
+
+    QuitWatch(WebDriver driver, Thread worker)
+    {
+      this.driver = driver;
+      this.worker = worker;
+    }
+
+    @Override
+    public void run()
+    {
+      if (over.compareAndSet(false, true)) {
+        hungQuitCount.incrementAndGet();
+        LOG.warn("Driver quit did not finish within {}ms, force-stopping it", deadlineMillis);
+        worker.interrupt();
+        forceStop(driver);
+      }
+    }
+
+    void finish()
+    {
+      if (over.compareAndSet(false, true)) {
+        timer.cancel(false);
+      }
+      else {
+        // interrupted by the watchdog, don't leave the flag on the thread
+        Thread.interrupted();
+      }
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openqa.selenium.WebDriver;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Counts the documents a driver has been told to show: HtmlView moves the
+ * count on where it starts a navigation or switches windows, e.g. in
+ * clickAndWait, and Site when it opens a url. State kept for the current
+ * document, such as a created panel, is stale once the count has moved on,
+ * which is known without asking the browser.
+ * <p>
+ * A wait for the page alone does not move the count, as it is often called
+ * on the same document. Navigations made around the framework, e.g. a plain
+ * click on a link, do not move it either.
+ */
+public final class DocumentGeneration
+{
+
+  private static final ConcurrentMap<WebDriver, AtomicInteger> GENERATIONS = new MapMaker().weakKeys().makeMap();
+
+  private DocumentGeneration()
+  {
+  }
+
+  /**
+   * @param driver
+   *          a driver
+   * @return the generation of the document the driver shows
+   */
+  public static int of(WebDriver driver)
+  {
+    AtomicInteger generation = GENERATIONS.get(driver);
+    return generation == null ? 0 : generation.get();
+  }
+
+  /**
+   * Records that the driver shows, or is about to show, another document.
+   *
+   * @param driver
+   *          a driver
+   */
+  public static void next(WebDriver driver)
+  {
+    AtomicInteger generation = GENERATIONS.get(driver);
+    if (generation == null) {
+      AtomicInteger created = new AtomicInteger();
+      generation = GENERATIONS.putIfAbsent(driver, created);
+      if (generation == null) {
+        generation = created;
+      }
+    }
+    generation.incrementAndGet();
+  }
+}
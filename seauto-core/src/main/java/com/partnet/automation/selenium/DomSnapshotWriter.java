@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Saves the DOM of the page a driver is on as a single, self-contained html
+ * file: stylesheets and images are inlined, and scripts are removed so the
+ * page stays as it was when it was saved. Used in place of a screenshot for
+ * drivers that cannot render, such as HtmlUnit, without launching a second
+ * browser.
+ * <p>
+ * Resources are fetched with the driver's cookies when they are on the same
+ * host as the page. Resources that cannot be fetched, or are larger than
+ * {@value #MAX_INLINE_BYTES} bytes, are linked by their absolute url instead.
+ */
+public class DomSnapshotWriter
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(DomSnapshotWriter.class);
+
+  public static final int MAX_INLINE_BYTES = 2 * 1024 * 1024;
+
+  private static final Pattern SCRIPT = Pattern.compile("<script\\b[^>]*>.*?</script\\s*>|<script\\b[^>]*/>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  private static final Pattern STYLESHEET = Pattern.compile("<link\\b[^>]*\\brel\\s*=\\s*[\"']?stylesheet[\"']?[^>]*>", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern HREF = Pattern.compile("\\bhref\\s*=\\s*([\"'])(.*?)\\1", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern IMG_SRC = Pattern.compile("(<img\\b[^>]*?\\bsrc\\s*=\\s*)([\"'])(.*?)\\2", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern CSS_URL = Pattern.compile("url\\(\\s*([\"']?)([^\"')]+)\\1\\s*\\)", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Writes the DOM of the driver's current page to the file.
+   *
+   * @param driver
+   *          driver whose page is saved
+   * @param file
+   *          html file to write
+   * @throws IOException
+   *           if the file could not be written
+   */
+  public void write(WebDriver driver, File file)
+      throws IOException
+  {
+    URL page = new URL(driver.getCurrentUrl());
+    String html = snapshot(driver.getPageSource(), page, getCookieHeader(driver));
+
+    FileUtils.writeStringToFile(file, html, StandardCharsets.UTF_8.name());
+    LOG.debug("DOM snapshot of {} saved to {}", page, file);
+  }
+
+  /**
+   * @param html
+   *          source of the page
+   * @param page
+   *          url of the page, relative resource urls are resolved against it
+   * @param cookieHeader
+   *          value of the Cookie header sent when fetching resources from the
+   *          page's host, may be null
+   * @return self-contained html
+   */
+  protected String snapshot(String html, URL page, String cookieHeader)
+  {
+    html = SCRIPT.matcher(html).replaceAll("");
+
+    StringBuffer sb = new StringBuffer(html.length());
+
+    Matcher link = STYLESHEET.matcher(html);
+    while (link.find()) {
+      Matcher href = HREF.matcher(link.group());
+      String replacement = link.group();
+
+      if (href.find()) {
+        URL css = resolve(page, href.group(2));
+        String content = css == null ? null : fetchText(css, page, cookieHeader);
+
+        if (content != null) {
+          replacement = "<style type=\"text/css\">" + absoluteCssUrls(content, css) + "</style>";
+        }
+        else if (css != null) {
+          replacement = link.group().substring(0, href.start(2)) + css + link.group().substring(href.end(2));
+        }
+      }
+      link.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+    }
+    link.appendTail(sb);
+    html = sb.toString();
+
+    sb = new StringBuffer(html.length());
+    Matcher img = IMG_SRC.matcher(html);
+    while (img.find()) {
+      String src = img.group(3);
+
+      if (!src.startsWith("data:")) {
+        URL url = resolve(page, src);
+        String dataUri = url == null ? null : fetchDataUri(url, page, cookieHeader);
+        if (dataUri != null) {
+          src = dataUri;
+        }
+        else if (url != null) {
+          src = url.toString();
+        }
+      }
+      img.appendReplacement(sb, Matcher.quoteReplacement(img.group(1) + img.group(2) + src + img.group(2)));
+    }
+    img.appendTail(sb);
+
+    return sb.toString();
+  }
+
+  private String absoluteCssUrls(String css, URL stylesheet)
+  {
+    StringBuffer sb = new StringBuffer(css.length());
+    Matcher url = CSS_URL.matcher(css);
+
+    while (url.find()) {
+      URL resolved = url.group(2).startsWith("data:") ? null : resolve(stylesheet, url.group(2));
+      String replacement = resolved == null ? url.group() : "url(\"" + resolved + "\")";
+      url.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+    }
+    url.appendTail(sb);
+
+    return sb.toString();
+  }
+
+  private String fetchText(URL url, URL page, String cookieHeader)
+  {
+    URLConnection connection = open(url, page, cookieHeader);
+    byte[] content = connection == null ? null : read(connection);
+    return content == null ? null : new String(content, StandardCharsets.UTF_8);
+  }
+
+  private String fetchDataUri(URL url, URL page, String cookieHeader)
+  {
+    URLConnection connection = open(url, page, cookieHeader);
+    byte[] content = connection == null ? null : read(connection);
+
+    if (content == null) {
+      return null;
+    }
+
+    String type = connection.getContentType();
+    if (type == null) {
+      type = URLConnection.guessContentTypeFromName(url.getPath());
+    }
+    return "data:" + (type == null ? "application/octet-stream" : type) + ";base64," + BaseEncoding.base64().encode(content);
+  }
+
+  private URLConnection open(URL url, URL page, String cookieHeader)
+  {
+    try {
+      URLConnection connection = url.openConnection();
+      connection.setConnectTimeout(5000);
+      connection.setReadTimeout(10000);
+
+      // only hand the session's cookies to the site under test
+      if (cookieHeader != null && url.getHost().equalsIgnoreCase(page.getHost())) {
+        connection.setRequestProperty("Cookie", cookieHeader);
+      }
+      return connection;
+    }
+    catch (IOException e) {
+      LOG.debug("Unable to open {}", url, e);
+      return null;
+    }
+  }
+
+  private byte[] read(URLConnection connection)
+  {
+    if (connection.getContentLengthLong() > MAX_INLINE_BYTES) {
+      LOG.debug("{} is too large to inline", connection.getURL());
+      return null;
+    }
+
+    InputStream in = null;
+    try {
+      in = connection.getInputStream();
+      byte[] content = IOUtils.toByteArray(in);
+      return content.length > MAX_INLINE_BYTES ? null : content;
+    }
+    catch (IOException e) {
+      LOG.debug("Unable to fetch {}", connection.getURL(), e);
+      return null;
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  private static URL resolve(URL base, String spec)
+  {
+    try {
+      return new URL(base, spec.trim().replace("&amp;", "&"));
+    }
+    catch (MalformedURLException e) {
+      LOG.debug("Unable to resolve {} against {}", spec, base);
+      return null;
+    }
+  }
+
+  private static String getCookieHeader(WebDriver driver)
+  {
+    StringBuilder sb = new StringBuilder();
+    for (Cookie cookie : driver.manage().getCookies()) {
+      if (sb.length() > 0) {
+        sb.append("; ");
+      }
+      sb.append(cookie.getName()).append('=').append(cookie.getValue());
+    }
+    return sb.length() == 0 ? null : sb.toString();
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import com.partnet.automation.Browser;
+
+/**
+ * Optional interface of a {@link DriverProvider} that can start a driver in
+ * the background before it is launched. Test runners check for it with
+ * <code>instanceof</code>, so providers that do not implement it keep working
+ * without look-ahead.
+ * 
+ * @see AbstractConfigurableDriverProvider#prelaunch(Browser)
+ */
+public interface DriverPrelauncher
+{
+
+  /**
+   * Starts the specified web driver in the background, so the next launch of
+   * the same browser on the calling thread can use it right away.
+   * @param browser what browser the next launch is expected to use
+   */
+  void prelaunch(Browser browser);
+
+}
@@ -0,0 +1,440 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.partnet.automation.Browser;
+
+/**
+ * Keeps track of every driver handed to a test thread, so sessions are not
+ * leaked when a thread dies or a test never calls {@link DriverProvider#end()}.
+ * <p>
+ * The {@link Browser} and capabilities of each driver are resolved once, when
+ * the driver is launched, and looked up by driver instance after that.
+ * <p>
+ * A reaper thread periodically stops drivers whose owning thread has died, and
+ * drivers that have not run a command for longer than the idle timeout. An
+ * idle driver is quit rather than released, as its owner still holds it and
+ * it must not be handed out again, e.g. by a pool. The
+ * commands of {@link RemoteWebDriver} based drivers are tracked; other drivers,
+ * such as HtmlUnit, are only reaped once their owner dies. A shutdown hook
+ * stops every driver that is still registered.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #IDLE_TIMEOUT_SECONDS} - seconds a driver may go without a
+ * command; 0 to never reap idle drivers (default 1800)</li>
+ * <li>{@value #REAP_INTERVAL_SECONDS} - seconds between reaper runs (default
+ * 30)</li>
+ * </ul>
+ */
+public class DriverRegistry
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(DriverRegistry.class);
+
+  public static final String IDLE_TIMEOUT_SECONDS = "test.config.driver.registry.idle.timeout";
+  public static final String REAP_INTERVAL_SECONDS = "test.config.driver.registry.reap.interval";
+
+  private static DriverRegistry instance;
+
+  private final long idleTimeoutMillis;
+
+  private final Map<WebDriver, Registration> registered = Collections.synchronizedMap(new IdentityHashMap<WebDriver, Registration>());
+
+  // weak, identity based keys
+  private final ConcurrentMap<WebDriver, Boolean> reaped = new MapMaker().weakKeys().makeMap();
+
+  private final ConcurrentMap<WebDriver, Browser> browsers = new MapMaker().weakKeys().makeMap();
+
+  private final ConcurrentMap<WebDriver, Capabilities> capabilities = new MapMaker().weakKeys().makeMap();
+
+  private final ScheduledExecutorService reaper;
+
+  private final AtomicLong registeredCount = new AtomicLong();
+  private final AtomicLong orphanReapedCount = new AtomicLong();
+  private final AtomicLong idleReapedCount = new AtomicLong();
+
+  /**
+   * @return the JVM wide instance, configured by the system properties
+   */
+  public static synchronized DriverRegistry getInstance()
+  {
+    if (instance == null) {
+      instance = new DriverRegistry(Integer.getInteger(IDLE_TIMEOUT_SECONDS, 1800), Integer.getInteger(REAP_INTERVAL_SECONDS, 30));
+
+      Runtime.getRuntime().addShutdownHook(new Thread("seauto-driver-registry-shutdown") {
+
+        @Override
+        public void run()
+        {
+          instance.shutdown();
+        }
+      });
+    }
+    return instance;
+  }
+
+  /**
+   * @param idleTimeoutSeconds
+   *          seconds a driver may go without a command before it is reaped; 0
+   *          or less to never reap idle drivers
+   * @param reapIntervalSeconds
+   *          seconds between reaper runs; 0 or less to only reap when
+   *          {@link #reap()} is called
+   */
+  public DriverRegistry(int idleTimeoutSeconds, int reapIntervalSeconds)
+  {
+    this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(idleTimeoutSeconds, 0));
+    this.reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("seauto-driver-reaper").build());
+
+    if (reapIntervalSeconds > 0) {
+      reaper.scheduleWithFixedDelay(new Runnable() {
+
+        @Override
+        public void run()
+        {
+          try {
+            reap();
+          }
+          catch (RuntimeException e) {
+            LOG.warn("Driver reaper failed", e);
+          }
+        }
+      }, reapIntervalSeconds, reapIntervalSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Registers a driver as owned by the calling thread, stopped the same way
+   * however it is reaped.
+   *
+   * @param driver
+   *          driver handed to the calling thread
+   * @param browser
+   *          browser the driver was launched for
+   * @param stopper
+   *          how to stop the driver if it is reaped
+   */
+  public void register(WebDriver driver, Browser browser, AsyncDriverTeardown.DriverStopper stopper)
+  {
+    register(driver, browser, stopper, stopper);
+  }
+
+  /**
+   * Registers a driver as owned by the calling thread.
+   *
+   * @param driver
+   *          driver handed to the calling thread
+   * @param browser
+   *          browser the driver was launched for
+   * @param releaser
+   *          how to stop the driver once its owner died, or at shutdown
+   * @param quitter
+   *          how to stop the driver while its owner is alive, when it is
+   *          reaped idle; it must never hand the driver out again
+   */
+  public void register(WebDriver driver, Browser browser, AsyncDriverTeardown.DriverStopper releaser, AsyncDriverTeardown.DriverStopper quitter)
+  {
+    browsers.put(driver, browser);
+    if (driver instanceof HasCapabilities) {
+      capabilities.put(driver, ((HasCapabilities) driver).getCapabilities());
+    }
+
+    reaped.remove(driver);
+    registered.put(driver, new Registration(driver, Thread.currentThread(), releaser, quitter, track(driver)));
+    registeredCount.incrementAndGet();
+  }
+
+  /**
+   * Removes a driver from the registry, once its owner is done with it.
+   *
+   * @param driver
+   *          driver to remove
+   * @return false if the driver was already stopped by the reaper, and must
+   *         not be stopped again
+   */
+  public boolean unregister(WebDriver driver)
+  {
+    registered.remove(driver);
+    return reaped.remove(driver) == null;
+  }
+
+  /**
+   * Looks up the browser of a driver. Drivers that were not launched through
+   * the registry are resolved with {@link Browser#getBrowser(WebDriver)} the
+   * first time.
+   *
+   * @param driver
+   *          driver to look up
+   * @return the browser of the driver
+   */
+  public Browser getBrowser(WebDriver driver)
+  {
+    Browser browser = browsers.get(driver);
+
+    if (browser == null) {
+      browser = Browser.getBrowser(driver);
+      browsers.put(driver, browser);
+    }
+    return browser;
+  }
+
+  /**
+   * @param driver
+   *          driver to look up
+   * @return the capabilities the driver was launched with, or null if the
+   *         driver does not expose them
+   */
+  public Capabilities getCapabilities(WebDriver driver)
+  {
+    Capabilities caps = capabilities.get(driver);
+
+    if (caps == null && driver instanceof HasCapabilities) {
+      caps = ((HasCapabilities) driver).getCapabilities();
+      capabilities.put(driver, caps);
+    }
+    return caps;
+  }
+
+  /**
+   * Stops the drivers whose owner has died or that have been idle for too
+   * long.
+   *
+   * @return number of drivers stopped
+   */
+  public int reap()
+  {
+    long now = System.currentTimeMillis();
+    List<Registration> toReap = new ArrayList<>();
+
+    synchronized (registered) {
+      for (Registration registration : registered.values()) {
+        if (!registration.owner.isAlive()) {
+          LOG.warn("Thread {} died without ending its driver, reaping it", registration.owner.getName());
+          orphanReapedCount.incrementAndGet();
+          toReap.add(registration);
+        }
+        else if (idleTimeoutMillis > 0 && registration.tracking != null && now - registration.getLastAccessMillis() > idleTimeoutMillis) {
+          LOG.warn("Driver of thread {} has been idle for {}s, reaping it", registration.owner.getName(), TimeUnit.MILLISECONDS.toSeconds(now - registration.getLastAccessMillis()));
+          idleReapedCount.incrementAndGet();
+          toReap.add(registration);
+        }
+      }
+
+      for (Registration registration : toReap) {
+        registered.remove(registration.driver);
+        reaped.put(registration.driver, Boolean.TRUE);
+      }
+    }
+
+    for (Registration registration : toReap) {
+      // the owner of an idle driver still holds it, don't let it be reused
+      stop(registration, registration.owner.isAlive() ? registration.quitter : registration.releaser);
+    }
+    return toReap.size();
+  }
+
+  /**
+   * Stops the reaper and every driver that is still registered.
+   */
+  public void shutdown()
+  {
+    reaper.shutdownNow();
+
+    List<Registration> remaining;
+    synchronized (registered) {
+      remaining = new ArrayList<>(registered.values());
+      registered.clear();
+    }
+
+    if (!remaining.isEmpty()) {
+      LOG.info("Stopping {} driver(s) still running at shutdown", remaining.size());
+    }
+    for (Registration registration : remaining) {
+      stop(registration, registration.releaser);
+    }
+
+    LOG.info("Driver registry: {} registered, {} reaped from dead threads, {} reaped idle", getRegisteredCount(), getOrphanReapedCount(), getIdleReapedCount());
+  }
+
+  /**
+   * @return number of drivers currently registered
+   */
+  public int getLiveCount()
+  {
+    return registered.size();
+  }
+
+  /**
+   * @return number of drivers ever registered
+   */
+  public long getRegisteredCount()
+  {
+    return registeredCount.get();
+  }
+
+  /**
+   * @return number of drivers reaped because their owner died
+   */
+  public long getOrphanReapedCount()
+  {
+    return orphanReapedCount.get();
+  }
+
+  /**
+   * @return number of drivers reaped because they were idle
+   */
+  public long getIdleReapedCount()
+  {
+    return idleReapedCount.get();
+  }
+
+  private void stop(Registration registration, AsyncDriverTeardown.DriverStopper stopper)
+  {
+    try {
+      stopper.stop(registration.driver);
+    }
+    catch (RuntimeException e) {
+      LOG.warn("Unable to stop driver of thread {}", registration.owner.getName(), e);
+    }
+  }
+
+  /**
+   * Wraps the command executor of a remote driver, so the time of its last
+   * command is known.
+   *
+   * @return the tracking executor, or null if the driver's commands cannot be
+   *         tracked
+   */
+  private static TrackingCommandExecutor track(WebDriver driver)
+  {
+    if (!(driver instanceof RemoteWebDriver)) {
+      return null;
+    }
+
+    RemoteWebDriver remoteDriver = (RemoteWebDriver) driver;
+    CommandExecutor executor = remoteDriver.getCommandExecutor();
+
+    if (executor instanceof TrackingCommandExecutor) {
+      // a pooled driver that was registered before
+      ((TrackingCommandExecutor) executor).touch();
+      return (TrackingCommandExecutor) executor;
+    }
+
+    try {
+      TrackingCommandExecutor tracking = new TrackingCommandExecutor(executor);
+      Method setExecutor = RemoteWebDriver.class.getDeclaredMethod("setCommandExecutor", CommandExecutor.class);
+      setExecutor.setAccessible(true);
+      setExecutor.invoke(remoteDriver, tracking);
+      return tracking;
+    }
+    catch (ReflectiveOperationException | RuntimeException e) {
+      LOG.debug("Unable to track the commands of {}", driver.getClass(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Passes commands on to the driver's own executor, noting when the last one
+   * was run.
+   */
+  static class TrackingCommandExecutor
+      implements CommandExecutor
+  {
+    private final CommandExecutor delegate;
+
+    private volatile long lastCommandMillis = System.currentTimeMillis();
+
+    TrackingCommandExecutor(CommandExecutor delegate)
+    {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Response execute(Command command)
+        throws IOException
+    {
+      touch();
+      return delegate.execute(command);
+    }
+
+    CommandExecutor getDelegate()
+    {
+      return delegate;
+    }
+
+    void touch()
+    {
+      lastCommandMillis = System.currentTimeMillis();
+    }
+  }
+
+  private static class Registration
+  {
+    private final WebDriver driver;
+
+    private final Thread owner;
+
+    private final AsyncDriverTeardown.DriverStopper releaser;
+
+    private final AsyncDriverTeardown.DriverStopper quitter;
+
+    private final TrackingCommandExecutor tracking;
+
+    private final long startMillis = System.currentTimeMillis();
+
+    Registration(WebDriver driver, Thread owner, AsyncDriverTeardown.DriverStopper releaser, AsyncDriverTeardown.DriverStopper quitter,
+        TrackingCommandExecutor tracking)
+    {
+      this.driver = driver;
+      this.owner = owner;
+      this.releaser = releaser;
+      this.quitter = quitter;
+      this.tracking = tracking;
+    }
+
+    long getLastAccessMillis()
+    {
+      return Math.max(startMillis, tracking.lastCommandMillis);
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Writes the html of a page to disk in the page's own charset. Root relative
+ * urls are rewritten against a base url while the html is written, so the
+ * saved page can be rendered when opened with a browser.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #GZIP} - gzip the html and add a .gz extension (default
+ * false)</li>
+ * <li>{@value #ASYNC} - write the html on a background thread (default
+ * false)</li>
+ * </ul>
+ */
+public class HtmlSnapshotWriter
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(HtmlSnapshotWriter.class);
+
+  public static final String GZIP = "test.config.driver.html.gzip";
+  public static final String ASYNC = "test.config.driver.html.async";
+
+  private static final Pattern ROOT_RELATIVE_URL = Pattern.compile("=(\\s)?\"/");
+
+  private static final String CHARSET_SCRIPT = "return document.characterSet || document.charset;";
+
+  private static HtmlSnapshotWriter instance;
+
+  private final boolean gzip;
+
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * @return the JVM wide instance, configured by the system properties
+   */
+  public static synchronized HtmlSnapshotWriter getInstance()
+  {
+    if (instance == null) {
+      instance = new HtmlSnapshotWriter(Boolean.getBoolean(GZIP), Boolean.getBoolean(ASYNC));
+
+      Runtime.getRuntime().addShutdownHook(new Thread("seauto-html-writer-shutdown") {
+
+        @Override
+        public void run()
+        {
+          instance.flush();
+        }
+      });
+    }
+    return instance;
+  }
+
+  /**
+   * @param gzip
+   *          true to gzip the html
+   * @param async
+   *          true to write the html on a background thread
+   */
+  public HtmlSnapshotWriter(boolean gzip, boolean async)
+  {
+    this.gzip = gzip;
+
+    if (async) {
+      this.executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(8),
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("seauto-html-writer-%d").build(), new RejectedExecutionHandler() {
+
+            @Override
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor executor)
+            {
+              // queue is full or flushed, write on the calling thread
+              task.run();
+            }
+          });
+      this.executor.allowCoreThreadTimeOut(true);
+    }
+    else {
+      this.executor = null;
+    }
+  }
+
+  /**
+   * Captures the html of the driver's current page and writes it to the path.
+   *
+   * @param driver
+   *          driver whose page is saved
+   * @param htmlPath
+   *          path and filename of where to save the html file to
+   * @param baseUrl
+   *          replace root relative urls with this base url. If it is null or
+   *          blank, urls are left as they are.
+   * @return the file the html is written to
+   */
+  public File write(WebDriver driver, String htmlPath, String baseUrl)
+  {
+    // the source has to be read on the test thread, while the page is still
+    // there
+    final String pageSource = driver.getPageSource();
+    final Charset charset = getCharset(driver);
+    final String replacement = StringUtils.isBlank(baseUrl) ? null : "=\"" + (baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+    final File file = new File(gzip ? htmlPath + ".gz" : htmlPath);
+
+    Runnable task = new Runnable() {
+
+      @Override
+      public void run()
+      {
+        try {
+          write(pageSource, replacement, charset, file);
+          LOG.debug("Html written to {} as {}", file, charset);
+        }
+        catch (IOException e) {
+          LOG.error("Error writing html to '{}'!", file, e);
+        }
+      }
+    };
+
+    if (executor == null) {
+      task.run();
+    }
+    else {
+      executor.execute(task);
+    }
+    return file;
+  }
+
+  /**
+   * Waits for queued html to be written.
+   */
+  public void flush()
+  {
+    if (executor == null) {
+      return;
+    }
+
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOG.warn("Html was not written before shutdown");
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Writes the page source in a single pass, copying the text between matches
+   * straight to the file rather than building a rewritten copy in memory.
+   *
+   * @param pageSource
+   *          html to write
+   * @param replacement
+   *          text to replace root relative url attributes with, or null to
+   *          leave them as they are
+   * @param charset
+   *          charset to write the html in
+   * @param file
+   *          file to write
+   * @throws IOException
+   *           if the file could not be written
+   */
+  protected void write(String pageSource, String replacement, Charset charset, File file)
+      throws IOException
+  {
+    OutputStream out = FileUtils.openOutputStream(file);
+    try {
+      if (gzip) {
+        out = new GZIPOutputStream(out);
+      }
+      Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset));
+
+      int last = 0;
+      if (replacement != null) {
+        Matcher matcher = ROOT_RELATIVE_URL.matcher(pageSource);
+        while (matcher.find()) {
+          writer.write(pageSource, last, matcher.start() - last);
+          writer.write(replacement);
+          last = matcher.end();
+        }
+      }
+      writer.write(pageSource, last, pageSource.length() - last);
+
+      // closing finishes the gzip stream, so errors should not be swallowed
+      writer.close();
+    }
+    finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  /**
+   * @param driver
+   *          driver whose page is saved
+   * @return charset of the page, or UTF-8 if the driver cannot tell
+   */
+  private static Charset getCharset(WebDriver driver)
+  {
+    if (!(driver instanceof JavascriptExecutor)) {
+      return StandardCharsets.UTF_8;
+    }
+
+    try {
+      Object charset = ((JavascriptExecutor) driver).executeScript(CHARSET_SCRIPT);
+      if (charset instanceof String && Charset.isSupported((String) charset)) {
+        return Charset.forName((String) charset);
+      }
+    }
+    catch (WebDriverException | UnsupportedOperationException | IllegalArgumentException e) {
+      LOG.debug("Unable to read the charset of the page", e);
+    }
+    return StandardCharsets.UTF_8;
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.phantomjs.PhantomJSDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.partnet.automation.Browser;
+
+/**
+ * Renders the page an HtmlUnit driver is on with PhantomJS, so screenshots can
+ * be taken of HtmlUnit tests.
+ * <p>
+ * The PhantomJS browsers are kept in a {@link WebDriverPool} and launched the
+ * first time a screenshot is taken. The HtmlUnit session's cookies are handed
+ * to PhantomJS in a single call before the page is loaded.
+ * <p>
+ * Note: the page is loaded again by PhantomJS, so changes made to the page by
+ * Javascript or the test are not captured.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #RENDERERS} - PhantomJS browsers to keep (default 1)</li>
+ * </ul>
+ */
+public class HtmlUnitScreenshotRenderer
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(HtmlUnitScreenshotRenderer.class);
+
+  public static final String RENDERERS = "test.config.driver.screenshots.htmlunit.renderers";
+
+  private static final String ADD_COOKIES_SCRIPT = "phantom.clearCookies();"
+      + "var cookies = arguments[0], failed = 0;"
+      + "for (var i = 0; i < cookies.length; i++) {"
+      + "  if (!phantom.addCookie(cookies[i])) { failed++; }"
+      + "}"
+      + "return failed;";
+
+  private static HtmlUnitScreenshotRenderer instance;
+
+  private final WebDriverPool pool;
+
+  /**
+   * Lazily creates the JVM wide renderer; the most recently passed factory
+   * launches any new PhantomJS browsers.
+   *
+   * @param factory
+   *          creates and destroys the PhantomJS browsers
+   * @return the JVM wide renderer
+   */
+  public static synchronized HtmlUnitScreenshotRenderer getInstance(WebDriverPool.DriverFactory factory)
+  {
+    if (instance == null) {
+      instance = new HtmlUnitScreenshotRenderer(new WebDriverPool(factory, Integer.getInteger(RENDERERS, 1), 0, 300));
+
+      Runtime.getRuntime().addShutdownHook(new Thread("seauto-htmlunit-renderer-shutdown") {
+
+        @Override
+        public void run()
+        {
+          instance.pool.shutdown();
+        }
+      });
+    }
+    else {
+      instance.pool.setFactory(factory);
+    }
+    return instance;
+  }
+
+  /**
+   * @param pool
+   *          pool the PhantomJS browsers are taken from
+   */
+  public HtmlUnitScreenshotRenderer(WebDriverPool pool)
+  {
+    this.pool = pool;
+  }
+
+  /**
+   * Takes a screenshot of the page the driver is on.
+   *
+   * @param driver
+   *          HtmlUnit driver
+   * @param baseUrl
+   *          used to set the cookies when PhantomJS is driven remotely, and as
+   *          the domain of cookies that do not have one
+   * @return the screenshot as a png
+   */
+  public byte[] render(WebDriver driver, String baseUrl)
+  {
+    String url = driver.getCurrentUrl();
+    Set<Cookie> cookies = driver.manage().getCookies();
+    LOG.debug("Render {} with {} cookie(s)", url, cookies.size());
+
+    WebDriver renderer = pool.acquire(Browser.PHANTOMJS);
+    try {
+      addCookies(renderer, cookies, baseUrl);
+      renderer.get(url);
+      return ((TakesScreenshot) renderer).getScreenshotAs(OutputType.BYTES);
+    }
+    finally {
+      pool.release(renderer);
+    }
+  }
+
+  private void addCookies(WebDriver renderer, Set<Cookie> cookies, String baseUrl)
+  {
+    if (!(renderer instanceof PhantomJSDriver)) {
+      // cookies can only be set for the page the browser is on
+      renderer.get(baseUrl);
+      for (Cookie cookie : cookies) {
+        renderer.manage().addCookie(cookie);
+      }
+      return;
+    }
+
+    String defaultDomain = getHost(baseUrl);
+    List<Map<String, Object>> phantomCookies = new ArrayList<>(cookies.size());
+
+    for (Cookie cookie : cookies) {
+      Map<String, Object> phantomCookie = new HashMap<>();
+      phantomCookie.put("name", cookie.getName());
+      phantomCookie.put("value", cookie.getValue());
+      phantomCookie.put("domain", cookie.getDomain() == null ? defaultDomain : cookie.getDomain());
+      phantomCookie.put("path", cookie.getPath() == null ? "/" : cookie.getPath());
+      phantomCookie.put("httponly", cookie.isHttpOnly());
+      phantomCookie.put("secure", cookie.isSecure());
+      if (cookie.getExpiry() != null) {
+        phantomCookie.put("expiry", cookie.getExpiry().getTime() / 1000);
+      }
+      phantomCookies.add(phantomCookie);
+    }
+
+    Object failed = ((PhantomJSDriver) renderer).executePhantomJS(ADD_COOKIES_SCRIPT, phantomCookies);
+    if (failed instanceof Number && ((Number) failed).intValue() > 0) {
+      LOG.warn("PhantomJS rejected {} of {} cookie(s)", failed, cookies.size());
+    }
+  }
+
+  private static String getHost(String url)
+  {
+    try {
+      return new URL(url).getHost();
+    }
+    catch (MalformedURLException e) {
+      throw new IllegalArgumentException(String.format("Invalid base url: %s", url), e);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import javax.enterprise.inject.Alternative;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.partnet.automation.Browser;
+
+/**
+ * {@link DriverProvider} that hands out warm browser sessions from a
+ * {@link WebDriverPool} instead of launching and quitting a browser for every
+ * test.
+ * <p>
+ * The pool is shared by every instance of this provider in the JVM and is
+ * configured with the following system properties:
+ * <ul>
+ * <li>{@value #POOL_SIZE} - sessions kept alive per browser (default 1)</li>
+ * <li>{@value #POOL_MAX_REUSE} - times a session is handed out before it is
+ * replaced, 0 for no limit (default 25)</li>
+ * <li>{@value #POOL_IDLE_TIMEOUT_SECONDS} - seconds an unused session is kept,
+ * 0 to keep it forever (default 300)</li>
+ * </ul>
+ * Android sessions are never pooled.
+ * <p>
+ * Override {@link #getWebDriver(Browser)} to pool custom drivers.
+ */
+@Alternative
+public class PooledDriverProvider
+    extends DefaultDriverProvider
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(PooledDriverProvider.class);
+
+  public static final String POOL_SIZE = "test.config.driver.pool.size";
+  public static final String POOL_MAX_REUSE = "test.config.driver.pool.max.reuse";
+  public static final String POOL_IDLE_TIMEOUT_SECONDS = "test.config.driver.pool.idle.timeout";
+
+  private static WebDriverPool pool;
+
+  private final WebDriverPool.DriverFactory factory = new WebDriverPool.DriverFactory() {
+
+    @Override
+    public WebDriver create(Browser browser)
+    {
+      return getWebDriver(browser);
+    }
+
+    @Override
+    public void destroy(WebDriver driver)
+    {
+      quitWebDriver(driver);
+    }
+  };
+
+  @Override
+  protected WebDriver acquireWebDriver(Browser browser)
+  {
+    if (browser.isAndroid()) {
+      return super.acquireWebDriver(browser);
+    }
+
+    return getPool(factory).acquire(browser);
+  }
+
+  @Override
+  protected void releaseWebDriver(WebDriver driver)
+  {
+    if (DriverRegistry.getInstance().getBrowser(driver).isAndroid()) {
+      super.releaseWebDriver(driver);
+      return;
+    }
+
+    getPool(factory).release(driver);
+  }
+
+  @Override
+  protected void discardWebDriver(WebDriver driver)
+  {
+    if (DriverRegistry.getInstance().getBrowser(driver).isAndroid()) {
+      super.discardWebDriver(driver);
+      return;
+    }
+
+    getPool(factory).discard(driver);
+  }
+
+  /**
+   * Lazily creates the JVM wide pool; the most recently created provider
+   * launches any new sessions.
+   */
+  private static synchronized WebDriverPool getPool(WebDriverPool.DriverFactory factory)
+  {
+    if (pool == null) {
+      int size = Integer.getInteger(POOL_SIZE, 1);
+      int maxReuse = Integer.getInteger(POOL_MAX_REUSE, 25);
+      int idleTimeout = Integer.getInteger(POOL_IDLE_TIMEOUT_SECONDS, 300);
+
+      LOG.info("Create driver pool: size {}, max reuse {}, idle timeout {}s", size, maxReuse, idleTimeout);
+      pool = new WebDriverPool(factory, size, maxReuse, idleTimeout);
+
+      Runtime.getRuntime().addShutdownHook(new Thread("seauto-driver-pool-shutdown") {
+
+        @Override
+        public void run()
+        {
+          pool.shutdown();
+        }
+      });
+    }
+    else {
+      pool.setFactory(factory);
+    }
+    return pool;
+  }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coordinates the creation of new remote sessions so a saturated Selenium Grid
+ * is not hammered by every test thread at once.
+ * <p>
+ * Requests for the same set of {@link DesiredCapabilities} take turns in the
+ * order they arrive, and at most a fixed number of them hold a turn at the
+ * same time; a request keeps its turn while it waits for a free slot and while
+ * its session is created. At most the same number of new session requests are
+ * sent to the grid at the same time, whatever their capabilities. Failed
+ * requests give up their turn, back off with jittered exponential backoff, and
+ * queue again. Optionally the hub's status endpoint is polled, and a request
+ * is only sent while the hub reports free slots.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #RETRY_ATTEMPTS} - attempts before giving up (default 10)</li>
+ * <li>{@value #RETRY_PAUSE_MILLIS} - backoff after the first failure (default
+ * 5000)</li>
+ * <li>{@value #RETRY_MAX_PAUSE_MILLIS} - longest backoff (default 60000)</li>
+ * <li>{@value #MAX_CONCURRENT_REQUESTS} - new session requests in flight
+ * (default 4)</li>
+ * <li>{@value #HUB_STATUS_POLL} - poll the hub for free slots (default
+ * false)</li>
+ * <li>{@value #HUB_STATUS_PATH} - path of the hub status endpoint (default
+ * {@value #DEFAULT_HUB_STATUS_PATH})</li>
+ * <li>{@value #HUB_STATUS_INTERVAL_MILLIS} - time between polls (default
+ * 2000)</li>
+ * <li>{@value #HUB_STATUS_TIMEOUT_SECONDS} - how long to wait for a free slot
+ * before trying anyway (default 600)</li>
+ * </ul>
+ */
+public class RemoteSessionScheduler
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(RemoteSessionScheduler.class);
+
+  public static final String RETRY_ATTEMPTS = "remote.webdriver.retry.attempts";
+  public static final String RETRY_PAUSE_MILLIS = "remote.webdriver.retry.pause.millis";
+  public static final String RETRY_MAX_PAUSE_MILLIS = "remote.webdriver.retry.max.pause.millis";
+  public static final String MAX_CONCURRENT_REQUESTS = "remote.webdriver.max.concurrent.requests";
+  public static final String HUB_STATUS_POLL = "remote.webdriver.hub.status.poll";
+  public static final String HUB_STATUS_PATH = "remote.webdriver.hub.status.path";
+  public static final String HUB_STATUS_INTERVAL_MILLIS = "remote.webdriver.hub.status.interval.millis";
+  public static final String HUB_STATUS_TIMEOUT_SECONDS = "remote.webdriver.hub.status.timeout";
+
+  public static final String DEFAULT_HUB_STATUS_PATH = "/grid/api/hub";
+
+  private static RemoteSessionScheduler instance;
+
+  /**
+   * Creates the remote session; called once per attempt.
+   */
+  public interface SessionFactory
+  {
+    /**
+     * @param hubUrl url of the hub
+     * @param capabilities capabilities of the requested session
+     * @return the new session
+     * @throws WebDriverException if the session could not be created
+     */
+    WebDriver create(URL hubUrl, DesiredCapabilities capabilities);
+  }
+
+  private final int attempts;
+
+  private final long pauseMillis;
+
+  private final long maxPauseMillis;
+
+  private final int maxConcurrentRequests;
+
+  private final Semaphore requestPermits;
+
+  private final ConcurrentMap<Map<String, ?>, Semaphore> capabilityQueues = new ConcurrentHashMap<>();
+
+  private final String statusPath;
+
+  private final long statusIntervalMillis;
+
+  private final long statusTimeoutMillis;
+
+  private final Random random = new Random();
+
+  /**
+   * @return the JVM wide instance, configured by the system properties
+   */
+  public static synchronized RemoteSessionScheduler getInstance()
+  {
+    if (instance == null) {
+      String statusPath = Boolean.getBoolean(HUB_STATUS_POLL) ? System.getProperty(HUB_STATUS_PATH, DEFAULT_HUB_STATUS_PATH) : null;
+
+      instance = new RemoteSessionScheduler(Integer.getInteger(RETRY_ATTEMPTS, 10), Integer.getInteger(RETRY_PAUSE_MILLIS, 5000), Integer.getInteger(RETRY_MAX_PAUSE_MILLIS, 60000), Integer.getInteger(MAX_CONCURRENT_REQUESTS, 4), statusPath,
+          Integer.getInteger(HUB_STATUS_INTERVAL_MILLIS, 2000), Integer.getInteger(HUB_STATUS_TIMEOUT_SECONDS, 600));
+    }
+    return instance;
+  }
+
+  /**
+   * @param attempts
+   *          attempts at creating a session before giving up
+   * @param pauseMillis
+   *          backoff after the first failed attempt, doubled for every
+   *          following failure
+   * @param maxPauseMillis
+   *          upper bound of the backoff
+   * @param maxConcurrentRequests
+   *          new session requests that may be in flight at the same time
+   * @param statusPath
+   *          path of the hub status endpoint, relative to the hub url; null to
+   *          not poll the hub
+   * @param statusIntervalMillis
+   *          time between polls of the hub status
+   * @param statusTimeoutSeconds
+   *          time to wait for a free slot before trying anyway
+   */
+  public RemoteSessionScheduler(int attempts, long pauseMillis, long maxPauseMillis, int maxConcurrentRequests, String statusPath, long statusIntervalMillis, long statusTimeoutSeconds)
+  {
+    if (maxConcurrentRequests < 1) {
+      throw new IllegalArgumentException(String.format("maxConcurrentRequests(%d) must be >= 1", maxConcurrentRequests));
+    }
+
+    this.attempts = Math.max(attempts, 1);
+    this.pauseMillis = pauseMillis;
+    this.maxPauseMillis = Math.max(maxPauseMillis, pauseMillis);
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.requestPermits = new Semaphore(maxConcurrentRequests, true);
+    this.statusPath = statusPath;
+    this.statusIntervalMillis = statusIntervalMillis;
+    this.statusTimeoutMillis = TimeUnit.SECONDS.toMillis(statusTimeoutSeconds);
+  }
+
+  /**
+   * Creates a new remote session, waiting for its turn and retrying as needed.
+   *
+   * @param hubUrl
+   *          url of the hub
+   * @param capabilities
+   *          capabilities of the requested session
+   * @param factory
+   *          creates the session
+   * @return the new session
+   * @throws WebDriverException
+   *           from the last attempt, if every attempt failed
+   */
+  public WebDriver newSession(URL hubUrl, DesiredCapabilities capabilities, SessionFactory factory)
+  {
+    Semaphore queue = getQueue(capabilities);
+
+    for (int attempt = 1;; attempt++) {
+      acquire(queue);
+      try {
+        waitForFreeSlot(hubUrl);
+
+        acquire(requestPermits);
+        try {
+          LOG.debug("Try {} {}", attempt, capabilities);
+          return factory.create(hubUrl, capabilities);
+        }
+        catch (WebDriverException e) {
+          LOG.error("Remote WebDriver was unable to start! " + e.getMessage(), e);
+
+          if (attempt >= attempts) {
+            throw e;
+          }
+        }
+        finally {
+          requestPermits.release();
+        }
+      }
+      finally {
+        queue.release();
+      }
+
+      // back off without the turn, so the requests queued behind this one go
+      // ahead
+      sleep(getBackoffMillis(attempt));
+    }
+  }
+
+  /**
+   * Exponential backoff with equal jitter: half of the delay is fixed, the
+   * other half is random, so retrying threads spread out.
+   *
+   * @param attempt number of the attempt that just failed, starting at 1
+   * @return milliseconds to wait before the next attempt
+   */
+  protected long getBackoffMillis(int attempt)
+  {
+    long delay = pauseMillis << Math.min(attempt - 1, 30);
+    if (delay <= 0 || delay > maxPauseMillis) {
+      delay = maxPauseMillis;
+    }
+
+    long half = delay / 2;
+    synchronized (random) {
+      return half + (long) (random.nextDouble() * (delay - half));
+    }
+  }
+
+  /**
+   * Asks the hub how many slots are free.
+   *
+   * @param hubUrl url of the hub
+   * @return number of free slots, or -1 if the hub did not tell
+   */
+  protected int getFreeSlots(URL hubUrl)
+  {
+    InputStream in = null;
+    try {
+      HttpURLConnection connection = (HttpURLConnection) new URL(hubUrl, statusPath).openConnection();
+      connection.setConnectTimeout(5000);
+      connection.setReadTimeout(5000);
+      in = connection.getInputStream();
+
+      JSONObject status = new JSONObject(IOUtils.toString(in, "UTF-8"));
+      return status.getJSONObject("slotCounts").getInt("free");
+    }
+    catch (IOException | JSONException e) {
+      LOG.debug("Unable to read hub status", e);
+      return -1;
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  private void waitForFreeSlot(URL hubUrl)
+  {
+    if (statusPath == null) {
+      return;
+    }
+
+    long deadline = System.currentTimeMillis() + statusTimeoutMillis;
+    int free;
+
+    while ((free = getFreeSlots(hubUrl)) == 0) {
+      if (System.currentTimeMillis() >= deadline) {
+        LOG.warn("Hub has not reported a free slot in {}s, request a session anyway", TimeUnit.MILLISECONDS.toSeconds(statusTimeoutMillis));
+        return;
+      }
+      LOG.debug("No free slots on the hub, check again in {}ms", statusIntervalMillis);
+      sleep(statusIntervalMillis);
+    }
+
+    LOG.debug("Hub reports {} free slot(s)", free);
+  }
+
+  private Semaphore getQueue(DesiredCapabilities capabilities)
+  {
+    Map<String, ?> key = capabilities.asMap();
+    Semaphore queue = capabilityQueues.get(key);
+
+    if (queue == null) {
+      // fair, so the requests of a capability set get their turns in order
+      capabilityQueues.putIfAbsent(key, new Semaphore(maxConcurrentRequests, true));
+      queue = capabilityQueues.get(key);
+    }
+    return queue;
+  }
+
+  private static void acquire(Semaphore semaphore)
+  {
+    try {
+      semaphore.acquire();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new WebDriverException("Interrupted waiting to request a remote session", e);
+    }
+  }
+
+  /**
+   * Simple Thread sleep method that catches InterruptException.
+   * @param millis time (in milliseconds) to sleep
+   */
+  private static void sleep(long millis)
+  {
+    try {
+      Thread.sleep(millis);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new WebDriverException("Interrupted waiting to request a remote session", e);
+    }
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Writes screenshots to disk. Screenshots are handed over as png bytes, and
+ * are optionally downsized and re-encoded before they are written.
+ * <p>
+ * In asynchronous mode the screenshots are written by background threads and
+ * the test thread returns right away. When the queue is full the test thread
+ * writes the screenshot itself, so a slow disk slows the tests down rather
+ * than filling up the heap. A shutdown hook writes any queued screenshots
+ * before the JVM exits.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #ASYNC} - write screenshots in the background (default
+ * false)</li>
+ * <li>{@value #POLICY} - <code>always</code>, or <code>failure</code> to only
+ * take screenshots of failed tests (default always)</li>
+ * <li>{@value #QUEUE_SIZE} - screenshots waiting to be written (default 8)</li>
+ * <li>{@value #THREADS} - writer threads (default 1)</li>
+ * <li>{@value #SCALE} - factor the screenshots are resized by, e.g. 0.5
+ * (default 1)</li>
+ * <li>{@value #FORMAT} - <code>png</code>, or <code>jpg</code> for smaller files
+ * (default png)</li>
+ * </ul>
+ */
+public class ScreenshotWriter
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScreenshotWriter.class);
+
+  public static final String ASYNC = "test.config.driver.screenshots.async";
+  public static final String POLICY = "test.config.driver.screenshots.policy";
+  public static final String QUEUE_SIZE = "test.config.driver.screenshots.queue";
+  public static final String THREADS = "test.config.driver.screenshots.threads";
+  public static final String SCALE = "test.config.driver.screenshots.scale";
+  public static final String FORMAT = "test.config.driver.screenshots.format";
+
+  public static final String POLICY_FAILURE = "failure";
+
+  private static final String PNG = "png";
+
+  private static ScreenshotWriter instance;
+
+  private final ThreadPoolExecutor executor;
+
+  private final double scale;
+
+  private final String format;
+
+  private final AtomicLong writtenCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+
+  /**
+   * @return the JVM wide instance, configured by the system properties
+   */
+  public static synchronized ScreenshotWriter getInstance()
+  {
+    if (instance == null) {
+      int threads = Boolean.getBoolean(ASYNC) ? Integer.getInteger(THREADS, 1) : 0;
+      double scale = Double.parseDouble(System.getProperty(SCALE, "1"));
+
+      instance = new ScreenshotWriter(threads, Integer.getInteger(QUEUE_SIZE, 8), scale, System.getProperty(FORMAT, PNG));
+
+      Runtime.getRuntime().addShutdownHook(new Thread("seauto-screenshot-writer-shutdown") {
+
+        @Override
+        public void run()
+        {
+          instance.flush();
+        }
+      });
+    }
+    return instance;
+  }
+
+  /**
+   * Whether a screenshot should be taken of a test, according to
+   * {@value #POLICY}.
+   *
+   * @param failed true if the test failed
+   * @return true if a screenshot should be taken
+   */
+  public static boolean isScreenshotWanted(boolean failed)
+  {
+    return failed || !POLICY_FAILURE.equalsIgnoreCase(System.getProperty(POLICY));
+  }
+
+  /**
+   * @param threads
+   *          writer threads; 0 to write on the calling thread
+   * @param queueSize
+   *          screenshots that may wait for a writer thread
+   * @param scale
+   *          factor the screenshots are resized by; 1 to keep their size
+   * @param format
+   *          image format written, as known to {@link ImageIO}
+   */
+  public ScreenshotWriter(int threads, int queueSize, double scale, String format)
+  {
+    if (scale <= 0 || scale > 1) {
+      throw new IllegalArgumentException(String.format("scale(%s) must be > 0 and <= 1", scale));
+    }
+
+    this.scale = scale;
+    this.format = format.toLowerCase();
+
+    if (threads > 0) {
+      this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(Math.max(queueSize, 1)),
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("seauto-screenshot-writer-%d").build(), new RejectedExecutionHandler() {
+
+            @Override
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor executor)
+            {
+              // queue is full or flushed, write on the calling thread
+              task.run();
+            }
+          });
+      this.executor.allowCoreThreadTimeOut(true);
+    }
+    else {
+      this.executor = null;
+    }
+  }
+
+  /**
+   * @return extension of the files written, without the dot, e.g.
+   *         <code>jpg</code>; links to screenshots should be built with it
+   */
+  public String getExtension()
+  {
+    return format;
+  }
+
+  /**
+   * Writes the screenshot to the path. When the format is not png, a path
+   * that does not end with {@link #getExtension()} has its extension changed
+   * to match it.
+   *
+   * @param png
+   *          screenshot, as returned by the driver
+   * @param path
+   *          where to write the screenshot
+   * @return the file the screenshot is written to
+   */
+  public File write(final byte[] png, String path)
+  {
+    final File file = PNG.equals(format) || FilenameUtils.isExtension(path, format) ? new File(path) : new File(FilenameUtils.removeExtension(path) + "." + format);
+
+    pendingCount.incrementAndGet();
+    Runnable task = new Runnable() {
+
+      @Override
+      public void run()
+      {
+        try {
+          FileUtils.writeByteArrayToFile(file, encode(png));
+          writtenCount.incrementAndGet();
+          LOG.debug("Screenshot written to {}", file);
+        }
+        catch (IOException | RuntimeException e) {
+          failedCount.incrementAndGet();
+          LOG.error("Can't save screenshot to '{}'!", file, e);
+        }
+        finally {
+          pendingCount.decrementAndGet();
+        }
+      }
+    };
+
+    if (executor == null) {
+      task.run();
+    }
+    else {
+      executor.execute(task);
+    }
+    return file;
+  }
+
+  /**
+   * Waits for the queued screenshots to be written. Screenshots written after
+   * the flush are written on the calling thread.
+   */
+  public void flush()
+  {
+    if (executor == null) {
+      return;
+    }
+
+    LOG.debug("Waiting for {} screenshot(s) to be written", pendingCount.get());
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOG.warn("{} screenshot(s) were not written before shutdown", pendingCount.get());
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return number of screenshots written
+   */
+  public long getWrittenCount()
+  {
+    return writtenCount.get();
+  }
+
+  /**
+   * @return number of screenshots that could not be written
+   */
+  public long getFailedCount()
+  {
+    return failedCount.get();
+  }
+
+  /**
+   * @return number of screenshots queued or being written
+   */
+  public int getPendingCount()
+  {
+    return pendingCount.get();
+  }
+
+  /**
+   * Resizes and re-encodes the screenshot, if configured to.
+   *
+   * @param png screenshot, as returned by the driver
+   * @return the image to write
+   * @throws IOException if the screenshot could not be decoded or encoded
+   */
+  protected byte[] encode(byte[] png)
+      throws IOException
+  {
+    if (scale == 1 && PNG.equals(format)) {
+      return png;
+    }
+
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+    if (image == null) {
+      throw new IOException("Screenshot is not an image");
+    }
+
+    int width = Math.max((int) Math.round(image.getWidth() * scale), 1);
+    int height = Math.max((int) Math.round(image.getHeight() * scale), 1);
+
+    // jpg has no alpha channel
+    BufferedImage encoded = new BufferedImage(width, height, PNG.equals(format) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = encoded.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.drawImage(image, 0, 0, width, height, null);
+    }
+    finally {
+      graphics.dispose();
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    if (!ImageIO.write(encoded, format, out)) {
+      throw new IOException(String.format("No writer for image format '%s'", format));
+    }
+    return out.toByteArray();
+  }
+}
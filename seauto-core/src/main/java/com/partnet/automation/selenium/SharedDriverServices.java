@@ -0,0 +1,260 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Augmenter;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+import org.openqa.selenium.remote.service.DriverService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps local driver servers, such as chromedriver and PhantomJS, running
+ * between sessions, so every test does not have to fork a new server process
+ * and probe for a free port.
+ * <p>
+ * Sessions are opened against the server's url with a plain
+ * {@link RemoteWebDriver}; quitting the session leaves the server running. A
+ * server that has died is restarted the next time a session is requested, and
+ * a session that cannot be created because the server is down or unreachable
+ * is retried once on a fresh server; any other failure to create a session is
+ * rethrown and the server is left running for the sessions other threads hold
+ * on it. All servers are stopped when the JVM exits.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #SHARED} - share driver servers between sessions (default
+ * false)</li>
+ * <li>{@value #SCOPE} - <code>jvm</code> for one server per JVM, or
+ * <code>thread</code> for one server per test thread (default jvm)</li>
+ * </ul>
+ */
+public class SharedDriverServices
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(SharedDriverServices.class);
+
+  public static final String SHARED = "test.config.driver.service.shared";
+  public static final String SCOPE = "test.config.driver.service.scope";
+
+  private static SharedDriverServices instance;
+
+  /**
+   * Builds a new, not yet started, driver server.
+   */
+  public interface ServiceBuilder
+  {
+    /**
+     * @return the new driver server
+     */
+    DriverService build();
+  }
+
+  private final boolean perThread;
+
+  private final ConcurrentMap<String, ManagedService> services = new ConcurrentHashMap<>();
+
+  private final AtomicInteger startCount = new AtomicInteger();
+
+  /**
+   * @return the JVM wide instance, configured by the system properties
+   */
+  public static synchronized SharedDriverServices getInstance()
+  {
+    if (instance == null) {
+      instance = new SharedDriverServices("thread".equalsIgnoreCase(System.getProperty(SCOPE, "jvm")));
+
+      Runtime.getRuntime().addShutdownHook(new Thread("seauto-driver-service-shutdown") {
+
+        @Override
+        public void run()
+        {
+          instance.stopAll();
+        }
+      });
+    }
+    return instance;
+  }
+
+  /**
+   * @param perThread
+   *          true to start one server per thread, false to share a server
+   *          between all threads
+   */
+  public SharedDriverServices(boolean perThread)
+  {
+    this.perThread = perThread;
+  }
+
+  /**
+   * Opens a new session on the shared server with the given name, starting the
+   * server if it is not running.
+   *
+   * @param name
+   *          identifies the server, e.g. the path to its executable
+   * @param builder
+   *          builds the server if it needs to be started
+   * @param capabilities
+   *          capabilities of the new session
+   * @return the new session
+   */
+  public WebDriver newSession(String name, ServiceBuilder builder, Capabilities capabilities)
+  {
+    ManagedService service = getService(name, builder);
+
+    WebDriver driver;
+    try {
+      driver = new RemoteWebDriver(service.getUrl(), capabilities);
+    }
+    catch (WebDriverException e) {
+      // other threads hold sessions on this server, only restart it when it
+      // is the server that failed rather than the session request
+      if (service.isRunning() && !isConnectionFailure(e)) {
+        throw e;
+      }
+      LOG.warn("Unable to reach driver service {}, restarting it", name, e);
+      service.stop();
+      driver = new RemoteWebDriver(service.getUrl(), capabilities);
+    }
+
+    // allow screenshots to be taken
+    return new Augmenter().augment(driver);
+  }
+
+  private static boolean isConnectionFailure(Throwable e)
+  {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof UnreachableBrowserException || cause instanceof ConnectException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Stops every server.
+   */
+  public void stopAll()
+  {
+    for (ManagedService service : services.values()) {
+      service.stop();
+    }
+    services.clear();
+  }
+
+  /**
+   * @return number of servers that are running
+   */
+  public int getRunningCount()
+  {
+    int running = 0;
+    for (ManagedService service : services.values()) {
+      if (service.isRunning()) {
+        running++;
+      }
+    }
+    return running;
+  }
+
+  /**
+   * @return number of times a server has been started
+   */
+  public int getStartCount()
+  {
+    return startCount.get();
+  }
+
+  private ManagedService getService(String name, ServiceBuilder builder)
+  {
+    String key = perThread ? name + "@" + Thread.currentThread().getId() : name;
+    ManagedService service = services.get(key);
+
+    if (service == null) {
+      services.putIfAbsent(key, new ManagedService(key, builder));
+      service = services.get(key);
+    }
+    return service;
+  }
+
+  /**
+   * A driver server that is started on first use and restarted once it stops
+   * running.
+   */
+  private class ManagedService
+  {
+    private final String name;
+
+    private final ServiceBuilder builder;
+
+    private DriverService service;
+
+    ManagedService(String name, ServiceBuilder builder)
+    {
+      this.name = name;
+      this.builder = builder;
+    }
+
+    synchronized URL getUrl()
+    {
+      if (service == null || !service.isRunning()) {
+        stop();
+
+        DriverService started = builder.build();
+        try {
+          started.start();
+        }
+        catch (IOException e) {
+          throw new WebDriverException(String.format("Unable to start driver service %s", name), e);
+        }
+        service = started;
+
+        startCount.incrementAndGet();
+        LOG.info("Started driver service {} at {}", name, service.getUrl());
+      }
+      return service.getUrl();
+    }
+
+    synchronized boolean isRunning()
+    {
+      return service != null && service.isRunning();
+    }
+
+    synchronized void stop()
+    {
+      if (service != null) {
+        try {
+          service.stop();
+        }
+        catch (RuntimeException e) {
+          LOG.warn("Unable to stop driver service {}", name, e);
+        }
+        service = null;
+      }
+    }
+  }
+}
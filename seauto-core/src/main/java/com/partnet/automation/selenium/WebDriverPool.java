@@ -0,0 +1,514 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.partnet.automation.Browser;
+
+/**
+ * Keeps a number of already launched {@link WebDriver} sessions per
+ * {@link Browser} so tests do not pay the browser start up cost every time.
+ * <p>
+ * A released session is soft-reset (extra windows closed, cookies and web
+ * storage cleared, navigated to <code>about:blank</code>) and put back into the
+ * pool instead of being quit. Sessions that fail the reset or the health check
+ * done when they are handed out, that have been used too many times, or that
+ * sat idle too long are quit; missing sessions are re-launched on a background
+ * thread.
+ * <p>
+ * Note: cookies can only be deleted for the domain the browser is currently on,
+ * so tests that hop between domains should not rely on a clean cookie jar.
+ *
+ * @see PooledDriverProvider
+ */
+public class WebDriverPool
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(WebDriverPool.class);
+
+  private static final String CLEAR_STORAGE_SCRIPT = "try { window.localStorage.clear(); } catch (e) {}" + "try { window.sessionStorage.clear(); } catch (e) {}";
+
+  private static final String BLANK_PAGE = "about:blank";
+
+  /**
+   * Creates new {@link WebDriver} instances for the pool.
+   */
+  public interface DriverFactory
+  {
+    /**
+     * @param browser browser to launch
+     * @return a newly launched {@link WebDriver}
+     */
+    WebDriver create(Browser browser);
+
+    /**
+     * Stops a driver that is no longer wanted by the pool.
+     *
+     * @param driver driver to stop
+     */
+    void destroy(WebDriver driver);
+  }
+
+  private final int size;
+
+  private final int maxReuse;
+
+  private final long idleTimeoutMillis;
+
+  private volatile DriverFactory factory;
+
+  private final ConcurrentMap<Browser, BlockingDeque<PooledSession>> idle = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Browser, AtomicInteger> live = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Browser, AtomicInteger> launching = new ConcurrentHashMap<>();
+
+  private final Map<WebDriver, PooledSession> leased = Collections.synchronizedMap(new IdentityHashMap<WebDriver, PooledSession>());
+
+  private final ExecutorService launcher;
+
+  private final ScheduledExecutorService evictor;
+
+  private volatile boolean shutdown = false;
+
+  /**
+   * @param factory
+   *          creates and destroys the pooled drivers
+   * @param size
+   *          number of sessions to keep alive per browser, at least 1
+   * @param maxReuse
+   *          number of times a session may be handed out before it is
+   *          replaced; 0 or less to reuse sessions indefinitely
+   * @param idleTimeoutSeconds
+   *          seconds a session may sit unused in the pool before it is quit; 0
+   *          or less to never evict idle sessions
+   */
+  public WebDriverPool(DriverFactory factory, int size, int maxReuse, int idleTimeoutSeconds)
+  {
+    if (size < 1) {
+      throw new IllegalArgumentException(String.format("pool size(%d) must be >= 1", size));
+    }
+
+    this.factory = Objects.requireNonNull(factory, "factory cannot be null");
+    this.size = size;
+    this.maxReuse = maxReuse;
+    this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(idleTimeoutSeconds, 0));
+
+    this.launcher = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("seauto-driver-pool-%d").build());
+    this.evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("seauto-driver-pool-evictor").build());
+
+    if (idleTimeoutMillis > 0) {
+      long period = Math.min(idleTimeoutMillis, TimeUnit.SECONDS.toMillis(30));
+      evictor.scheduleWithFixedDelay(new Runnable() {
+
+        @Override
+        public void run()
+        {
+          evictIdleSessions();
+        }
+      }, period, period, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Replaces the factory used for launching new sessions. Sessions already in
+   * the pool are kept.
+   *
+   * @param factory creates and destroys the pooled drivers
+   */
+  public void setFactory(DriverFactory factory)
+  {
+    this.factory = Objects.requireNonNull(factory, "factory cannot be null");
+  }
+
+  /**
+   * Hands out a healthy session for the given browser, launching one on the
+   * calling thread if none is available.
+   *
+   * @param browser browser to obtain
+   * @return {@link WebDriver} leased to the caller until
+   *         {@link #release(WebDriver)} is called
+   */
+  public WebDriver acquire(Browser browser)
+  {
+    Objects.requireNonNull(browser, "browser cannot be null");
+    checkNotShutdown();
+
+    BlockingDeque<PooledSession> sessions = idleSessions(browser);
+    PooledSession session = null;
+
+    while (session == null) {
+      session = sessions.pollFirst();
+
+      if (session == null) {
+        if (launching(browser).get() == 0) {
+          break;
+        }
+
+        // a session is already on its way, wait for it rather than launching
+        // yet another browser
+        try {
+          session = sessions.pollFirst(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+
+      if (session != null && !isHealthy(session)) {
+        LOG.info("Pooled {} session failed health check, replacing it", browser);
+        discard(session);
+        session = null;
+      }
+    }
+
+    if (session == null) {
+      LOG.debug("No pooled {} session available, launching one", browser);
+      session = new PooledSession(browser, factory.create(browser));
+      live(browser).incrementAndGet();
+    }
+
+    session.uses++;
+    leased.put(session.driver, session);
+
+    fill(browser);
+    return session.driver;
+  }
+
+  /**
+   * Gives a session back to the pool. Sessions that were not handed out by this
+   * pool are destroyed.
+   *
+   * @param driver driver obtained by {@link #acquire(Browser)}
+   */
+  public void release(WebDriver driver)
+  {
+    PooledSession session = leased.remove(driver);
+
+    if (session == null) {
+      LOG.debug("Driver was not handed out by the pool, destroy it");
+      destroy(driver);
+      return;
+    }
+
+    if (shutdown) {
+      discard(session);
+      return;
+    }
+
+    if (maxReuse > 0 && session.uses >= maxReuse) {
+      LOG.debug("Pooled {} session used {} times, replacing it", session.browser, session.uses);
+      discard(session);
+      fill(session.browser);
+      return;
+    }
+
+    if (live(session.browser).get() > size) {
+      // launched on demand because the pool was exhausted
+      discard(session);
+      return;
+    }
+
+    if (!reset(session.driver)) {
+      LOG.info("Pooled {} session could not be reset, replacing it", session.browser);
+      discard(session);
+      fill(session.browser);
+      return;
+    }
+
+    session.lastUsed = System.currentTimeMillis();
+    idleSessions(session.browser).offerFirst(session);
+  }
+
+  /**
+   * Quits a session handed out by the pool instead of taking it back, e.g.
+   * because its lease was revoked while a thread still holds it. A
+   * replacement is launched in the background. Sessions that were not handed
+   * out by this pool are destroyed too.
+   *
+   * @param driver driver obtained by {@link #acquire(Browser)}
+   */
+  public void discard(WebDriver driver)
+  {
+    PooledSession session = leased.remove(driver);
+
+    if (session == null) {
+      destroy(driver);
+      return;
+    }
+
+    discard(session);
+    fill(session.browser);
+  }
+
+  /**
+   * Quits every session known to the pool and stops its background threads.
+   */
+  public void shutdown()
+  {
+    shutdown = true;
+    evictor.shutdownNow();
+    launcher.shutdownNow();
+
+    for (BlockingDeque<PooledSession> sessions : idle.values()) {
+      PooledSession session;
+      while ((session = sessions.pollFirst()) != null) {
+        discard(session);
+      }
+    }
+
+    List<PooledSession> leasedSessions;
+    synchronized (leased) {
+      leasedSessions = new ArrayList<>(leased.values());
+      leased.clear();
+    }
+    for (PooledSession session : leasedSessions) {
+      discard(session);
+    }
+  }
+
+  /**
+   * @param browser browser of interest
+   * @return number of sessions of the browser waiting to be handed out
+   */
+  public int getIdleCount(Browser browser)
+  {
+    return idleSessions(browser).size();
+  }
+
+  /**
+   * @param browser browser of interest
+   * @return number of sessions of the browser that are alive, handed out or
+   *         not
+   */
+  public int getLiveCount(Browser browser)
+  {
+    return live(browser).get();
+  }
+
+  /**
+   * Brings the browser back to a neutral state so the next test can use it.
+   *
+   * @param driver driver to reset
+   * @return true if the reset succeeded
+   */
+  protected boolean reset(WebDriver driver)
+  {
+    try {
+      Set<String> handles = driver.getWindowHandles();
+      String primary = handles.iterator().next();
+
+      for (String handle : handles) {
+        if (!handle.equals(primary)) {
+          driver.switchTo().window(handle);
+          driver.close();
+        }
+      }
+      driver.switchTo().window(primary);
+
+      // cookies and storage are per domain, clear them before leaving the page
+      driver.manage().deleteAllCookies();
+      if (driver instanceof JavascriptExecutor) {
+        try {
+          ((JavascriptExecutor) driver).executeScript(CLEAR_STORAGE_SCRIPT);
+        }
+        catch (UnsupportedOperationException e) {
+          LOG.debug("Javascript disabled, web storage not cleared");
+        }
+      }
+
+      driver.get(BLANK_PAGE);
+      return true;
+    }
+    catch (WebDriverException e) {
+      LOG.warn("Unable to reset pooled driver", e);
+      return false;
+    }
+  }
+
+  private boolean isHealthy(PooledSession session)
+  {
+    try {
+      session.driver.getWindowHandle();
+      return true;
+    }
+    catch (RuntimeException e) {
+      // a dead driver is not necessarily reported with a WebDriverException
+      LOG.debug("Health check failed", e);
+      return false;
+    }
+  }
+
+  /**
+   * Launches sessions in the background until the browser has {@link #size}
+   * live sessions.
+   */
+  private void fill(final Browser browser)
+  {
+    while (!shutdown) {
+      final AtomicInteger liveCount = live(browser);
+      int current = liveCount.get();
+
+      if (current >= size) {
+        return;
+      }
+
+      if (!liveCount.compareAndSet(current, current + 1)) {
+        continue;
+      }
+
+      launching(browser).incrementAndGet();
+      launcher.execute(new Runnable() {
+
+        @Override
+        public void run()
+        {
+          try {
+            PooledSession session = new PooledSession(browser, factory.create(browser));
+            LOG.debug("Background launch of pooled {} session complete", browser);
+            idleSessions(browser).offerLast(session);
+
+            if (shutdown && idleSessions(browser).remove(session)) {
+              discard(session);
+            }
+          }
+          catch (RuntimeException e) {
+            LOG.warn("Background launch of pooled {} session failed", browser, e);
+            liveCount.decrementAndGet();
+          }
+          finally {
+            launching(browser).decrementAndGet();
+          }
+        }
+      });
+    }
+  }
+
+  private void evictIdleSessions()
+  {
+    long now = System.currentTimeMillis();
+
+    for (BlockingDeque<PooledSession> sessions : idle.values()) {
+      Iterator<PooledSession> it = sessions.iterator();
+      while (it.hasNext()) {
+        PooledSession session = it.next();
+        if (now - session.lastUsed > idleTimeoutMillis && sessions.remove(session)) {
+          LOG.debug("Evicting idle pooled {} session", session.browser);
+          discard(session);
+        }
+      }
+    }
+  }
+
+  private void discard(PooledSession session)
+  {
+    live(session.browser).decrementAndGet();
+    destroy(session.driver);
+  }
+
+  private void destroy(WebDriver driver)
+  {
+    try {
+      factory.destroy(driver);
+    }
+    catch (RuntimeException e) {
+      LOG.warn("Unable to stop driver", e);
+    }
+  }
+
+  private void checkNotShutdown()
+  {
+    if (shutdown) {
+      throw new IllegalStateException("WebDriverPool has been shut down");
+    }
+  }
+
+  private BlockingDeque<PooledSession> idleSessions(Browser browser)
+  {
+    BlockingDeque<PooledSession> sessions = idle.get(browser);
+    if (sessions == null) {
+      idle.putIfAbsent(browser, new LinkedBlockingDeque<PooledSession>());
+      sessions = idle.get(browser);
+    }
+    return sessions;
+  }
+
+  private AtomicInteger live(Browser browser)
+  {
+    return counter(live, browser);
+  }
+
+  private AtomicInteger launching(Browser browser)
+  {
+    return counter(launching, browser);
+  }
+
+  private static AtomicInteger counter(ConcurrentMap<Browser, AtomicInteger> counters, Browser browser)
+  {
+    AtomicInteger counter = counters.get(browser);
+    if (counter == null) {
+      counters.putIfAbsent(browser, new AtomicInteger());
+      counter = counters.get(browser);
+    }
+    return counter;
+  }
+
+  /**
+   * A driver along with its pool bookkeeping.
+   */
+  private static class PooledSession
+  {
+    private final Browser browser;
+
+    private final WebDriver driver;
+
+    private int uses = 0;
+
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    PooledSession(Browser browser, WebDriver driver)
+    {
+      this.browser = browser;
+      this.driver = driver;
+    }
+  }
+}
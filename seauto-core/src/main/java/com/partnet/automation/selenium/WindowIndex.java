@@ -0,0 +1,282 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Keeps track of the windows of a driver: the window each one was opened from,
+ * and the url and title it had when it was last switched to. Switching windows
+ * uses the index to try the right window first, instead of switching to every
+ * window in turn and probing its page.
+ * <p>
+ * A window is new until it is switched to through the index. The first time a
+ * driver is indexed only its current window is known not to be new.
+ */
+public class WindowIndex
+{
+
+  private static final ConcurrentMap<WebDriver, WindowIndex> INDEXES = new MapMaker().weakKeys().makeMap();
+
+  private final WebDriver driver;
+
+  // in the order the windows were first seen
+  private final Map<String, Window> windows = new LinkedHashMap<>();
+
+  // what a window was last found by -> its handle
+  private final Map<String, String> found = new HashMap<>();
+
+  private boolean indexed;
+
+  /**
+   * @param driver
+   *          a driver
+   * @return the index of the driver's windows
+   */
+  public static WindowIndex of(WebDriver driver)
+  {
+    WindowIndex index = INDEXES.get(driver);
+    if (index == null) {
+      WindowIndex created = new WindowIndex(driver);
+      index = INDEXES.putIfAbsent(driver, created);
+      if (index == null) {
+        index = created;
+      }
+    }
+    return index;
+  }
+
+  WindowIndex(WebDriver driver)
+  {
+    this.driver = driver;
+  }
+
+  /**
+   * Adds the windows opened since the last refresh, with the current window as
+   * their opener, and removes the windows that were closed.
+   *
+   * @return true if a window has not been switched to yet
+   */
+  public synchronized boolean refresh()
+  {
+    Set<String> handles = driver.getWindowHandles();
+    windows.keySet().retainAll(handles);
+    found.values().retainAll(handles);
+
+    String current = getCurrentHandle();
+    for (String handle : handles) {
+      if (!windows.containsKey(handle)) {
+        Window window = new Window(handle, handle.equals(current) ? null : current);
+        // windows opened before the driver was indexed can't be told apart,
+        // except for the one in use
+        window.visited = !indexed && handle.equals(current);
+        windows.put(handle, window);
+      }
+    }
+    indexed = true;
+
+    for (Window window : windows.values()) {
+      if (!window.visited) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param key
+   *          what the window is identified by, e.g. a locator and a title
+   * @param title
+   *          title the window is expected to have, or null
+   * @param newWindow
+   *          true to look for a window that was not switched to yet
+   * @return the handles of the indexed windows, in the order they should be
+   *         tried
+   */
+  public synchronized List<String> getCandidates(String key, String title, boolean newWindow)
+  {
+    List<String> candidates = new ArrayList<>();
+    if (newWindow) {
+      List<String> opened = new ArrayList<>();
+      for (Window window : windows.values()) {
+        if (!window.visited) {
+          opened.add(window.handle);
+        }
+      }
+      // the latest window is the likeliest
+      Collections.reverse(opened);
+      candidates.addAll(opened);
+    }
+
+    String last = found.get(key);
+    if (last != null && !candidates.contains(last)) {
+      candidates.add(last);
+    }
+    if (title != null) {
+      for (Window window : windows.values()) {
+        if (title.equals(window.title) && !candidates.contains(window.handle)) {
+          candidates.add(window.handle);
+        }
+      }
+    }
+    for (String handle : windows.keySet()) {
+      if (!candidates.contains(handle)) {
+        candidates.add(handle);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Records that a window was switched to.
+   *
+   * @param handle
+   *          handle of the window
+   * @param key
+   *          what the window was identified by
+   * @param url
+   *          url of its page
+   * @param title
+   *          title of its page
+   */
+  public synchronized void switchedTo(String handle, String key, String url, String title)
+  {
+    Window window = windows.get(handle);
+    if (window == null) {
+      window = new Window(handle, null);
+      windows.put(handle, window);
+    }
+    window.visited = true;
+    window.url = url;
+    window.title = title;
+    found.put(key, handle);
+  }
+
+  /**
+   * @return the indexed windows, in the order they were first seen
+   */
+  public synchronized List<Window> getWindows()
+  {
+    List<Window> copies = new ArrayList<>(windows.size());
+    for (Window window : windows.values()) {
+      copies.add(window.copy());
+    }
+    return copies;
+  }
+
+  private String getCurrentHandle()
+  {
+    try {
+      return driver.getWindowHandle();
+    }
+    catch (WebDriverException e) {
+      // the current window was closed
+      return null;
+    }
+  }
+
+  /**
+   * What the index knows of a window.
+   */
+  public static class Window
+  {
+
+    private final String handle;
+
+    private final String opener;
+
+    private boolean visited;
+
+    private String url;
+
+    private String title;
+
+    private Window(String handle, String opener)
+    {
+      this.handle = handle;
+      this.opener = opener;
+    }
+
+    private Window copy()
+    {
+      Window copy = new Window(handle, opener);
+      copy.visited = visited;
+      copy.url = url;
+      copy.title = title;
+      return copy;
+    }
+
+    /**
+     * @return handle of the window
+     */
+    public String getHandle()
+    {
+      return handle;
+    }
+
+    /**
+     * @return handle of the window that was current when this one was first
+     *         seen, or null if unknown
+     */
+    public String getOpener()
+    {
+      return opener;
+    }
+
+    /**
+     * @return true if the window was switched to through the index
+     */
+    public boolean isVisited()
+    {
+      return visited;
+    }
+
+    /**
+     * @return url of the window when it was last switched to, or null
+     */
+    public String getUrl()
+    {
+      return url;
+    }
+
+    /**
+     * @return title of the window when it was last switched to, or null
+     */
+    public String getTitle()
+    {
+      return title;
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("%s(opener:%s, url:%s, title:%s)", handle, opener, url, title);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.partnet.automation.wait;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.Duration;
+import org.openqa.selenium.support.ui.Sleeper;
+import org.openqa.selenium.support.ui.SystemClock;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import com.google.common.base.Function;
+
+/**
+ * A {@link WebDriverWait} that sleeps according to the
+ * {@link PollingStrategy} of its {@link WaitType} rather than a fixed
+ * interval. By default a wait checks its condition again after 50ms, and
+ * doubles the delay up to a second. The fixed interval set with
+ * {@link #pollingEvery(long, java.util.concurrent.TimeUnit)} is ignored.
+ * <p>
+ * The strategy of a wait type can be replaced with
+ * {@link #setPollingStrategy(WaitType, PollingStrategy)}, or tuned with the
+ * following system properties, where <code>&lt;type&gt;</code> is the
+ * {@link WaitType#getPropertyName() property name} of a wait type, e.g.
+ * <code>test.config.wait.poll.ajax.max</code>:
+ * <ul>
+ * <li>{@value #POLL_PREFIX}[.&lt;type&gt;].initial - first delay
+ * (default 50)</li>
+ * <li>{@value #POLL_PREFIX}[.&lt;type&gt;].factor - growth of the
+ * delay (default 2)</li>
+ * <li>{@value #POLL_PREFIX}[.&lt;type&gt;].max - longest delay
+ * (default 1000)</li>
+ * </ul>
+ * Note: the last delay may carry the wait past its timeout by up to the
+ * longest delay.
+ */
+public class AdaptiveWait
+    extends WebDriverWait
+{
+
+  public static final String POLL_PREFIX = "test.config.wait.poll";
+
+  private static final ConcurrentMap<WaitType, PollingStrategy> STRATEGIES = new ConcurrentHashMap<>();
+
+  private final BackoffSleeper sleeper;
+
+  private final WaitType type;
+
+  private final boolean profiled;
+
+  /**
+   * @param driver
+   *          driver of the page
+   * @param timeoutSeconds
+   *          how long to wait for the condition
+   * @param type
+   *          decides how often the condition is checked
+   */
+  public AdaptiveWait(WebDriver driver, long timeoutSeconds, WaitType type)
+  {
+    this(driver, timeoutSeconds, type, true);
+  }
+
+  /**
+   * @param profiled
+   *          false if the caller records the wait with the
+   *          {@link WaitProfiler} itself
+   */
+  AdaptiveWait(WebDriver driver, long timeoutSeconds, WaitType type, boolean profiled)
+  {
+    this(driver, timeoutSeconds, type, profiled, new BackoffSleeper(getPollingStrategy(type)));
+  }
+
+  private AdaptiveWait(WebDriver driver, long timeoutSeconds, WaitType type, boolean profiled, BackoffSleeper sleeper)
+  {
+    super(driver, new SystemClock(), sleeper, timeoutSeconds, DEFAULT_SLEEP_TIMEOUT);
+    this.sleeper = sleeper;
+    this.type = type;
+    this.profiled = profiled;
+  }
+
+  /**
+   * Waits for the condition, and records the wait with the
+   * {@link WaitProfiler}.
+   */
+  @Override
+  public <V> V until(Function<? super WebDriver, V> isTrue)
+  {
+    if (!profiled) {
+      return super.until(isTrue);
+    }
+
+    WaitProfiler profiler = WaitProfiler.getInstance();
+    long start = System.currentTimeMillis();
+    WaitProfiler.Outcome outcome = WaitProfiler.Outcome.ERROR;
+    try {
+      V value = super.until(isTrue);
+      outcome = WaitProfiler.Outcome.SUCCESS;
+      return value;
+    }
+    catch (TimeoutException e) {
+      outcome = WaitProfiler.Outcome.TIMEOUT;
+      throw e;
+    }
+    finally {
+      profiler.record(isTrue, type, System.currentTimeMillis() - start, getPollCount(), outcome);
+    }
+  }
+
+  /**
+   * @param type
+   *          a wait type
+   * @return the strategy waits of the type poll with
+   */
+  public static PollingStrategy getPollingStrategy(WaitType type)
+  {
+    PollingStrategy strategy = STRATEGIES.get(type);
+    if (strategy == null) {
+      STRATEGIES.putIfAbsent(type, newPollingStrategy(type));
+      strategy = STRATEGIES.get(type);
+    }
+    return strategy;
+  }
+
+  /**
+   * Replaces the strategy of a wait type, for all waits created afterwards.
+   *
+   * @param type
+   *          a wait type
+   * @param strategy
+   *          the strategy waits of the type poll with, or null to go back to
+   *          the configured strategy
+   */
+  public static void setPollingStrategy(WaitType type, PollingStrategy strategy)
+  {
+    if (strategy == null) {
+      STRATEGIES.remove(type);
+    }
+    else {
+      STRATEGIES.put(type, strategy);
+    }
+  }
+
+  /**
+   * @return number of times the condition was checked by this wait
+   */
+  public int getPollCount()
+  {
+    return sleeper.sleeps + 1;
+  }
+
+  private static PollingStrategy newPollingStrategy(WaitType type)
+  {
+    String prefix = POLL_PREFIX + "." + type.getPropertyName();
+
+    long initial = Long.getLong(prefix + ".initial", Long.getLong(POLL_PREFIX + ".initial", 50));
+    double factor = Double.parseDouble(System.getProperty(prefix + ".factor", System.getProperty(POLL_PREFIX + ".factor", "2")));
+    long max = Long.getLong(prefix + ".max", Long.getLong(POLL_PREFIX + ".max", 1000));
+
+    return new ExponentialPollingStrategy(initial, factor, max);
+  }
+
+  /**
+   * Ignores the fixed interval of the wait and sleeps as long as the strategy
+   * says.
+   */
+  private static class BackoffSleeper
+      implements Sleeper
+  {
+
+    private final PollingStrategy strategy;
+
+    private int sleeps;
+
+    BackoffSleeper(PollingStrategy strategy)
+    {
+      this.strategy = strategy;
+    }
+
+    @Override
+    public void sleep(Duration interval)
+        throws InterruptedException
+    {
+      Thread.sleep(strategy.getDelayMillis(++sleeps));
+    }
+  }
+}
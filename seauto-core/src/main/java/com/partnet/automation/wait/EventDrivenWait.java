@@ -0,0 +1,294 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.wait;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Waits for an {@link ExpectedCondition} without polling the browser. A
+ * watcher is installed in the page with an asynchronous script; it tests a
+ * {@link PagePredicate} whenever the DOM changes (through a
+ * <code>MutationObserver</code>), on input events, and on a short in-page
+ * interval for changes that are not mutations, such as css transitions. The
+ * script returns as soon as the predicate holds, after which the condition is
+ * checked once more by the driver.
+ * <p>
+ * A wait costs one command when the condition already holds, and three when
+ * the page becomes ready while waiting, however long that takes. A watch lasts
+ * at most {@value #SLICE_MILLIS} milliseconds, and has to fit in the driver's
+ * script timeout.
+ * <p>
+ * The wait falls back to polling the condition with an {@link AdaptiveWait}
+ * when the driver cannot run asynchronous scripts, when its script timeout is
+ * too short, when the predicate is null or cannot be evaluated in the page, or
+ * when {@value #POLLING_ONLY} is set.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #POLLING_ONLY} - always poll (default false)</li>
+ * <li>{@value #SLICE_MILLIS} - longest a single watch runs in the page
+ * (default 5000)</li>
+ * </ul>
+ */
+public class EventDrivenWait
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(EventDrivenWait.class);
+
+  public static final String POLLING_ONLY = "test.config.wait.polling";
+  public static final String SLICE_MILLIS = "test.config.wait.event.slice";
+
+  private static final String WATCH_SCRIPT = "var done = arguments[arguments.length - 1], timeout = arguments[0], params = arguments[1];"
+      + PagePredicate.HELPERS
+      + "var test = function() { %s };"
+      + "var check = function() { return !!test(); };"
+      + "try {"
+      + "  if (check()) { done(true); return; }"
+      + "} catch (e) {"
+      + "  done('' + (e.message || e));"
+      + "  return;"
+      + "}"
+      + "var events = document.addEventListener ? ['input', 'change', 'transitionend', 'animationend'] : [];"
+      + "var finished = false, observer = null, interval, timer;"
+      + "var finish = function(ready) {"
+      + "  if (finished) { return; }"
+      + "  finished = true;"
+      + "  if (observer) { observer.disconnect(); }"
+      + "  clearInterval(interval);"
+      + "  clearTimeout(timer);"
+      + "  for (var i = 0; i < events.length; i++) { document.removeEventListener(events[i], changed, true); }"
+      + "  done(ready);"
+      + "};"
+      + "var changed = function() {"
+      + "  try {"
+      + "    if (!finished && check()) { finish(true); }"
+      + "  } catch (e) {"
+      + "    finish('' + (e.message || e));"
+      + "  }"
+      + "};"
+      + "if (window.MutationObserver) {"
+      + "  observer = new MutationObserver(changed);"
+      + "  observer.observe(document, { childList: true, subtree: true, attributes: true, characterData: true });"
+      + "}"
+      + "for (var i = 0; i < events.length; i++) { document.addEventListener(events[i], changed, true); }"
+      + "interval = setInterval(changed, observer ? 250 : 50);"
+      + "timer = setTimeout(function() { finish(false); }, timeout);";
+
+  // drivers whose script timeout is too short to watch the page
+  private static final ConcurrentMap<WebDriver, Boolean> POLLED_DRIVERS = new MapMaker().weakKeys().makeMap();
+
+  private final WebDriver driver;
+
+  private final long timeoutSeconds;
+
+  private final WaitType type;
+
+  private final long sliceMillis;
+
+  private final boolean pollingOnly;
+
+  private String message;
+
+  // times the condition was checked by the current wait
+  private int polls;
+
+  /**
+   * @param driver
+   *          driver of the page
+   * @param timeoutSeconds
+   *          how long to wait for the condition
+   */
+  public EventDrivenWait(WebDriver driver, long timeoutSeconds)
+  {
+    this(driver, timeoutSeconds, WaitType.ELEMENT);
+  }
+
+  /**
+   * @param driver
+   *          driver of the page
+   * @param timeoutSeconds
+   *          how long to wait for the condition
+   * @param type
+   *          decides how often the condition is checked when polling
+   */
+  public EventDrivenWait(WebDriver driver, long timeoutSeconds, WaitType type)
+  {
+    this.driver = driver;
+    this.timeoutSeconds = timeoutSeconds;
+    this.type = type;
+    this.sliceMillis = Math.max(Long.getLong(SLICE_MILLIS, 5000), 500);
+    this.pollingOnly = Boolean.getBoolean(POLLING_ONLY) || !(driver instanceof JavascriptExecutor) || POLLED_DRIVERS.containsKey(driver);
+  }
+
+  /**
+   * @param message
+   *          added to the message of the {@link TimeoutException}
+   * @return this wait
+   */
+  public EventDrivenWait withMessage(String message)
+  {
+    this.message = message;
+    return this;
+  }
+
+  /**
+   * Waits until the condition returns neither null nor false.
+   *
+   * @param predicate
+   *          tested in the page to learn when to check the condition; null to
+   *          poll the condition
+   * @param condition
+   *          decides when the wait is over
+   * @param <T>
+   *          type returned by the condition
+   * @return what the condition returned
+   * @throws TimeoutException
+   *           if the condition did not hold in time
+   */
+  public <T> T until(PagePredicate predicate, ExpectedCondition<T> condition)
+  {
+    WaitProfiler profiler = WaitProfiler.getInstance();
+    long start = System.currentTimeMillis();
+    WaitProfiler.Outcome outcome = WaitProfiler.Outcome.ERROR;
+    polls = 0;
+    try {
+      T value = watch(predicate, condition);
+      outcome = WaitProfiler.Outcome.SUCCESS;
+      return value;
+    }
+    catch (TimeoutException e) {
+      outcome = WaitProfiler.Outcome.TIMEOUT;
+      throw e;
+    }
+    finally {
+      profiler.record(condition, type, System.currentTimeMillis() - start, polls, outcome);
+    }
+  }
+
+  private <T> T watch(PagePredicate predicate, ExpectedCondition<T> condition)
+  {
+    if (pollingOnly || predicate == null) {
+      return poll(condition, timeoutSeconds * 1000);
+    }
+
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    String script = String.format(WATCH_SCRIPT, predicate.getBody());
+    PollingStrategy polling = AdaptiveWait.getPollingStrategy(type);
+    int pauses = 0;
+
+    T value = apply(condition);
+    while (value == null) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        throw new TimeoutException(String.format("Timed out after %d seconds waiting for %s%s", timeoutSeconds, condition, message == null ? "" : ": " + message));
+      }
+
+      long slice = Math.min(remaining, sliceMillis);
+      long start = System.currentTimeMillis();
+      boolean pause = false;
+      try {
+        Object ready = ((JavascriptExecutor) driver).executeAsyncScript(script, slice, predicate.getParams());
+        LOG.trace("Watched for {} in {}ms: {}", predicate, System.currentTimeMillis() - start, ready);
+
+        if (ready instanceof String) {
+          // the predicate cannot be evaluated in this page
+          LOG.debug("Unable to test {} in the page, polling instead: {}", predicate, ready);
+          return poll(condition, deadline - System.currentTimeMillis());
+        }
+        // the predicate is looser than the condition, don't spin on it
+        pause = Boolean.TRUE.equals(ready);
+      }
+      catch (TimeoutException e) {
+        if (System.currentTimeMillis() - start < slice / 2) {
+          LOG.debug("The script timeout of {} is too short to watch the page, polling instead", driver);
+          POLLED_DRIVERS.put(driver, Boolean.TRUE);
+          return poll(condition, deadline - System.currentTimeMillis());
+        }
+      }
+      catch (NotFoundException | StaleElementReferenceException e) {
+        // an element of the predicate is not in the page (yet)
+        pause = true;
+      }
+      catch (WebDriverException | UnsupportedOperationException e) {
+        // e.g. the page navigated away while watching
+        LOG.debug("Unable to watch for {}, polling instead", predicate, e);
+        return poll(condition, deadline - System.currentTimeMillis());
+      }
+
+      value = apply(condition);
+      if (value == null && pause) {
+        sleep(Math.min(polling.getDelayMillis(++pauses), deadline - System.currentTimeMillis()));
+      }
+    }
+    return value;
+  }
+
+  private <T> T poll(ExpectedCondition<T> condition, long timeoutMillis)
+  {
+    AdaptiveWait wait = new AdaptiveWait(driver, 0, type, false);
+    // keep the sub-second remainder of the deadline, whole seconds would cut it
+    wait.withTimeout(Math.max(timeoutMillis, 0), TimeUnit.MILLISECONDS);
+    if (message != null) {
+      wait.withMessage(message);
+    }
+    try {
+      return wait.until(condition);
+    }
+    finally {
+      polls += wait.getPollCount();
+    }
+  }
+
+  private <T> T apply(ExpectedCondition<T> condition)
+  {
+    polls++;
+    try {
+      T value = condition.apply(driver);
+      return Boolean.FALSE.equals(value) ? null : value;
+    }
+    catch (NotFoundException | StaleElementReferenceException e) {
+      return null;
+    }
+  }
+
+  private static void sleep(long millis)
+  {
+    if (millis <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(millis);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new WebDriverException(e);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.partnet.automation.wait;
+
+/**
+ * Polls quickly at first and backs off exponentially, so short waits end soon
+ * after their condition holds while long waits send few commands to the
+ * browser.
+ */
+public class ExponentialPollingStrategy
+    implements PollingStrategy
+{
+
+  private final long initialMillis;
+
+  private final double factor;
+
+  private final long maxMillis;
+
+  /**
+   * @param initialMillis
+   *          delay after the first check
+   * @param factor
+   *          the delay is multiplied by this after every check
+   * @param maxMillis
+   *          longest delay
+   */
+  public ExponentialPollingStrategy(long initialMillis, double factor, long maxMillis)
+  {
+    if (initialMillis <= 0 || maxMillis < initialMillis) {
+      throw new IllegalArgumentException(String.format("initialMillis(%d) must be > 0 and <= maxMillis(%d)", initialMillis, maxMillis));
+    }
+    if (factor < 1) {
+      throw new IllegalArgumentException(String.format("factor(%s) must be >= 1", factor));
+    }
+    this.initialMillis = initialMillis;
+    this.factor = factor;
+    this.maxMillis = maxMillis;
+  }
+
+  @Override
+  public long getDelayMillis(int poll)
+  {
+    double delay = initialMillis * Math.pow(factor, Math.max(poll - 1, 0));
+    return delay >= maxMillis ? maxMillis : (long) delay;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%dms * %s up to %dms", initialMillis, factor, maxMillis);
+  }
+}
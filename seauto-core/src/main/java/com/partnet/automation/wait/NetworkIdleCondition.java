@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.partnet.automation.wait;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+import com.partnet.automation.html.ScriptRegistry;
+
+/**
+ * Waits for a page to stop making requests. A tracker is injected into the
+ * page that counts the outstanding <code>XMLHttpRequest</code> and
+ * <code>fetch</code> requests, whatever library makes them. The page is idle
+ * once it is loaded, no request is outstanding, and no request started or
+ * finished during the quiet period.
+ * <p>
+ * The tracker is injected by the first check of the condition on a page, and
+ * again after the page navigated. Requests started before it is injected are
+ * not seen, so inject it with {@link #inject(WebDriver)} before the action
+ * that starts them; clickAndWait and Site.open do so before they click or
+ * navigate, which covers the requests of the current document, including a
+ * route change of a single page application. A new document runs its own
+ * scripts before a WebDriver script can reach it, so requests it starts while
+ * it loads are only covered by the quiet period. A <code>fetch</code> is done
+ * once its response headers arrived.
+ * <p>
+ * Used by {@link com.partnet.automation.HtmlView#clickAndWait(org.openqa.selenium.WebElement)} and
+ * {@link com.partnet.automation.page.Site#open(String)}, configured with the
+ * following system properties:
+ * <ul>
+ * <li>{@value #WAIT_FOR_IDLE} - wait for the network to be idle after the page
+ * loaded (default false)</li>
+ * <li>{@value #QUIET_PERIOD_MILLIS} - quiet period of the wait (default
+ * 500)</li>
+ * </ul>
+ */
+public class NetworkIdleCondition
+    implements ExpectedCondition<Boolean>
+{
+
+  public static final String WAIT_FOR_IDLE = "test.config.page.network.idle";
+  public static final String QUIET_PERIOD_MILLIS = "test.config.page.network.quiet";
+
+  private static final String TRACKER_SCRIPT = "(function() {"
+      + "  if (window.__seautoNetwork) { return; }"
+      + "  var now = function() { return new Date().getTime(); };"
+      + "  var network = window.__seautoNetwork = { pending: 0, lastActivity: now() };"
+      + "  var started = function() { network.pending++; network.lastActivity = now(); };"
+      + "  var finished = function() { network.pending = Math.max(network.pending - 1, 0); network.lastActivity = now(); };"
+      + "  if (window.XMLHttpRequest && XMLHttpRequest.prototype) {"
+      + "    var send = XMLHttpRequest.prototype.send;"
+      + "    XMLHttpRequest.prototype.send = function() {"
+      + "      var xhr = this, done = false;"
+      + "      var end = function() { if (!done && xhr.readyState === 4) { done = true; finished(); } };"
+      + "      if (xhr.addEventListener) {"
+      + "        xhr.addEventListener('readystatechange', end, false);"
+      + "      } else {"
+      + "        var handler = xhr.onreadystatechange;"
+      + "        xhr.onreadystatechange = function() {"
+      + "          end();"
+      + "          if (handler) { return handler.apply(xhr, arguments); }"
+      + "        };"
+      + "      }"
+      + "      started();"
+      + "      try {"
+      + "        return send.apply(xhr, arguments);"
+      + "      } catch (e) {"
+      + "        if (!done) { done = true; finished(); }"
+      + "        throw e;"
+      + "      }"
+      + "    };"
+      + "  }"
+      + "  if (window.fetch) {"
+      + "    var fetch = window.fetch;"
+      + "    window.fetch = function() {"
+      + "      started();"
+      + "      try {"
+      + "        return fetch.apply(this, arguments).then("
+      + "            function(response) { finished(); return response; },"
+      + "            function(error) { finished(); throw error; });"
+      + "      } catch (e) {"
+      + "        finished();"
+      + "        throw e;"
+      + "      }"
+      + "    };"
+      + "  }"
+      + "})();";
+
+  private static final String IDLE_TEST = "var network = window.__seautoNetwork;"
+      + "return !!network && document.readyState === 'complete' && network.pending === 0"
+      + "    && new Date().getTime() - network.lastActivity >= params[0];";
+
+  private static final ScriptRegistry.Script TRACK = ScriptRegistry.register("seauto.network.track", TRACKER_SCRIPT);
+
+  private static final ScriptRegistry.Script IDLE = ScriptRegistry.register("seauto.network.idle", TRACKER_SCRIPT + "var params = arguments;" + IDLE_TEST);
+
+  private final long quietPeriodMillis;
+
+  /**
+   * @param quietPeriodMillis
+   *          how long the page has to be without requests
+   */
+  public NetworkIdleCondition(long quietPeriodMillis)
+  {
+    this.quietPeriodMillis = quietPeriodMillis;
+  }
+
+  /**
+   * Injects the tracker into the driver's page, unless it already is.
+   *
+   * @param driver
+   *          driver of the page
+   */
+  public static void inject(WebDriver driver)
+  {
+    TRACK.execute(driver);
+  }
+
+  /**
+   * @return predicate testing the condition in the page, for an
+   *         {@link EventDrivenWait}
+   */
+  public PagePredicate getPredicate()
+  {
+    return PagePredicate.of(toString(), IDLE_TEST, quietPeriodMillis);
+  }
+
+  @Override
+  public Boolean apply(WebDriver driver)
+  {
+    Object idle = IDLE.execute(driver, quietPeriodMillis);
+    return Boolean.TRUE.equals(idle);
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("network to be idle for %dms", quietPeriodMillis);
+  }
+}
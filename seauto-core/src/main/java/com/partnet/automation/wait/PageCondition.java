@@ -0,0 +1,261 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.wait;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+import com.google.common.base.Joiner;
+
+/**
+ * A condition on the elements of a page that is checked by a single script,
+ * however many parts it is made of. Conditions are built from presence,
+ * visibility, text, attribute and count checks, and combined with
+ * {@link #all(PageCondition...)}, {@link #any(PageCondition...)} and
+ * {@link #not(PageCondition)}, e.g.
+ * 
+ * <pre>
+ * all(not(visible(spinner)), visible(grid), enabled(saveButton))
+ * </pre>
+ * <p>
+ * Polling the condition costs one command per poll. Waiting for it with an
+ * {@link EventDrivenWait} and its {@link #getPredicate() predicate} watches the
+ * page instead.
+ * <p>
+ * Only the standard locators of {@link By} can be used; the element of a
+ * locator is the first element it finds.
+ */
+public final class PageCondition
+    implements ExpectedCondition<Boolean>
+{
+
+  private final String description;
+
+  // Javascript expression, referring to its arguments as params[i]
+  private final String expression;
+
+  private final List<Object> params;
+
+  private PageCondition(String description, String expression, List<Object> params)
+  {
+    this.description = description;
+    this.expression = expression;
+    this.params = params;
+  }
+
+  /**
+   * @param by
+   *          locator of the element
+   * @return condition that holds while the element is in the DOM
+   */
+  public static PageCondition present(By by)
+  {
+    return element("present " + by, by, "true");
+  }
+
+  /**
+   * @param by
+   *          locator of the element
+   * @return condition that holds while the element is visible; an element
+   *         that is not in the DOM is not visible
+   */
+  public static PageCondition visible(By by)
+  {
+    return element("visible " + by, by, "visible(e)");
+  }
+
+  /**
+   * @param by
+   *          locator of the element
+   * @return condition that holds while the element is visible and enabled
+   */
+  public static PageCondition enabled(By by)
+  {
+    return element("enabled " + by, by, "visible(e) && !e.disabled");
+  }
+
+  /**
+   * @param by
+   *          locator of the element
+   * @param regex
+   *          Javascript regex the entire trimmed text of the element has to
+   *          match
+   * @return condition that holds while the text of the element matches
+   */
+  public static PageCondition textMatches(By by, String regex)
+  {
+    return element(String.format("text of %s matching %s", by, regex), by, "new RegExp('^(?:' + params[%d] + ')$').test(textOf(e))", regex);
+  }
+
+  /**
+   * @param by
+   *          locator of the element
+   * @param name
+   *          name of the attribute
+   * @param regex
+   *          Javascript regex the entire value of the attribute has to match
+   * @return condition that holds while the element has the attribute and its
+   *         value matches
+   */
+  public static PageCondition attributeMatches(By by, String name, String regex)
+  {
+    return element(String.format("attribute %s of %s matching %s", name, by, regex), by,
+        // old IE modes answer getAttribute with the property of the same name
+        "(function(n) { return !!n && n.specified && new RegExp('^(?:' + params[%2$d] + ')$').test(n.value); })(e.getAttributeNode(params[%1$d]))", name, regex);
+  }
+
+  /**
+   * @param by
+   *          locator of the elements
+   * @param count
+   *          number of elements
+   * @return condition that holds while the locator finds exactly that many
+   *         elements
+   */
+  public static PageCondition count(By by, int count)
+  {
+    return count(String.format("%d of %s", count, by), by, count, count);
+  }
+
+  /**
+   * @param by
+   *          locator of the elements
+   * @param count
+   *          least number of elements
+   * @return condition that holds while the locator finds at least that many
+   *         elements
+   */
+  public static PageCondition countAtLeast(By by, int count)
+  {
+    return count(String.format("at least %d of %s", count, by), by, count, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param conditions
+   *          the conditions
+   * @return condition that holds while every one of the conditions holds
+   */
+  public static PageCondition all(PageCondition... conditions)
+  {
+    return combine("all", " && ", conditions);
+  }
+
+  /**
+   * @param conditions
+   *          the conditions
+   * @return condition that holds while any of the conditions holds
+   */
+  public static PageCondition any(PageCondition... conditions)
+  {
+    return combine("any", " || ", conditions);
+  }
+
+  /**
+   * @param condition
+   *          a condition
+   * @return condition that holds while the condition does not
+   */
+  public static PageCondition not(PageCondition condition)
+  {
+    return new PageCondition("not " + condition, "!" + condition.expression, condition.params);
+  }
+
+  /**
+   * @return the condition as a predicate for an {@link EventDrivenWait}
+   */
+  public PagePredicate getPredicate()
+  {
+    return PagePredicate.of(description, "return " + expression + ";", params.toArray());
+  }
+
+  /**
+   * Checks the condition with a single script.
+   */
+  @Override
+  public Boolean apply(WebDriver driver)
+  {
+    Object holds = ((JavascriptExecutor) driver).executeScript(PagePredicate.HELPERS + "var params = arguments[0]; return !!" + expression + ";", params);
+    return Boolean.TRUE.equals(holds);
+  }
+
+  @Override
+  public String toString()
+  {
+    return description;
+  }
+
+  /**
+   * @param test
+   *          expression testing the element <code>e</code>; may refer to the
+   *          extra params by <code>%d</code> formats, in order
+   */
+  private static PageCondition element(String description, By by, String test, Object... extraParams)
+  {
+    List<Object> params = new ArrayList<>();
+    params.add(toLocator(by));
+    Object[] indexes = new Object[extraParams.length];
+    for (int i = 0; i < extraParams.length; i++) {
+      indexes[i] = params.size();
+      params.add(extraParams[i]);
+    }
+    String expression = String.format("(function(e) { return !!e && (%s); })(find(params[0]))", String.format(test, indexes));
+    return new PageCondition(description, expression, params);
+  }
+
+  private static PageCondition count(String description, By by, int min, int max)
+  {
+    if (min < 0) {
+      throw new IllegalArgumentException(String.format("count(%d) must be >= 0", min));
+    }
+    return new PageCondition(description, "(function(n) { return n >= params[1] && n <= params[2]; })(findAll(params[0]).length)",
+        Arrays.<Object> asList(toLocator(by), min, max));
+  }
+
+  private static PageCondition combine(String name, String operator, PageCondition... conditions)
+  {
+    if (conditions.length == 0) {
+      throw new IllegalArgumentException(name + " needs at least one condition");
+    }
+
+    // each condition sees its own params, which are nested in the params of
+    // the combination
+    List<Object> params = new ArrayList<>();
+    List<String> tests = new ArrayList<>();
+    List<String> descriptions = new ArrayList<>();
+    for (int i = 0; i < conditions.length; i++) {
+      tests.add(String.format("(function(params) { return %s; })(params[%d])", conditions[i].expression, i));
+      params.add(conditions[i].params);
+      descriptions.add(conditions[i].description);
+    }
+    return new PageCondition(String.format("%s(%s)", name, Joiner.on(", ").join(descriptions)), "(" + Joiner.on(operator).join(tests) + ")", params);
+  }
+
+  private static List<String> toLocator(By by)
+  {
+    List<String> locator = PagePredicate.toLocator(by);
+    if (locator == null) {
+      throw new IllegalArgumentException(String.format("%s can't be checked in the page", by));
+    }
+    return locator;
+  }
+}
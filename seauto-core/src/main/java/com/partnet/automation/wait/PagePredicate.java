@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.wait;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A test evaluated inside the page by {@link EventDrivenWait}. The body of the
+ * test is Javascript that returns a truthy value once the page is ready; it
+ * can use the arguments in <code>params</code> and the helpers
+ * <code>find(locator, root)</code>, <code>findAll(locator, root)</code> and
+ * <code>visible(element)</code>.
+ * <p>
+ * A predicate only tells the wait when to look again: the
+ * {@link org.openqa.selenium.support.ui.ExpectedCondition} it is paired with
+ * still decides whether the wait is over, so a predicate may be looser than
+ * its condition but should never be stricter.
+ */
+public final class PagePredicate
+{
+
+  // By.toString() prefix -> locator type understood by find()
+  private static final ImmutableMap<String, String> LOCATOR_TYPES = ImmutableMap.<String, String> builder()
+      .put("By.id: ", "id")
+      .put("By.name: ", "name")
+      .put("By.cssSelector: ", "css")
+      .put("By.className: ", "className")
+      .put("By.tagName: ", "tagName")
+      .put("By.xpath: ", "xpath")
+      .put("By.linkText: ", "linkText")
+      .put("By.partialLinkText: ", "partialLinkText")
+      .build();
+
+  /**
+   * Javascript defining the functions available to the body of a predicate,
+   * for other scripts that locate elements the way a predicate does.
+   */
+  public static final String HELPERS = "var textOf = function(e) { return (e.textContent || e.innerText || '').replace(/^\\s+|\\s+$/g, ''); };"
+      + "var findAll = function(locator, root) {"
+      + "  root = root || document;"
+      + "  var type = locator[0], value = locator[1], found = [], i, all;"
+      + "  if (type === 'id' && root === document) {"
+      + "    var byId = document.getElementById(value);"
+      + "    return byId ? [byId] : [];"
+      + "  } else if (type === 'css') {"
+      + "    all = root.querySelectorAll(value);"
+      + "  } else if (type === 'tagName') {"
+      + "    all = root.getElementsByTagName(value);"
+      + "  } else if (type === 'xpath') {"
+      + "    var snapshot = document.evaluate(value, root, null, 7, null);"
+      + "    for (i = 0; i < snapshot.snapshotLength; i++) { found.push(snapshot.snapshotItem(i)); }"
+      + "    return found;"
+      + "  } else {"
+      + "    var link = type === 'linkText' || type === 'partialLinkText';"
+      + "    var candidates = root.getElementsByTagName(link ? 'a' : '*');"
+      + "    for (i = 0; i < candidates.length; i++) {"
+      + "      var e = candidates[i];"
+      + "      if (type === 'id' ? e.getAttribute('id') === value"
+      + "          : type === 'name' ? e.getAttribute('name') === value"
+      + "          : type === 'className' ? (' ' + e.className + ' ').indexOf(' ' + value + ' ') >= 0"
+      + "          : type === 'linkText' ? textOf(e) === value : textOf(e).indexOf(value) >= 0) {"
+      + "        found.push(e);"
+      + "      }"
+      + "    }"
+      + "    return found;"
+      + "  }"
+      + "  for (i = 0; i < all.length; i++) { found.push(all[i]); }"
+      + "  return found;"
+      + "};"
+      + "var find = function(locator, root) { return findAll(locator, root)[0] || null; };"
+      + "var visible = function(e) {"
+      + "  var style = window.getComputedStyle ? window.getComputedStyle(e, null) : e.currentStyle;"
+      + "  return (e.offsetWidth > 0 || e.offsetHeight > 0 || (e.getClientRects && e.getClientRects().length > 0))"
+      + "      && !(style && style.visibility === 'hidden');"
+      + "};";
+
+  private final String name;
+
+  private final String body;
+
+  private final List<Object> params;
+
+  private PagePredicate(String name, String body, Object... params)
+  {
+    this.name = name;
+    this.body = body;
+    this.params = Collections.unmodifiableList(Arrays.asList(params));
+  }
+
+  /**
+   * @param name
+   *          describes the predicate in logs
+   * @param body
+   *          Javascript returning a truthy value once the page is ready
+   * @param params
+   *          arguments available to the body as <code>params</code>
+   * @return a custom predicate
+   */
+  public static PagePredicate of(String name, String body, Object... params)
+  {
+    return new PagePredicate(name, body, params);
+  }
+
+  /**
+   * @param by
+   *          locator of the element
+   * @return predicate that is true once the element is in the DOM, or null if
+   *         the locator cannot be evaluated in the page
+   */
+  public static PagePredicate presenceOf(By by)
+  {
+    List<String> locator = toLocator(by);
+    return locator == null ? null : new PagePredicate("presence of " + by, "return find(params[0]);", locator);
+  }
+
+  /**
+   * @param by
+   *          locator of the element
+   * @return predicate that is true once the element is visible and enabled,
+   *         or null if the locator cannot be evaluated in the page
+   */
+  public static PagePredicate clickable(By by)
+  {
+    List<String> locator = toLocator(by);
+    return locator == null ? null : new PagePredicate("clickable " + by, "var e = find(params[0]); return e && visible(e) && !e.disabled;", locator);
+  }
+
+  /**
+   * @param element
+   *          the element
+   * @return predicate that is true once the element is visible and enabled
+   */
+  public static PagePredicate clickable(WebElement element)
+  {
+    return new PagePredicate("clickable element", "var e = params[0]; return visible(e) && !e.disabled;", element);
+  }
+
+  /**
+   * @param field
+   *          input whose value is watched
+   * @param regex
+   *          regex the entire value has to match
+   * @return predicate that is true once the value of the field matches the
+   *         regex
+   */
+  public static PagePredicate valueMatches(WebElement field, String regex)
+  {
+    return new PagePredicate("value matching " + regex,
+        "var v = params[0].value; if (v == null) { v = params[0].getAttribute('value') || ''; }"
+            + "return new RegExp('^(?:' + params[1] + ')$').test(v);", field, regex);
+  }
+
+  /**
+   * @param dialogContentLocator
+   *          locator of content inside the dialog
+   * @return predicate that is true once a visible jQuery UI dialog holding the
+   *         content is no longer blocked, or null if the locator cannot be
+   *         evaluated in the page
+   */
+  public static PagePredicate dialogReady(By dialogContentLocator)
+  {
+    List<String> locator = toLocator(dialogContentLocator);
+    return locator == null ? null : new PagePredicate("dialog with " + dialogContentLocator,
+        "var dialogs = document.getElementsByClassName('ui-dialog');"
+            + "for (var i = 0; i < dialogs.length; i++) {"
+            + "  if (find(params[0], dialogs[i]) && visible(dialogs[i])) {"
+            + "    return dialogs[i].getElementsByClassName('blockUI').length === 0;"
+            + "  }"
+            + "}"
+            + "return false;", locator);
+  }
+
+  /**
+   * @return Javascript returning a truthy value once the page is ready
+   */
+  public String getBody()
+  {
+    return body;
+  }
+
+  /**
+   * @return arguments available to the body as <code>params</code>
+   */
+  public List<Object> getParams()
+  {
+    return params;
+  }
+
+  @Override
+  public String toString()
+  {
+    return name;
+  }
+
+  /**
+   * @param by
+   *          a locator
+   * @return the type and value of the locator, as taken by the
+   *         <code>find</code> helper, or null if it is not one of the
+   *         standard locators
+   */
+  public static List<String> toLocator(By by)
+  {
+    String description = by.toString();
+    for (String prefix : LOCATOR_TYPES.keySet()) {
+      if (description.startsWith(prefix)) {
+        return Arrays.asList(LOCATOR_TYPES.get(prefix), description.substring(prefix.length()));
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.partnet.automation.wait;
+
+/**
+ * Decides how long a wait sleeps between checks of its condition.
+ *
+ * @see AdaptiveWait#setPollingStrategy(WaitType, PollingStrategy)
+ */
+public interface PollingStrategy
+{
+
+  /**
+   * @param poll
+   *          number of times the condition was checked so far, starting at 1
+   * @return milliseconds to sleep before checking the condition again
+   */
+  long getDelayMillis(int poll);
+}
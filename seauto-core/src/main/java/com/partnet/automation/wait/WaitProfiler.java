@@ -0,0 +1,418 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.partnet.automation.wait;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.partnet.automation.util.PathUtils;
+
+/**
+ * Records how long the {@link com.partnet.automation.HtmlView} waits take. Every wait is recorded
+ * with the <code>toString()</code> of its condition, its duration, how often
+ * the condition was checked, and its outcome, and aggregated per condition for
+ * the test, scenario or story running on the thread.
+ * <p>
+ * At the end of the run a json report is written, holding the waits of every
+ * test and the slowest waits of the run, and a summary of the slowest waits is
+ * logged.
+ * <p>
+ * Configured with the following system properties:
+ * <ul>
+ * <li>{@value #ENABLED} - record waits (default false)</li>
+ * <li>{@value #REPORT} - path of the json report (default
+ * target/seauto/wait-profile.json)</li>
+ * <li>{@value #TOP} - number of slowest waits reported (default 10)</li>
+ * </ul>
+ *
+ * @see com.partnet.automation.HtmlView
+ */
+public class WaitProfiler
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(WaitProfiler.class);
+
+  public static final String ENABLED = "test.config.wait.profile";
+  public static final String REPORT = "test.config.wait.profile.report";
+  public static final String TOP = "test.config.wait.profile.top";
+
+  private static final String NO_TEST = "(no test)";
+
+  /**
+   * How a wait ended.
+   */
+  public enum Outcome
+  {
+    /** the condition held */
+    SUCCESS,
+    /** the wait timed out */
+    TIMEOUT,
+    /** the condition threw an exception */
+    ERROR
+  }
+
+  private static final Comparator<WaitRecord> BY_DURATION = new Comparator<WaitRecord>() {
+
+    @Override
+    public int compare(WaitRecord a, WaitRecord b)
+    {
+      return Long.compare(a.durationMillis, b.durationMillis);
+    }
+  };
+
+  private static WaitProfiler instance;
+
+  private final boolean enabled;
+
+  private final int top;
+
+  private final ThreadLocal<String> currentTest = new ThreadLocal<String>();
+
+  // test -> condition -> stats, in the order the tests ran
+  private final Map<String, Map<String, ConditionStats>> tests = new LinkedHashMap<>();
+
+  // the slowest waits, slowest last
+  private final PriorityQueue<WaitRecord> slowest = new PriorityQueue<>(11, BY_DURATION);
+
+  /**
+   * @return the JVM wide instance, configured by the system properties
+   */
+  public static synchronized WaitProfiler getInstance()
+  {
+    if (instance == null) {
+      instance = new WaitProfiler(Boolean.getBoolean(ENABLED), Integer.getInteger(TOP, 10));
+
+      if (instance.isEnabled()) {
+        final File report = new File(System.getProperty(REPORT, PathUtils.getProjectPath().appendFolders("target", "seauto").appendFile("wait-profile.json").toString()));
+
+        Runtime.getRuntime().addShutdownHook(new Thread("seauto-wait-profiler-shutdown") {
+
+          @Override
+          public void run()
+          {
+            instance.logSummary();
+            instance.writeReport(report);
+          }
+        });
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * @param enabled
+   *          true to record waits
+   * @param top
+   *          number of slowest waits kept
+   */
+  public WaitProfiler(boolean enabled, int top)
+  {
+    this.enabled = enabled;
+    this.top = Math.max(top, 0);
+  }
+
+  /**
+   * @return true if waits are recorded
+   */
+  public boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /**
+   * Attributes the waits of the current thread to a test, until
+   * {@link #endTest()} is called.
+   *
+   * @param name
+   *          name of the test, scenario or story
+   */
+  public void startTest(String name)
+  {
+    currentTest.set(name);
+  }
+
+  /**
+   * Ends the test of the current thread.
+   */
+  public void endTest()
+  {
+    currentTest.remove();
+  }
+
+  /**
+   * Records a wait of the current thread.
+   *
+   * @param condition
+   *          what was waited for; its <code>toString()</code> names the wait
+   * @param type
+   *          type of the wait
+   * @param durationMillis
+   *          how long the wait took
+   * @param polls
+   *          how often the condition was checked
+   * @param outcome
+   *          how the wait ended
+   */
+  public void record(Object condition, WaitType type, long durationMillis, int polls, Outcome outcome)
+  {
+    if (!enabled) {
+      return;
+    }
+
+    String test = currentTest.get() == null ? NO_TEST : currentTest.get();
+    WaitRecord record = new WaitRecord(test, String.valueOf(condition), type, durationMillis, polls, outcome);
+    LOG.trace("{}", record);
+
+    synchronized (this) {
+      Map<String, ConditionStats> conditions = tests.get(test);
+      if (conditions == null) {
+        conditions = new LinkedHashMap<>();
+        tests.put(test, conditions);
+      }
+
+      ConditionStats stats = conditions.get(record.condition);
+      if (stats == null) {
+        stats = new ConditionStats(record.condition, type);
+        conditions.put(record.condition, stats);
+      }
+      stats.add(record);
+
+      if (top > 0) {
+        slowest.add(record);
+        if (slowest.size() > top) {
+          slowest.poll();
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the slowest waits recorded, slowest first
+   */
+  public synchronized List<WaitRecord> getSlowest()
+  {
+    List<WaitRecord> records = new ArrayList<>(slowest);
+    Collections.sort(records, Collections.reverseOrder(BY_DURATION));
+    return records;
+  }
+
+  /**
+   * @return the recorded waits as json
+   */
+  public synchronized JSONObject toJson()
+  {
+    JSONArray testsJson = new JSONArray();
+    for (Map.Entry<String, Map<String, ConditionStats>> test : tests.entrySet()) {
+      JSONArray conditionsJson = new JSONArray();
+      long totalMillis = 0;
+      int waits = 0;
+
+      for (ConditionStats stats : test.getValue().values()) {
+        conditionsJson.put(stats.toJson());
+        totalMillis += stats.totalMillis;
+        waits += stats.count;
+      }
+
+      testsJson.put(new JSONObject()
+          .put("test", test.getKey())
+          .put("waits", waits)
+          .put("totalMillis", totalMillis)
+          .put("conditions", conditionsJson));
+    }
+
+    JSONArray slowestJson = new JSONArray();
+    for (WaitRecord record : getSlowest()) {
+      slowestJson.put(record.toJson());
+    }
+
+    return new JSONObject().put("tests", testsJson).put("slowest", slowestJson);
+  }
+
+  /**
+   * Writes the json report.
+   *
+   * @param file
+   *          report to write
+   */
+  public void writeReport(File file)
+  {
+    try {
+      FileUtils.writeStringToFile(file, toJson().toString(2), StandardCharsets.UTF_8.name());
+      LOG.info("Wait profile written to {}", file);
+    }
+    catch (IOException e) {
+      LOG.error("Unable to write the wait profile to '{}'!", file, e);
+    }
+  }
+
+  /**
+   * Logs the slowest waits.
+   */
+  public void logSummary()
+  {
+    List<WaitRecord> records = getSlowest();
+    if (records.isEmpty()) {
+      return;
+    }
+
+    StringBuilder sb = new StringBuilder("Slowest waits:");
+    for (WaitRecord record : records) {
+      sb.append(String.format("%n%8dms %4d poll(s) %-7s %s - %s", record.durationMillis, record.polls, record.outcome, record.test, record.condition));
+    }
+    LOG.info(sb.toString());
+  }
+
+  /**
+   * A single wait.
+   */
+  public static class WaitRecord
+  {
+
+    private final String test;
+
+    private final String condition;
+
+    private final WaitType type;
+
+    private final long durationMillis;
+
+    private final int polls;
+
+    private final Outcome outcome;
+
+    WaitRecord(String test, String condition, WaitType type, long durationMillis, int polls, Outcome outcome)
+    {
+      this.test = test;
+      this.condition = condition;
+      this.type = type;
+      this.durationMillis = durationMillis;
+      this.polls = polls;
+      this.outcome = outcome;
+    }
+
+    public String getTest()
+    {
+      return test;
+    }
+
+    public String getCondition()
+    {
+      return condition;
+    }
+
+    public long getDurationMillis()
+    {
+      return durationMillis;
+    }
+
+    public int getPolls()
+    {
+      return polls;
+    }
+
+    public Outcome getOutcome()
+    {
+      return outcome;
+    }
+
+    JSONObject toJson()
+    {
+      return new JSONObject()
+          .put("test", test)
+          .put("condition", condition)
+          .put("type", type)
+          .put("millis", durationMillis)
+          .put("polls", polls)
+          .put("outcome", outcome);
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("%s waited %dms (%d polls, %s) for %s", test, durationMillis, polls, outcome, condition);
+    }
+  }
+
+  /**
+   * The waits of a test for the same condition.
+   */
+  private static class ConditionStats
+  {
+
+    private final String condition;
+
+    private final WaitType type;
+
+    private int count;
+
+    private long totalMillis;
+
+    private long maxMillis;
+
+    private int polls;
+
+    private int timeouts;
+
+    private int errors;
+
+    ConditionStats(String condition, WaitType type)
+    {
+      this.condition = condition;
+      this.type = type;
+    }
+
+    void add(WaitRecord record)
+    {
+      count++;
+      totalMillis += record.durationMillis;
+      maxMillis = Math.max(maxMillis, record.durationMillis);
+      polls += record.polls;
+      if (record.outcome == Outcome.TIMEOUT) {
+        timeouts++;
+      }
+      else if (record.outcome == Outcome.ERROR) {
+        errors++;
+      }
+    }
+
+    JSONObject toJson()
+    {
+      return new JSONObject()
+          .put("condition", condition)
+          .put("type", type)
+          .put("count", count)
+          .put("totalMillis", totalMillis)
+          .put("maxMillis", maxMillis)
+          .put("polls", polls)
+          .put("timeouts", timeouts)
+          .put("errors", errors);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.partnet.automation.wait;
+
+/**
+ * Kinds of waits, each with its own {@link PollingStrategy}.
+ */
+public enum WaitType
+{
+  /** elements to appear or become clickable */
+  ELEMENT,
+  /** fields to be populated */
+  FIELD,
+  /** dialogs to load */
+  DIALOG,
+  /** alerts to appear */
+  ALERT,
+  /** windows to open */
+  WINDOW,
+  /** pages to load */
+  PAGE_LOAD,
+  /** ajax responses */
+  AJAX,
+  /** outstanding requests of the page to finish */
+  NETWORK_IDLE;
+
+  /**
+   * @return name of the wait type in system properties
+   */
+  public String getPropertyName()
+  {
+    return name().toLowerCase().replace('_', '.');
+  }
+}
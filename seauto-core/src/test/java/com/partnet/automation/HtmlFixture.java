@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.rules.ExternalResource;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+/**
+ * Serves a test an html page from a temporary file in an HtmlUnit driver with
+ * javascript, and quits the driver and deletes the file after the test:
+ *
+ * <pre>
+ * &#64;Rule
+ * public final HtmlFixture fixture = new HtmlFixture(PAGE);
+ * </pre>
+ *
+ * Tests that need another page call {@link #open(String)}, which reuses the
+ * driver.
+ */
+public class HtmlFixture
+    extends ExternalResource
+{
+
+  private final String html;
+
+  private WebDriver driver;
+
+  private File page;
+
+  /**
+   * Opens no page before the test; the test calls {@link #open(String)}.
+   */
+  public HtmlFixture()
+  {
+    this(null);
+  }
+
+  /**
+   * @param html
+   *          page opened before every test
+   */
+  public HtmlFixture(String html)
+  {
+    this.html = html;
+  }
+
+  @Override
+  protected void before()
+      throws IOException
+  {
+    if (html != null) {
+      open(html);
+    }
+  }
+
+  @Override
+  protected void after()
+  {
+    if (driver != null) {
+      driver.quit();
+      driver = null;
+    }
+    FileUtils.deleteQuietly(page);
+  }
+
+  /**
+   * Opens the page, in the driver of the test.
+   *
+   * @param pageHtml
+   *          source of the page
+   * @return the driver showing the page
+   * @throws IOException
+   *           if the page could not be written
+   */
+  public WebDriver open(String pageHtml)
+      throws IOException
+  {
+    FileUtils.deleteQuietly(page);
+    page = File.createTempFile("seauto-test", ".html");
+    FileUtils.writeStringToFile(page, pageHtml);
+
+    getDriver().get(getUrl());
+    return driver;
+  }
+
+  /**
+   * @return the driver of the test, started if it was not yet
+   */
+  public WebDriver getDriver()
+  {
+    if (driver == null) {
+      driver = newDriver();
+    }
+    return driver;
+  }
+
+  /**
+   * @return url of the page last opened
+   */
+  public String getUrl()
+  {
+    return page.toURI().toString();
+  }
+
+  /**
+   * @return a new driver, with a script timeout long enough to watch a page
+   */
+  protected WebDriver newDriver()
+  {
+    WebDriver newDriver = new HtmlUnitDriver(true);
+    newDriver.manage().timeouts().setScriptTimeout(10, TimeUnit.SECONDS);
+    return newDriver;
+  }
+}
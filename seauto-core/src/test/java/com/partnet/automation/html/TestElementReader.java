@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.html;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.partnet.automation.HtmlFixture;
+
+public class TestElementReader
+{
+
+  private static final String BODY = "<body>"
+      + "<select id=\"cars\"><option value=\"ford\">Ford</option><option value=\"geo\" selected=\"selected\"> Geo </option></select>"
+      + "<dl><dt class=\"term\">Color</dt><dd class=\"desc\">Red</dd></dl>"
+      + "<input id=\"zip\" name=\"zip\" value=\"84601\"/>"
+      + "</body></html>";
+
+  @Rule
+  public final HtmlFixture fixture = new HtmlFixture();
+
+  private WebDriver driver;
+
+  @Test
+  public void test_readElements()
+      throws IOException
+  {
+    driver = fixture.open("<html>" + BODY);
+
+    List<WebElement> elements = driver.findElements(By.xpath("//dt|//dd|//input"));
+    List<ElementData> data = ElementReader.read(driver, elements, "class", "name");
+
+    Assert.assertEquals(3, data.size());
+    Assert.assertEquals("dt", data.get(0).getTagName());
+    Assert.assertEquals("Color", data.get(0).getText());
+    Assert.assertEquals("term", data.get(0).getAttribute("class"));
+    Assert.assertNull(data.get(0).getAttribute("name"));
+    Assert.assertEquals("dd", data.get(1).getTagName());
+    Assert.assertEquals("Red", data.get(1).getText());
+    Assert.assertEquals("84601", data.get(2).getValue());
+    Assert.assertEquals("zip", data.get(2).getAttribute("name"));
+  }
+
+  @Test
+  public void test_readDescendants()
+      throws IOException
+  {
+    driver = fixture.open("<html>" + BODY);
+
+    List<ElementData> options = ElementReader.read(driver, driver.findElement(By.id("cars")), "option", "selected");
+
+    Assert.assertEquals(2, options.size());
+    Assert.assertEquals(Arrays.asList("Ford", "Geo"), Arrays.asList(options.get(0).getText(), options.get(1).getText()));
+    Assert.assertEquals("ford", options.get(0).getValue());
+    Assert.assertNull(options.get(0).getAttribute("selected"));
+    Assert.assertNotNull(options.get(1).getAttribute("selected"));
+  }
+
+  @Test
+  public void test_readCssSelector()
+      throws IOException
+  {
+    // standards mode has querySelectorAll, quirks mode finds the elements first
+    for (String doctype : Arrays.asList("<!DOCTYPE html>", "")) {
+      driver = fixture.open(doctype + "<html>" + BODY);
+
+      List<ElementData> data = ElementReader.read(driver, By.cssSelector("dl .desc, #zip"));
+      Assert.assertEquals(2, data.size());
+      Assert.assertEquals("Red", data.get(0).getText());
+      Assert.assertEquals("input", data.get(1).getTagName());
+
+      Assert.assertTrue(ElementReader.read(driver, By.cssSelector(".missing")).isEmpty());
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.html;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.partnet.automation.HtmlFixture;
+
+public class TestFormFiller
+{
+
+  private static final String BODY = "<body>"
+      + "<input id=\"name\" onchange=\"document.getElementById('events').value += 'change '\" onblur=\"document.getElementById('events').value += 'blur'\"/>"
+      + "<textarea id=\"notes\"></textarea>"
+      + "<input id=\"zip\" maxlength=\"5\"/>"
+      + "<input id=\"agree\" type=\"checkbox\"/>"
+      + "<input id=\"city\" onchange=\"document.getElementById('state').value = ''\"/>"
+      + "<input id=\"state\" value=\"UT\"/>"
+      + "<input id=\"events\" type=\"hidden\" value=\"\"/>"
+      + "</body></html>";
+
+  @Rule
+  public final HtmlFixture fixture = new HtmlFixture();
+
+  private WebDriver driver;
+
+  @Test
+  public void test_fill()
+      throws IOException
+  {
+    for (String doctype : Arrays.asList("<!DOCTYPE html>", "")) {
+      driver = fixture.open(doctype + "<html>" + BODY);
+
+      // the locators are found by the script
+      List<?> fields = Arrays.asList(field("name"), By.id("notes"), By.id("zip"));
+      Assert.assertEquals(Collections.emptyList(), FormFiller.fill(driver, fields, Arrays.asList("Jane", "line one\nline two", "84601")));
+      Assert.assertEquals("Jane", field("name").getAttribute("value"));
+      Assert.assertEquals("line one\nline two", field("notes").getAttribute("value"));
+      Assert.assertEquals("84601", field("zip").getAttribute("value"));
+      Assert.assertEquals("change blur", field("events").getAttribute("value"));
+    }
+  }
+
+  @Test
+  public void test_notFilled()
+      throws IOException
+  {
+    driver = fixture.open("<!DOCTYPE html><html>" + BODY);
+
+    List<?> fields = Arrays.asList(field("state"), By.id("zip"), field("agree"), By.id("missing"), field("city"));
+    List<String> values = Arrays.asList("CA", "84601-1234", "on", "gone", "Provo");
+
+    // the state is cleared by the city, the zip is too long, the checkbox
+    // holds no text and the missing field is not found
+    Assert.assertEquals(Arrays.asList(0, 1, 2, 3), FormFiller.fill(driver, fields, values));
+    Assert.assertEquals("Provo", field("city").getAttribute("value"));
+    Assert.assertEquals("", field("zip").getAttribute("value"));
+  }
+
+  @Test
+  public void test_cssWithoutQuerySelector()
+      throws IOException
+  {
+    // quirks mode has no querySelectorAll, the field is left to the caller
+    driver = fixture.open("<html>" + BODY);
+
+    Assert.assertEquals(Collections.singletonList(0), FormFiller.fill(driver, Arrays.asList(By.cssSelector("#name")), Arrays.asList("Jane")));
+    Assert.assertEquals("", field("name").getAttribute("value"));
+  }
+
+  private WebElement field(String id)
+  {
+    return driver.findElement(By.id(id));
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.html;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.events.AbstractWebDriverEventListener;
+import org.openqa.selenium.support.events.EventFiringWebDriver;
+
+import com.partnet.automation.HtmlFixture;
+import com.partnet.automation.selenium.DocumentGeneration;
+
+public class TestScriptRegistry
+{
+
+  private static final ScriptRegistry.Script TEXT = ScriptRegistry.register("test.text", "return arguments[0].innerHTML + arguments[1];");
+
+  // counts the commands the registry sends
+  @Rule
+  public final HtmlFixture fixture = new HtmlFixture() {
+
+    @Override
+    protected WebDriver newDriver()
+    {
+      return new EventFiringWebDriver(super.newDriver()).register(new AbstractWebDriverEventListener() {
+
+        @Override
+        public void beforeScript(String script, WebDriver driver)
+        {
+          scripts++;
+        }
+      });
+    }
+  };
+
+  private WebDriver driver;
+
+  private int scripts;
+
+  @Before
+  public void openPage()
+      throws IOException
+  {
+    driver = fixture.open("<html><body><div id=\"text\">text</div></body></html>");
+  }
+
+  @After
+  public void clearProperty()
+  {
+    System.clearProperty(ScriptRegistry.ENABLED);
+  }
+
+  @Test
+  public void test_installedOncePerDocument()
+  {
+    Assert.assertFalse(isInstalled());
+    Assert.assertEquals("text 1", execute(TEXT, " 1", 1));
+    Assert.assertTrue(isInstalled());
+    Assert.assertEquals("text 2", execute(ScriptRegistry.get("test.text"), " 2", 1));
+
+    // a page loaded through the framework gets the scripts with the first
+    // invocation
+    driver.navigate().refresh();
+    DocumentGeneration.next(driver);
+    Assert.assertFalse(isInstalled());
+    Assert.assertEquals("text 3", execute(TEXT, " 3", 1));
+    Assert.assertTrue(isInstalled());
+
+    // a navigation around the framework is found out by the invocation
+    driver.navigate().refresh();
+    Assert.assertFalse(isInstalled());
+    Assert.assertEquals("text 4", execute(TEXT, " 4", 2));
+    Assert.assertTrue(isInstalled());
+    Assert.assertEquals("text 5", execute(TEXT, " 5", 1));
+  }
+
+  @Test
+  public void test_disabled()
+  {
+    System.setProperty(ScriptRegistry.ENABLED, "false");
+
+    Assert.assertEquals("text 1", TEXT.execute(driver, driver.findElement(By.id("text")), " 1"));
+    Assert.assertFalse(isInstalled());
+  }
+
+  @Test
+  public void test_register()
+  {
+    Assert.assertSame(TEXT, ScriptRegistry.register("test.text", TEXT.getBody()));
+
+    try {
+      ScriptRegistry.register("test.text", "return 1;");
+      Assert.fail("the id is taken");
+    }
+    catch (IllegalStateException e) {
+      // expected
+    }
+
+    try {
+      ScriptRegistry.get("test.unknown");
+      Assert.fail("the id is not registered");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private Object execute(ScriptRegistry.Script script, String suffix, int expectedCommands)
+  {
+    WebElement text = driver.findElement(By.id("text"));
+    int before = scripts;
+    Object result = script.execute(driver, text, suffix);
+    Assert.assertEquals("commands sent", expectedCommands, scripts - before);
+    return result;
+  }
+
+  private boolean isInstalled()
+  {
+    return Boolean.TRUE.equals(((JavascriptExecutor) driver).executeScript("return !!window.seautoScripts;"));
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.html;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.partnet.automation.HtmlFixture;
+
+public class TestTableReader
+{
+
+  private static final String PAGE = "<html><body>"
+      + "<table id=\"cars\">"
+      + "<thead><tr><th>Make</th><th>Model</th><th>Status</th></tr></thead>"
+      + "<tbody>"
+      + "<tr><td>Ford</td><td>Focus</td><td>Active</td></tr>"
+      + "<tr><td>Geo</td><td>Metro</td><td>Inactive</td></tr>"
+      + "<tr><td>Saab</td><td>900</td><td>Active</td></tr>"
+      + "<tr><td>Audi</td><td>A4</td></tr>"
+      + "</tbody>"
+      + "<tfoot><tr><td>4 cars</td></tr></tfoot>"
+      + "</table>"
+      + "<table id=\"plain\"><tr><th>Key</th><th></th></tr><tr><td>a</td><td>1</td></tr></table>"
+      + "</body></html>";
+
+  @Rule
+  public final HtmlFixture fixture = new HtmlFixture();
+
+  private WebDriver driver;
+
+  private WebElement cars;
+
+  @Before
+  public void openPage()
+      throws IOException
+  {
+    driver = fixture.open(PAGE);
+    cars = driver.findElement(By.id("cars"));
+  }
+
+  @Test
+  public void test_readAllColumns()
+  {
+    List<Map<String, String>> rows = new TableReader(driver, cars).read();
+
+    Assert.assertEquals(4, rows.size());
+    Assert.assertEquals(Arrays.asList("Make", "Model", "Status"), Arrays.asList(rows.get(0).keySet().toArray()));
+    Assert.assertEquals("Focus", rows.get(0).get("Model"));
+    Assert.assertTrue(rows.get(3).containsKey("Status"));
+    Assert.assertNull(rows.get(3).get("Status"));
+
+    List<Map<String, String>> plain = new TableReader(driver, driver.findElement(By.id("plain"))).read();
+    Assert.assertEquals(1, plain.size());
+    Assert.assertEquals("1", plain.get(0).get("1"));
+  }
+
+  @Test
+  public void test_readFilteredColumns()
+  {
+    List<Map<String, String>> rows = new TableReader(driver, cars).columns("Model", "Make").where("Status", "Active").read();
+
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals(Arrays.asList("Model", "Make"), Arrays.asList(rows.get(1).keySet().toArray()));
+    Assert.assertEquals("Saab", rows.get(1).get("Make"));
+  }
+
+  @Test
+  public void test_readPages()
+  {
+    Iterator<Map<String, String>> rows = new TableReader(driver, cars).columns("Make").pageSize(1).iterator();
+
+    for (String make : Arrays.asList("Ford", "Geo", "Saab", "Audi")) {
+      Assert.assertTrue(rows.hasNext());
+      Assert.assertEquals(make, rows.next().get("Make"));
+    }
+    Assert.assertFalse(rows.hasNext());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_unknownColumn()
+  {
+    new TableReader(driver, cars).columns("Year").read();
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.partnet.automation.page;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.CacheLookup;
+import org.openqa.selenium.support.FindBy;
+
+import com.partnet.automation.HtmlFixture;
+import com.partnet.automation.page.panel.Panel;
+
+public class TestPageBinding
+{
+
+  @Rule
+  public final HtmlFixture fixture = new HtmlFixture();
+
+  private WebDriver driver;
+
+  @Before
+  public void openPage()
+      throws IOException
+  {
+    driver = fixture.open("<html><body><h1 id=\"title\">Title</h1><input name=\"search\" value=\"term\"/>"
+        + "<ul><li class=\"item\">one</li><li class=\"item\">two</li></ul></body></html>");
+  }
+
+  @Test
+  public void test_bindingCachedPerClass()
+  {
+    PageBinding binding = PageBinding.of(ItemsPanel.class);
+    Assert.assertSame(binding, PageBinding.of(ItemsPanel.class));
+    Assert.assertNotSame(binding, PageBinding.of(BasePanel.class));
+    Assert.assertFalse(binding.isGenerated());
+
+    // inherited fields are bound too, unannotated lists and other fields are not
+    Assert.assertEquals(4, binding.getFieldCount());
+    Assert.assertEquals(1, PageBinding.of(BasePanel.class).getFieldCount());
+  }
+
+  @Test
+  public void test_newInstanceAndInitElements()
+      throws Exception
+  {
+    PageBinding binding = PageBinding.of(ItemsPanel.class);
+    ItemsPanel panel = (ItemsPanel) binding.newInstance(WebDriver.class, driver);
+    binding.initElements(driver, panel);
+
+    Assert.assertEquals("Title", panel.title.getText());
+    Assert.assertEquals("term", panel.search.getAttribute("value"));
+    Assert.assertEquals(2, panel.items.size());
+    Assert.assertEquals("two", panel.items.get(1).getText());
+    Assert.assertEquals("term", panel.cachedSearch.getAttribute("value"));
+    Assert.assertNull(panel.unannotated);
+
+    // each instance gets its own proxies, found against the current page
+    ItemsPanel other = (ItemsPanel) binding.newInstance(WebDriver.class, driver);
+    binding.initElements(driver, other);
+    Assert.assertNotSame(panel.title, other.title);
+    Assert.assertEquals("Title", other.title.getText());
+  }
+
+  @Test(expected = NoSuchMethodException.class)
+  public void test_missingConstructor()
+      throws Exception
+  {
+    PageBinding.of(ItemsPanel.class).newInstance(String.class, "driver");
+  }
+
+  public static class BasePanel
+      extends Panel
+  {
+
+    @FindBy(id = "title")
+    WebElement title;
+
+    public BasePanel(WebDriver webDriver)
+    {
+      super(webDriver);
+    }
+  }
+
+  public static class ItemsPanel
+      extends BasePanel
+  {
+
+    // located by id or name of the field
+    WebElement search;
+
+    @CacheLookup
+    @FindBy(name = "search")
+    WebElement cachedSearch;
+
+    @FindBy(className = "item")
+    List<WebElement> items;
+
+    List<WebElement> unannotated;
+
+    String text;
+
+    public ItemsPanel(WebDriver webDriver)
+    {
+      super(webDriver);
+    }
+  }
+}
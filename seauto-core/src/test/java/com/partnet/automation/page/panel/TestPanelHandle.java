@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.partnet.automation.page.panel;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+
+import com.partnet.automation.HtmlFixture;
+
+public class TestPanelHandle
+{
+
+  @Rule
+  public final HtmlFixture fixture = new HtmlFixture();
+
+  private WebDriver driver;
+
+  private int created;
+
+  private final PanelProvider panelProvider = new PanelProvider() {
+
+    @Override
+    public <T extends Panel> T get(Class<T> clazz)
+    {
+      created++;
+      return clazz.cast(new TestPanel(driver));
+    }
+  };
+
+  @Before
+  public void openPage()
+      throws IOException
+  {
+    driver = fixture.open("<html><body><div id=\"panel\">panel</div><button id=\"reload\" onclick=\"location.reload();\">reload</button></body></html>");
+  }
+
+  @After
+  public void closePage()
+  {
+    System.clearProperty(PanelHandle.DOCUMENT_CHECK);
+  }
+
+  @Test
+  public void test_createdOncePerDocument()
+  {
+    PanelHandle<TestPanel> handle = new PanelHandle<>(panelProvider, TestPanel.class, driver);
+    Assert.assertFalse(handle.isCreated());
+    Assert.assertEquals(0, created);
+
+    TestPanel panel = handle.get();
+    Assert.assertTrue(handle.isCreated());
+    Assert.assertSame(panel, handle.get());
+    Assert.assertEquals(1, created);
+
+    // a navigation started by the view creates the panel again, for the new
+    // document
+    panel.reload();
+    TestPanel refreshed = handle.get();
+    Assert.assertNotSame(panel, refreshed);
+    Assert.assertSame(refreshed, handle.get());
+    Assert.assertEquals(2, created);
+
+    handle.invalidate();
+    Assert.assertFalse(handle.isCreated());
+    Assert.assertNotSame(refreshed, handle.get());
+    Assert.assertEquals(3, created);
+  }
+
+  @Test
+  public void test_navigationAroundViewKeepsPanel()
+  {
+    PanelHandle<TestPanel> handle = new PanelHandle<>(panelProvider, TestPanel.class, driver);
+
+    TestPanel panel = handle.get();
+    driver.navigate().refresh();
+    Assert.assertSame(panel, handle.get());
+
+    // waiting for the page is not a navigation of its own
+    panel.waitForLoad();
+    Assert.assertSame(panel, handle.get());
+    Assert.assertEquals(1, created);
+  }
+
+  @Test
+  public void test_documentCheckEnabled()
+  {
+    System.setProperty(PanelHandle.DOCUMENT_CHECK, "true");
+    PanelHandle<TestPanel> handle = new PanelHandle<>(panelProvider, TestPanel.class, driver);
+
+    TestPanel panel = handle.get();
+    Assert.assertSame(panel, handle.get());
+
+    driver.navigate().refresh();
+    Assert.assertNotSame(panel, handle.get());
+    Assert.assertEquals(2, created);
+  }
+
+  public static class TestPanel
+      extends Panel
+  {
+
+    public TestPanel(WebDriver webDriver)
+    {
+      super(webDriver);
+    }
+
+    void reload()
+    {
+      clickAndWait(webDriver.findElement(By.id("reload")));
+    }
+
+    void waitForLoad()
+    {
+      waitForPageToLoad();
+    }
+  }
+}
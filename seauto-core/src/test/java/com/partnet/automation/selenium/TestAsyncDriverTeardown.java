@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+public class TestAsyncDriverTeardown
+{
+
+  @Test
+  public void test_quitDoesNotBlockCaller()
+      throws InterruptedException
+  {
+    AsyncDriverTeardown teardown = new AsyncDriverTeardown(1, 1, 10);
+    final CountDownLatch proceed = new CountDownLatch(1);
+
+    teardown.quit(new HtmlUnitDriver(), new AsyncDriverTeardown.DriverStopper() {
+
+      @Override
+      public void stop(WebDriver driver)
+      {
+        awaitQuietly(proceed);
+        driver.quit();
+      }
+    });
+
+    Assert.assertEquals("Quit should still be pending!", 1, teardown.getPendingCount());
+
+    proceed.countDown();
+    teardown.drain();
+
+    Assert.assertEquals(0, teardown.getPendingCount());
+    Assert.assertEquals(1, teardown.getTeardownCount());
+    Assert.assertEquals(0, teardown.getHungQuitCount());
+  }
+
+  @Test
+  public void test_hungQuitIsCounted()
+      throws InterruptedException
+  {
+    AsyncDriverTeardown teardown = new AsyncDriverTeardown(1, 1, 1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+
+    teardown.quit(new HtmlUnitDriver(), new AsyncDriverTeardown.DriverStopper() {
+
+      @Override
+      public void stop(WebDriver driver)
+      {
+        try {
+          Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+        }
+        catch (InterruptedException e) {
+          interrupted.countDown();
+        }
+      }
+    });
+
+    Assert.assertTrue("Hung quit was never interrupted!", interrupted.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals(1, teardown.getHungQuitCount());
+    teardown.drain();
+  }
+
+  @Test
+  public void test_queuedQuitIsNotHung()
+      throws InterruptedException
+  {
+    AsyncDriverTeardown teardown = new AsyncDriverTeardown(1, 2, 1);
+    final AtomicInteger quit = new AtomicInteger();
+    AsyncDriverTeardown.DriverStopper slowStopper = new AsyncDriverTeardown.DriverStopper() {
+
+      @Override
+      public void stop(WebDriver driver)
+      {
+        sleepQuietly(700);
+        quit.incrementAndGet();
+      }
+    };
+
+    // the second quit waits 700ms for the thread, and finishes 1.4s after it was queued
+    teardown.quit(new HtmlUnitDriver(), slowStopper);
+    teardown.quit(new HtmlUnitDriver(), slowStopper);
+    teardown.drain();
+
+    Assert.assertEquals(2, quit.get());
+    Assert.assertEquals(0, teardown.getHungQuitCount());
+    Assert.assertEquals(0, teardown.getPendingCount());
+  }
+
+  private static void sleepQuietly(long millis)
+  {
+    try {
+      Thread.sleep(millis);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch)
+  {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
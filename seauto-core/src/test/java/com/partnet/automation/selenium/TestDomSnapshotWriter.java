@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestDomSnapshotWriter
+{
+
+  private HttpServer server;
+
+  private URL page;
+
+  private volatile String cookieSent;
+
+  @Before
+  public void startServer()
+      throws IOException
+  {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/css/site.css", new Resource("text/css", "body { background: url('../img/bg.png'); }"));
+    server.createContext("/img/logo.png", new Resource("image/png", "PNG"));
+    server.start();
+
+    page = new URL("http://localhost:" + server.getAddress().getPort() + "/app/index.html");
+  }
+
+  @After
+  public void stopServer()
+  {
+    server.stop(0);
+  }
+
+  @Test
+  public void test_resourcesAreInlined()
+      throws IOException
+  {
+    String html = "<html><head><link rel=\"stylesheet\" href=\"/css/site.css\"><script src=\"app.js\"></script></head>"
+        + "<body><img alt=\"logo\" src=\"../img/logo.png\"><script>document.write('x');</script></body></html>";
+
+    String snapshot = new DomSnapshotWriter().snapshot(html, page, "JSESSIONID=abc");
+
+    Assert.assertFalse("Scripts should be removed: " + snapshot, snapshot.contains("<script"));
+    Assert.assertTrue(snapshot, snapshot.contains("<style type=\"text/css\">body { background: url(\"" + new URL(page, "/img/bg.png") + "\"); }</style>"));
+    Assert.assertTrue(snapshot, snapshot.contains("<img alt=\"logo\" src=\"data:image/png;base64,UE5H\">"));
+    Assert.assertEquals("JSESSIONID=abc", cookieSent);
+  }
+
+  @Test
+  public void test_missingResourceIsLinkedAbsolutely()
+  {
+    String snapshot = new DomSnapshotWriter().snapshot("<img src='missing.png'>", page, null);
+
+    Assert.assertEquals("<img src='" + page.toString().replace("index.html", "missing.png") + "'>", snapshot);
+  }
+
+  private class Resource
+      implements HttpHandler
+  {
+    private final String type;
+
+    private final byte[] body;
+
+    Resource(String type, String body)
+    {
+      this.type = type;
+      this.body = body.getBytes();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange)
+        throws IOException
+    {
+      cookieSent = exchange.getRequestHeaders().getFirst("Cookie");
+
+      exchange.getResponseHeaders().add("Content-Type", type);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+}
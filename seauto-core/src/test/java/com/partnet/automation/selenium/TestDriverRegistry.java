@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+
+import com.google.common.collect.ImmutableMap;
+import com.partnet.automation.Browser;
+
+public class TestDriverRegistry
+{
+
+  private final AtomicInteger stopped = new AtomicInteger();
+
+  private final AsyncDriverTeardown.DriverStopper stopper = new AsyncDriverTeardown.DriverStopper() {
+
+    @Override
+    public void stop(WebDriver driver)
+    {
+      stopped.incrementAndGet();
+      driver.quit();
+    }
+  };
+
+  private DriverRegistry registry;
+
+  @After
+  public void shutdown()
+  {
+    registry.shutdown();
+  }
+
+  @Test
+  public void test_driverOfDeadThreadIsReaped()
+      throws InterruptedException
+  {
+    registry = new DriverRegistry(0, 0);
+    final WebDriver driver = new HtmlUnitDriver();
+
+    Thread owner = new Thread() {
+
+      @Override
+      public void run()
+      {
+        registry.register(driver, Browser.HTMLUNIT, stopper);
+      }
+    };
+    owner.start();
+    owner.join();
+
+    Assert.assertEquals(1, registry.reap());
+    Assert.assertEquals(1, stopped.get());
+    Assert.assertEquals(1, registry.getOrphanReapedCount());
+    Assert.assertEquals(0, registry.getLiveCount());
+    Assert.assertFalse("Reaped driver should not be stopped again!", registry.unregister(driver));
+  }
+
+  @Test
+  public void test_idleDriverIsReaped()
+      throws InterruptedException
+  {
+    registry = new DriverRegistry(1, 0);
+    final AtomicInteger released = new AtomicInteger();
+    AsyncDriverTeardown.DriverStopper releaser = new AsyncDriverTeardown.DriverStopper() {
+
+      @Override
+      public void stop(WebDriver driver)
+      {
+        released.incrementAndGet();
+      }
+    };
+    WebDriver driver = new RemoteWebDriver(new StubExecutor(), DesiredCapabilities.htmlUnit());
+    registry.register(driver, Browser.HTMLUNIT, releaser, stopper);
+
+    Thread.sleep(600);
+    driver.getTitle();
+    Thread.sleep(600);
+    Assert.assertEquals("Driver that ran a command should be kept!", 0, registry.reap());
+
+    Thread.sleep(1200);
+    Assert.assertEquals(1, registry.reap());
+    Assert.assertEquals(1, registry.getIdleReapedCount());
+    // the owner is alive and still holds the driver, it must not be released to a pool
+    Assert.assertEquals(1, stopped.get());
+    Assert.assertEquals(0, released.get());
+  }
+
+  @Test
+  public void test_shutdownStopsRegisteredDrivers()
+  {
+    registry = new DriverRegistry(0, 0);
+    registry.register(new HtmlUnitDriver(), Browser.HTMLUNIT, stopper);
+    WebDriver ended = new HtmlUnitDriver();
+    registry.register(ended, Browser.HTMLUNIT, stopper);
+
+    Assert.assertTrue(registry.unregister(ended));
+    registry.shutdown();
+
+    Assert.assertEquals(1, stopped.get());
+    Assert.assertEquals(2, registry.getRegisteredCount());
+  }
+
+  @Test
+  public void test_browserIsResolvedOnce()
+  {
+    registry = new DriverRegistry(0, 0);
+    WebDriver launched = new RemoteWebDriver(new StubExecutor(), DesiredCapabilities.htmlUnit());
+    WebDriver unknown = new HtmlUnitDriver();
+
+    // the browser passed at launch wins over the driver's capabilities
+    registry.register(launched, Browser.PHANTOMJS, stopper);
+
+    Assert.assertEquals(Browser.PHANTOMJS, registry.getBrowser(launched));
+    Assert.assertEquals("htmlunit", registry.getCapabilities(launched).getBrowserName());
+    Assert.assertEquals(Browser.HTMLUNIT, registry.getBrowser(unknown));
+    Assert.assertTrue(registry.unregister(launched));
+    Assert.assertEquals(Browser.PHANTOMJS, registry.getBrowser(launched));
+  }
+
+  /**
+   * Answers every command without a browser.
+   */
+  private static class StubExecutor
+      implements CommandExecutor
+  {
+    @Override
+    public Response execute(Command command)
+    {
+      Response response = new Response(new SessionId("stub"));
+      response.setStatus(0);
+      response.setValue(DriverCommand.NEW_SESSION.equals(command.getName()) ? ImmutableMap.of("browserName", "htmlunit") : "");
+      return response;
+    }
+  }
+}
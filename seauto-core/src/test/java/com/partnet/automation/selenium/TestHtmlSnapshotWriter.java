@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestHtmlSnapshotWriter
+{
+
+  private static final String HTML = "<html><body><a href=\"/home\">Caf\u00e9</a><img src= \"/logo.png\"></body></html>";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void test_urlsAreRewrittenInPageCharset()
+      throws IOException
+  {
+    File file = new File(folder.getRoot(), "page.html");
+
+    new HtmlSnapshotWriter(false, false).write(HTML, "=\"http://site/", StandardCharsets.ISO_8859_1, file);
+
+    Assert.assertEquals("<html><body><a href=\"http://site/home\">Caf\u00e9</a><img src=\"http://site/logo.png\"></body></html>",
+        FileUtils.readFileToString(file, StandardCharsets.ISO_8859_1.name()));
+  }
+
+  @Test
+  public void test_gzippedHtml()
+      throws IOException
+  {
+    File file = new File(folder.getRoot(), "page.html.gz");
+
+    new HtmlSnapshotWriter(true, false).write(HTML, null, StandardCharsets.UTF_8, file);
+
+    try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+      Assert.assertEquals(HTML, IOUtils.toString(in, StandardCharsets.UTF_8.name()));
+    }
+  }
+}
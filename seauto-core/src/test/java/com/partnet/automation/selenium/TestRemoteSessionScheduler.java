@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestRemoteSessionScheduler
+{
+
+  private HttpServer hub;
+
+  private URL hubUrl;
+
+  private final AtomicInteger statusRequests = new AtomicInteger();
+
+  private volatile int busyPolls;
+
+  @Before
+  public void startHub()
+      throws IOException
+  {
+    hub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    hub.createContext(RemoteSessionScheduler.DEFAULT_HUB_STATUS_PATH, new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange)
+          throws IOException
+      {
+        int free = statusRequests.incrementAndGet() > busyPolls ? 1 : 0;
+        byte[] body = String.format("{\"success\":true,\"slotCounts\":{\"free\":%d,\"total\":1}}", free).getBytes("UTF-8");
+
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      }
+    });
+    hub.start();
+
+    hubUrl = new URL("http://localhost:" + hub.getAddress().getPort() + "/wd/hub");
+  }
+
+  @After
+  public void stopHub()
+  {
+    hub.stop(0);
+  }
+
+  @Test
+  public void test_waitsForFreeSlotAndRetries()
+  {
+    busyPolls = 2;
+    RemoteSessionScheduler scheduler = new RemoteSessionScheduler(3, 10, 50, 1, RemoteSessionScheduler.DEFAULT_HUB_STATUS_PATH, 10, 10);
+    final AtomicInteger attempts = new AtomicInteger();
+
+    WebDriver driver = scheduler.newSession(hubUrl, DesiredCapabilities.htmlUnit(), new RemoteSessionScheduler.SessionFactory() {
+
+      @Override
+      public WebDriver create(URL url, DesiredCapabilities capabilities)
+      {
+        Assert.assertTrue("Session requested while the hub was full!", statusRequests.get() > busyPolls);
+
+        if (attempts.incrementAndGet() < 3) {
+          throw new WebDriverException("No free slot");
+        }
+        return new HtmlUnitDriver();
+      }
+    });
+
+    driver.quit();
+    Assert.assertEquals(3, attempts.get());
+    Assert.assertEquals(busyPolls + 3, statusRequests.get());
+  }
+
+  @Test(expected = WebDriverException.class)
+  public void test_givesUpAfterLastAttempt()
+  {
+    RemoteSessionScheduler scheduler = new RemoteSessionScheduler(2, 10, 50, 1, null, 10, 10);
+
+    scheduler.newSession(hubUrl, DesiredCapabilities.htmlUnit(), new RemoteSessionScheduler.SessionFactory() {
+
+      @Override
+      public WebDriver create(URL url, DesiredCapabilities capabilities)
+      {
+        throw new WebDriverException("Hub is down");
+      }
+    });
+  }
+
+  @Test
+  public void test_concurrentRequestsAreCapped()
+      throws Exception
+  {
+    RemoteSessionScheduler scheduler = new RemoteSessionScheduler(1, 10, 50, 2, null, 10, 10);
+    CountingFactory factory = new CountingFactory();
+
+    requestSessions(scheduler, factory, DesiredCapabilities.htmlUnit(), DesiredCapabilities.firefox(), DesiredCapabilities.htmlUnit(), DesiredCapabilities.firefox(),
+        DesiredCapabilities.htmlUnit(), DesiredCapabilities.firefox());
+
+    Assert.assertTrue("More than 2 requests were in flight: " + factory.maxInFlight.get(), factory.maxInFlight.get() <= 2);
+  }
+
+  @Test
+  public void test_requestsForSameCapabilitiesRunUpToCap()
+      throws Exception
+  {
+    RemoteSessionScheduler scheduler = new RemoteSessionScheduler(1, 10, 50, 2, null, 10, 10);
+    CountingFactory factory = new CountingFactory();
+
+    requestSessions(scheduler, factory, DesiredCapabilities.htmlUnit(), DesiredCapabilities.htmlUnit(), DesiredCapabilities.htmlUnit(), DesiredCapabilities.htmlUnit(),
+        DesiredCapabilities.htmlUnit(), DesiredCapabilities.htmlUnit());
+
+    Assert.assertEquals(2, factory.maxInFlight.get());
+  }
+
+  @Test
+  public void test_backoffGivesUpTurn()
+      throws Exception
+  {
+    // one turn per capability set, and a long backoff
+    final RemoteSessionScheduler scheduler = new RemoteSessionScheduler(2, 2000, 2000, 1, null, 10, 10);
+    final AtomicInteger failures = new AtomicInteger();
+
+    final RemoteSessionScheduler.SessionFactory factory = new RemoteSessionScheduler.SessionFactory() {
+
+      @Override
+      public WebDriver create(URL url, DesiredCapabilities capabilities)
+      {
+        if (failures.incrementAndGet() == 1) {
+          throw new WebDriverException("No free slot");
+        }
+        return new HtmlUnitDriver();
+      }
+    };
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<WebDriver> backingOff = executor.submit(new Callable<WebDriver>() {
+
+      @Override
+      public WebDriver call()
+      {
+        return scheduler.newSession(hubUrl, DesiredCapabilities.htmlUnit(), factory);
+      }
+    });
+    while (failures.get() == 0) {
+      Thread.sleep(10);
+    }
+
+    long start = System.currentTimeMillis();
+    scheduler.newSession(hubUrl, DesiredCapabilities.htmlUnit(), factory).quit();
+    long waited = System.currentTimeMillis() - start;
+
+    backingOff.get().quit();
+    executor.shutdown();
+
+    Assert.assertTrue("Waited " + waited + "ms behind a request in backoff", waited < 1000);
+  }
+
+  private void requestSessions(final RemoteSessionScheduler scheduler, final CountingFactory factory, DesiredCapabilities... capabilities)
+      throws Exception
+  {
+    ExecutorService executor = Executors.newFixedThreadPool(capabilities.length);
+    List<Future<WebDriver>> sessions = new ArrayList<>();
+    for (final DesiredCapabilities requested : capabilities) {
+      sessions.add(executor.submit(new Callable<WebDriver>() {
+
+        @Override
+        public WebDriver call()
+        {
+          return scheduler.newSession(hubUrl, requested, factory);
+        }
+      }));
+    }
+
+    for (Future<WebDriver> session : sessions) {
+      session.get().quit();
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Creates sessions slowly, and records how many were created at the same
+   * time.
+   */
+  private static class CountingFactory
+      implements RemoteSessionScheduler.SessionFactory
+  {
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Override
+    public WebDriver create(URL url, DesiredCapabilities capabilities)
+    {
+      int current = inFlight.incrementAndGet();
+      int max;
+      while ((max = maxInFlight.get()) < current && !maxInFlight.compareAndSet(max, current)) {
+        // retry
+      }
+      try {
+        Thread.sleep(100);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      inFlight.decrementAndGet();
+      return new HtmlUnitDriver();
+    }
+  }
+}
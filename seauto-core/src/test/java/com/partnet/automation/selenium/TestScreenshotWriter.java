@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestScreenshotWriter
+{
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void test_queuedScreenshotsAreWrittenOnFlush()
+      throws IOException
+  {
+    ScreenshotWriter writer = new ScreenshotWriter(1, 2, 1, "png");
+    byte[] png = createPng(40, 20);
+
+    for (int i = 0; i < 5; i++) {
+      writer.write(png, new File(folder.getRoot(), i + ".png").getPath());
+    }
+    writer.flush();
+
+    Assert.assertEquals(0, writer.getPendingCount());
+    Assert.assertEquals(5, writer.getWrittenCount());
+    Assert.assertEquals(png.length, new File(folder.getRoot(), "4.png").length());
+  }
+
+  @Test
+  public void test_screenshotIsDownsizedAndReencoded()
+      throws IOException
+  {
+    ScreenshotWriter writer = new ScreenshotWriter(0, 1, 0.5, "jpg");
+
+    File file = writer.write(createPng(40, 20), new File(folder.getRoot(), "shot.png").getPath());
+
+    Assert.assertEquals("shot.jpg", file.getName());
+    BufferedImage image = ImageIO.read(file);
+    Assert.assertEquals(20, image.getWidth());
+    Assert.assertEquals(10, image.getHeight());
+
+    // a path built with the extension is written as given
+    Assert.assertEquals("jpg", writer.getExtension());
+    File asGiven = new File(folder.getRoot(), "link." + writer.getExtension());
+    Assert.assertEquals(asGiven, writer.write(createPng(40, 20), asGiven.getPath()));
+    Assert.assertTrue(asGiven.isFile());
+  }
+
+  private static byte[] createPng(int width, int height)
+      throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.service.DriverService;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestSharedDriverServices
+{
+
+  private HttpServer server;
+
+  private StubService stub;
+
+  private SharedDriverServices services;
+
+  private volatile boolean refuseSessions;
+
+  @Before
+  public void startServer()
+      throws IOException
+  {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange)
+          throws IOException
+      {
+        byte[] body;
+        int code;
+        if (refuseSessions) {
+          body = "{\"status\":13,\"value\":{\"message\":\"no browser\"}}".getBytes("UTF-8");
+          code = 500;
+        }
+        else {
+          body = "{\"sessionId\":\"stub\",\"status\":0,\"value\":{\"browserName\":\"htmlunit\"}}".getBytes("UTF-8");
+          code = 200;
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      }
+    });
+    server.start();
+
+    stub = new StubService(server.getAddress().getPort());
+    services = new SharedDriverServices(false);
+  }
+
+  @After
+  public void stopServer()
+  {
+    services.stopAll();
+    server.stop(0);
+  }
+
+  @Test
+  public void test_serviceIsReusedBetweenSessions()
+  {
+    newSession().quit();
+    newSession().quit();
+
+    Assert.assertEquals(1, services.getStartCount());
+    Assert.assertEquals(1, stub.starts);
+    Assert.assertEquals(1, services.getRunningCount());
+  }
+
+  @Test
+  public void test_deadServiceIsRestarted()
+  {
+    newSession().quit();
+    stub.running = false;
+    newSession().quit();
+
+    Assert.assertEquals(2, services.getStartCount());
+    Assert.assertEquals(1, services.getRunningCount());
+  }
+
+  @Test
+  public void test_failedSessionDoesNotRestartRunningService()
+  {
+    newSession().quit();
+    refuseSessions = true;
+    try {
+      newSession();
+      Assert.fail("session should not have been created");
+    }
+    catch (WebDriverException e) {
+      // expected
+    }
+
+    Assert.assertEquals(1, services.getStartCount());
+    Assert.assertTrue(stub.running);
+  }
+
+  private WebDriver newSession()
+  {
+    return services.newSession("stub", new SharedDriverServices.ServiceBuilder() {
+
+      @Override
+      public DriverService build()
+      {
+        return stub;
+      }
+    }, DesiredCapabilities.htmlUnit());
+  }
+
+  /**
+   * Driver service that does not start a process, sessions are served by the
+   * test's http server.
+   */
+  private static class StubService
+      extends DriverService
+  {
+    private volatile boolean running;
+
+    private int starts;
+
+    StubService(int port)
+        throws IOException
+    {
+      super(new File("stub"), port, ImmutableList.<String> of(), ImmutableMap.<String, String> of());
+    }
+
+    @Override
+    public void start()
+    {
+      running = true;
+      starts++;
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+      return running;
+    }
+
+    @Override
+    public void stop()
+    {
+      running = false;
+    }
+  }
+}
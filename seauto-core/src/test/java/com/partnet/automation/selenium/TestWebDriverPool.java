@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import com.partnet.automation.Browser;
+
+public class TestWebDriverPool
+{
+
+  private final AtomicInteger created = new AtomicInteger();
+
+  private final AtomicInteger destroyed = new AtomicInteger();
+
+  private final WebDriverPool.DriverFactory factory = new WebDriverPool.DriverFactory() {
+
+    @Override
+    public WebDriver create(Browser browser)
+    {
+      created.incrementAndGet();
+      return new HtmlUnitDriver();
+    }
+
+    @Override
+    public void destroy(WebDriver driver)
+    {
+      destroyed.incrementAndGet();
+      driver.quit();
+    }
+  };
+
+  private WebDriverPool pool;
+
+  @After
+  public void tearDown()
+  {
+    pool.shutdown();
+  }
+
+  @Test
+  public void test_releasedSessionIsReused()
+  {
+    pool = new WebDriverPool(factory, 1, 0, 0);
+
+    WebDriver first = pool.acquire(Browser.HTMLUNIT);
+    pool.release(first);
+    WebDriver second = pool.acquire(Browser.HTMLUNIT);
+
+    Assert.assertSame("Released session was not handed out again!", first, second);
+    Assert.assertEquals(1, created.get());
+    Assert.assertEquals(0, destroyed.get());
+  }
+
+  @Test
+  public void test_sessionReplacedAfterMaxReuse()
+  {
+    pool = new WebDriverPool(factory, 1, 2, 0);
+
+    WebDriver first = pool.acquire(Browser.HTMLUNIT);
+    pool.release(first);
+    Assert.assertSame(first, pool.acquire(Browser.HTMLUNIT));
+    pool.release(first);
+
+    WebDriver replacement = pool.acquire(Browser.HTMLUNIT);
+    Assert.assertNotSame("Session was reused past the max reuse count!", first, replacement);
+    Assert.assertEquals(1, destroyed.get());
+    Assert.assertEquals(1, pool.getLiveCount(Browser.HTMLUNIT));
+  }
+
+  @Test
+  public void test_unhealthySessionIsDiscarded()
+  {
+    pool = new WebDriverPool(factory, 1, 0, 0);
+
+    WebDriver first = pool.acquire(Browser.HTMLUNIT);
+    pool.release(first);
+    first.quit();
+
+    WebDriver second = pool.acquire(Browser.HTMLUNIT);
+    Assert.assertNotSame("Dead session was handed out!", first, second);
+    Assert.assertEquals(1, pool.getLiveCount(Browser.HTMLUNIT));
+  }
+
+  @Test
+  public void test_overflowSessionIsNotPooled()
+  {
+    pool = new WebDriverPool(factory, 1, 0, 0);
+
+    WebDriver first = pool.acquire(Browser.HTMLUNIT);
+    WebDriver second = pool.acquire(Browser.HTMLUNIT);
+    pool.release(second);
+    pool.release(first);
+
+    Assert.assertEquals(1, destroyed.get());
+    Assert.assertEquals(1, pool.getIdleCount(Browser.HTMLUNIT));
+  }
+
+  @Test
+  public void test_discardedSessionIsNotReused()
+  {
+    pool = new WebDriverPool(factory, 1, 0, 0);
+
+    WebDriver first = pool.acquire(Browser.HTMLUNIT);
+    pool.discard(first);
+    Assert.assertEquals(1, destroyed.get());
+
+    WebDriver second = pool.acquire(Browser.HTMLUNIT);
+    Assert.assertNotSame("Discarded session was handed out again!", first, second);
+    pool.release(second);
+    Assert.assertEquals(1, pool.getLiveCount(Browser.HTMLUNIT));
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.selenium;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import com.partnet.automation.HtmlFixture;
+
+public class TestWindowIndex
+{
+
+  @Rule
+  public final HtmlFixture fixture = new HtmlFixture();
+
+  private WebDriver driver;
+
+  @Before
+  public void openPage()
+      throws IOException
+  {
+    driver = fixture.open("<html><head><title>Main</title></head><body></body></html>");
+  }
+
+  @Test
+  public void test_newWindows()
+  {
+    WindowIndex index = new WindowIndex(driver);
+    String main = driver.getWindowHandle();
+
+    Assert.assertFalse(index.refresh());
+    index.switchedTo(main, "main", fixture.getUrl(), "Main");
+
+    // some drivers don't list the handles in the order the windows opened
+    String first = open();
+    Assert.assertTrue(index.refresh());
+    String second = open();
+    Assert.assertTrue(index.refresh());
+
+    // the latest new window first, then the ones found before
+    Assert.assertEquals(Arrays.asList(second, first, main), index.getCandidates("main", null, true));
+    Assert.assertEquals(Arrays.asList(main, first, second), index.getCandidates("main", null, false));
+
+    index.switchedTo(second, "help", "about:blank", "Help");
+    Assert.assertEquals(Arrays.asList(first, main, second), index.getCandidates("other", null, true));
+    Assert.assertEquals(Arrays.asList(second, main, first), index.getCandidates("other", "Help", false));
+
+    List<WindowIndex.Window> windows = index.getWindows();
+    Assert.assertEquals(3, windows.size());
+    Assert.assertEquals(main, windows.get(1).getOpener());
+    Assert.assertEquals("Help", windows.get(2).getTitle());
+  }
+
+  @Test
+  public void test_closedWindows()
+  {
+    WindowIndex index = new WindowIndex(driver);
+    String main = driver.getWindowHandle();
+    String opened = open();
+    Assert.assertTrue(index.refresh());
+
+    driver.switchTo().window(opened).close();
+    driver.switchTo().window(main);
+
+    Assert.assertFalse(index.refresh());
+    Assert.assertEquals(Arrays.asList(main), index.getCandidates("main", null, false));
+  }
+
+  private String open()
+  {
+    List<String> before = Arrays.asList(driver.getWindowHandles().toArray(new String[0]));
+    ((JavascriptExecutor) driver).executeScript("window.open('about:blank');");
+    for (String handle : driver.getWindowHandles()) {
+      if (!before.contains(handle)) {
+        return handle;
+      }
+    }
+    throw new IllegalStateException("No window was opened");
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.wait;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+public class TestAdaptiveWait
+{
+
+  private final WebDriver driver = new HtmlUnitDriver();
+
+  @After
+  public void resetStrategy()
+  {
+    AdaptiveWait.setPollingStrategy(WaitType.AJAX, null);
+    driver.quit();
+  }
+
+  @Test
+  public void test_exponentialDelays()
+  {
+    PollingStrategy strategy = new ExponentialPollingStrategy(50, 2, 1000);
+
+    List<Long> delays = Arrays.asList(strategy.getDelayMillis(1), strategy.getDelayMillis(2), strategy.getDelayMillis(3), strategy.getDelayMillis(4),
+        strategy.getDelayMillis(5), strategy.getDelayMillis(6), strategy.getDelayMillis(100));
+
+    Assert.assertEquals(Arrays.asList(50L, 100L, 200L, 400L, 800L, 1000L, 1000L), delays);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_maxBelowInitial()
+  {
+    new ExponentialPollingStrategy(500, 2, 100);
+  }
+
+  @Test
+  public void test_pollsWithStrategyOfType()
+  {
+    final int[] delays = new int[1];
+    AdaptiveWait.setPollingStrategy(WaitType.AJAX, new PollingStrategy() {
+
+      @Override
+      public long getDelayMillis(int poll)
+      {
+        delays[0]++;
+        return 10;
+      }
+    });
+
+    AdaptiveWait wait = new AdaptiveWait(driver, 5, WaitType.AJAX);
+    long start = System.currentTimeMillis();
+    wait.until(new ExpectedCondition<Boolean>() {
+
+      private int checks;
+
+      @Override
+      public Boolean apply(WebDriver driver)
+      {
+        return ++checks == 5;
+      }
+    });
+
+    Assert.assertEquals(5, wait.getPollCount());
+    Assert.assertEquals(4, delays[0]);
+    Assert.assertTrue(System.currentTimeMillis() - start < 500);
+  }
+
+  @Test
+  public void test_shortWaitEndsSoonAfterCondition()
+  {
+    final long ready = System.currentTimeMillis() + 120;
+
+    AdaptiveWait wait = new AdaptiveWait(driver, 5, WaitType.ELEMENT);
+    wait.until(new ExpectedCondition<Boolean>() {
+
+      @Override
+      public Boolean apply(WebDriver driver)
+      {
+        return System.currentTimeMillis() >= ready;
+      }
+    });
+
+    // 50 + 100 + 200ms, where a fixed interval would have taken 500ms
+    Assert.assertTrue(System.currentTimeMillis() - ready < 300);
+    Assert.assertTrue(wait.getPollCount() <= 4);
+  }
+
+  @Test(expected = TimeoutException.class)
+  public void test_timeout()
+  {
+    new AdaptiveWait(driver, 1, WaitType.ELEMENT).until(new ExpectedCondition<Boolean>() {
+
+      @Override
+      public Boolean apply(WebDriver driver)
+      {
+        return false;
+      }
+    });
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.wait;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.pagefactory.ByChained;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+
+import com.partnet.automation.HtmlFixture;
+
+public class TestEventDrivenWait
+{
+
+  private static final String PAGE = "<html><body>"
+      + "<input id=\"field\" value=\"\"/>"
+      + "<script>"
+      + "setTimeout(function() {"
+      + "  var late = document.createElement('div');"
+      + "  late.id = 'late';"
+      + "  late.appendChild(document.createTextNode('late'));"
+      + "  document.body.appendChild(late);"
+      + "  document.getElementById('field').value = 'populated 42';"
+      + "}, 300);"
+      + "</script>"
+      + "</body></html>";
+
+  @Rule
+  public final HtmlFixture fixture = new HtmlFixture();
+
+  private WebDriver driver;
+
+  @Before
+  public void openPage()
+      throws IOException
+  {
+    driver = fixture.open(PAGE);
+  }
+
+  @Test
+  public void test_elementAddedWhileWatching()
+  {
+    By late = By.id("late");
+    long start = System.currentTimeMillis();
+
+    WebElement element = new EventDrivenWait(driver, 10).until(PagePredicate.presenceOf(late), ExpectedConditions.presenceOfElementLocated(late));
+
+    Assert.assertEquals("late", element.getText());
+    Assert.assertTrue("Wait took until the end of a watch", System.currentTimeMillis() - start < 4000);
+  }
+
+  @Test
+  public void test_valueSetByScript()
+  {
+    final WebElement field = driver.findElement(By.id("field"));
+
+    Boolean populated = new EventDrivenWait(driver, 10).until(PagePredicate.valueMatches(field, "populated \\d+"), new ExpectedCondition<Boolean>() {
+
+      @Override
+      public Boolean apply(WebDriver driver)
+      {
+        return field.getAttribute("value").matches("populated \\d+");
+      }
+    });
+
+    Assert.assertTrue(populated);
+  }
+
+  @Test
+  public void test_timeout()
+  {
+    By missing = By.cssSelector("div.missing");
+    long start = System.currentTimeMillis();
+
+    try {
+      new EventDrivenWait(driver, 1).withMessage("never added").until(PagePredicate.presenceOf(missing), ExpectedConditions.presenceOfElementLocated(missing));
+      Assert.fail("Wait for a missing element did not time out");
+    }
+    catch (TimeoutException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("never added"));
+    }
+    Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+  }
+
+  @Test
+  public void test_pollingKeepsRestOfDeadline()
+  {
+    // too short to watch the page, the wait falls back to polling with less
+    // than a second left
+    driver.manage().timeouts().setScriptTimeout(50, TimeUnit.MILLISECONDS);
+    ((JavascriptExecutor) driver).executeScript("setTimeout(function() {"
+        + "  var later = document.createElement('div');"
+        + "  later.id = 'later';"
+        + "  document.body.appendChild(later);"
+        + "}, 600);");
+    By later = By.id("later");
+
+    WebElement element = new EventDrivenWait(driver, 1).until(PagePredicate.presenceOf(later), ExpectedConditions.presenceOfElementLocated(later));
+
+    Assert.assertEquals("later", element.getAttribute("id"));
+  }
+
+  @Test
+  public void test_locators()
+  {
+    Assert.assertEquals(Arrays.asList("id", "late"), PagePredicate.toLocator(By.id("late")));
+    Assert.assertEquals(Arrays.asList("css", "div > a.b"), PagePredicate.toLocator(By.cssSelector("div > a.b")));
+    Assert.assertEquals(Arrays.asList("xpath", "//a[@x='1']"), PagePredicate.toLocator(By.xpath("//a[@x='1']")));
+    Assert.assertNull(PagePredicate.presenceOf(new ByChained(By.id("a"), By.id("b"))));
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.wait;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import com.partnet.automation.HtmlFixture;
+import com.partnet.automation.page.Site;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestNetworkIdleCondition
+{
+
+  private static final String PAGE = "<!DOCTYPE html><html><body><div id=\"result\"></div>"
+      + "<script>"
+      + "function load() {"
+      + "  var xhr = new XMLHttpRequest();"
+      + "  xhr.onreadystatechange = function() {"
+      + "    if (xhr.readyState === 4) { document.getElementById('result').innerHTML = xhr.responseText; }"
+      + "  };"
+      + "  xhr.open('GET', '/slow', true);"
+      + "  xhr.send();"
+      + "  window.startedAt = new Date().getTime();"
+      + "}"
+      + "window.onhashchange = load;"
+      + "</script></body></html>";
+
+  @Rule
+  public final HtmlFixture fixture = new HtmlFixture();
+
+  private HttpServer server;
+
+  private WebDriver driver;
+
+  private String url;
+
+  @Before
+  public void openPage()
+      throws IOException
+  {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/index.html", new Resource(0, PAGE));
+    server.createContext("/slow", new Resource(700, "loaded"));
+    server.start();
+
+    driver = fixture.getDriver();
+    url = "http://localhost:" + server.getAddress().getPort() + "/index.html";
+    driver.get(url);
+  }
+
+  @After
+  public void closePage()
+  {
+    System.clearProperty(NetworkIdleCondition.WAIT_FOR_IDLE);
+    System.clearProperty(NetworkIdleCondition.QUIET_PERIOD_MILLIS);
+    server.stop(0);
+  }
+
+  @Test
+  public void test_waitsForOutstandingRequest()
+  {
+    NetworkIdleCondition.inject(driver);
+    ((JavascriptExecutor) driver).executeScript("load();");
+
+    NetworkIdleCondition idle = new NetworkIdleCondition(100);
+    new EventDrivenWait(driver, 10, WaitType.NETWORK_IDLE).until(idle.getPredicate(), idle);
+
+    Assert.assertEquals("loaded", driver.findElement(By.id("result")).getText());
+  }
+
+  @Test
+  public void test_idlePageWaitsForQuietPeriodOnly()
+  {
+    NetworkIdleCondition idle = new NetworkIdleCondition(200);
+    long start = System.currentTimeMillis();
+
+    new EventDrivenWait(driver, 10, WaitType.NETWORK_IDLE).until(idle.getPredicate(), idle);
+
+    long waited = System.currentTimeMillis() - start;
+    Assert.assertTrue("Waited " + waited + "ms", waited >= 200 && waited < 3000);
+  }
+
+  @Test
+  public void test_siteOpenSeesRequestStartedByNavigation()
+  {
+    System.setProperty(NetworkIdleCondition.WAIT_FOR_IDLE, "true");
+    System.setProperty(NetworkIdleCondition.QUIET_PERIOD_MILLIS, "100");
+
+    // the route change starts its request while the navigation loads
+    new TestSite(driver).open(url + "#route");
+
+    Assert.assertEquals("loaded", driver.findElement(By.id("result")).getText());
+    // the tracker saw the request finish, not only the quiet page after it
+    Number active = (Number) ((JavascriptExecutor) driver).executeScript("return window.__seautoNetwork.lastActivity - window.startedAt;");
+    Assert.assertTrue("Last activity " + active + "ms after the request started", active.longValue() >= 600);
+  }
+
+  private static class TestSite
+      extends Site
+  {
+    TestSite(WebDriver webDriver)
+    {
+      super(webDriver);
+    }
+
+    @Override
+    protected By getPrimaryWindowSelector()
+    {
+      return By.id("result");
+    }
+
+    @Override
+    protected String getDefaultUrl()
+    {
+      return null;
+    }
+  }
+
+  private static class Resource
+      implements HttpHandler
+  {
+    private final long delayMillis;
+
+    private final byte[] body;
+
+    Resource(long delayMillis, String body)
+    {
+      this.delayMillis = delayMillis;
+      this.body = body.getBytes();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange)
+        throws IOException
+    {
+      try {
+        Thread.sleep(delayMillis);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      exchange.getResponseHeaders().add("Content-Type", "text/html");
+      exchange.sendResponseHeaders(200, body.length);
+      OutputStream out = exchange.getResponseBody();
+      out.write(body);
+      out.close();
+    }
+  }
+}
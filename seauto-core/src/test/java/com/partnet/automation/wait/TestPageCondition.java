@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.wait;
+
+import static com.partnet.automation.wait.PageCondition.all;
+import static com.partnet.automation.wait.PageCondition.any;
+import static com.partnet.automation.wait.PageCondition.attributeMatches;
+import static com.partnet.automation.wait.PageCondition.count;
+import static com.partnet.automation.wait.PageCondition.countAtLeast;
+import static com.partnet.automation.wait.PageCondition.enabled;
+import static com.partnet.automation.wait.PageCondition.not;
+import static com.partnet.automation.wait.PageCondition.present;
+import static com.partnet.automation.wait.PageCondition.textMatches;
+import static com.partnet.automation.wait.PageCondition.visible;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.pagefactory.ByChained;
+
+import com.partnet.automation.HtmlFixture;
+
+public class TestPageCondition
+{
+
+  private static final String PAGE = "<html><body>"
+      + "<div id=\"spinner\">Loading</div>"
+      + "<table id=\"grid\" style=\"display: none\"><tr class=\"row\"><td>1</td></tr><tr class=\"row\"><td>2</td></tr></table>"
+      + "<button id=\"save\" disabled=\"disabled\" data-state=\"busy\">Save</button>"
+      + "<script>"
+      + "function ready() {"
+      + "  document.getElementById('spinner').style.display = 'none';"
+      + "  document.getElementById('grid').style.display = '';"
+      + "  var save = document.getElementById('save');"
+      + "  save.disabled = false;"
+      + "  save.setAttribute('data-state', 'ready');"
+      + "}"
+      + "</script>"
+      + "</body></html>";
+
+  private static final By SPINNER = By.id("spinner");
+  private static final By GRID = By.id("grid");
+  private static final By SAVE = By.id("save");
+  private static final By ROWS = By.className("row");
+
+  @Rule
+  public final HtmlFixture fixture = new HtmlFixture();
+
+  private WebDriver driver;
+
+  @Before
+  public void openPage()
+      throws IOException
+  {
+    driver = fixture.open(PAGE);
+  }
+
+  @Test
+  public void test_apply()
+  {
+    Assert.assertTrue(all(visible(SPINNER), present(GRID), not(visible(GRID)), count(ROWS, 2)).apply(driver));
+    Assert.assertTrue(any(enabled(SAVE), textMatches(SAVE, "Sa.e")).apply(driver));
+    Assert.assertTrue(attributeMatches(SAVE, "data-state", "busy").apply(driver));
+    Assert.assertFalse(any(countAtLeast(ROWS, 3), visible(By.id("missing")), attributeMatches(SAVE, "title", ".*")).apply(driver));
+  }
+
+  @Test
+  public void test_wait()
+  {
+    PageCondition ready = all(not(visible(SPINNER)), visible(GRID), enabled(SAVE), attributeMatches(SAVE, "data-state", "ready"));
+    Assert.assertFalse(ready.apply(driver));
+
+    ((JavascriptExecutor) driver).executeScript("setTimeout(ready, 300);");
+
+    EventDrivenWait wait = new EventDrivenWait(driver, 5);
+    Assert.assertTrue(wait.until(ready.getPredicate(), ready));
+    Assert.assertEquals("all(not visible By.id: spinner, visible By.id: grid, enabled By.id: save, attribute data-state of By.id: save matching ready)", ready.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_nonStandardLocator()
+  {
+    visible(new ByChained(GRID, ROWS));
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.wait;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestWaitProfiler
+{
+
+  @Test
+  public void test_waitsAggregatedPerTest()
+  {
+    WaitProfiler profiler = new WaitProfiler(true, 10);
+
+    profiler.startTest("test_a");
+    profiler.record("the page to load", WaitType.PAGE_LOAD, 100, 3, WaitProfiler.Outcome.SUCCESS);
+    profiler.record("the page to load", WaitType.PAGE_LOAD, 300, 5, WaitProfiler.Outcome.TIMEOUT);
+    profiler.startTest("test_b");
+    profiler.record("an alert is present", WaitType.ALERT, 20, 1, WaitProfiler.Outcome.SUCCESS);
+    profiler.endTest();
+
+    JSONArray tests = profiler.toJson().getJSONArray("tests");
+    Assert.assertEquals(2, tests.length());
+
+    JSONObject testA = tests.getJSONObject(0);
+    Assert.assertEquals("test_a", testA.getString("test"));
+    Assert.assertEquals(2, testA.getInt("waits"));
+    Assert.assertEquals(400, testA.getLong("totalMillis"));
+
+    JSONObject pageLoad = testA.getJSONArray("conditions").getJSONObject(0);
+    Assert.assertEquals("the page to load", pageLoad.getString("condition"));
+    Assert.assertEquals(300, pageLoad.getLong("maxMillis"));
+    Assert.assertEquals(8, pageLoad.getInt("polls"));
+    Assert.assertEquals(1, pageLoad.getInt("timeouts"));
+  }
+
+  @Test
+  public void test_slowestWaits()
+  {
+    WaitProfiler profiler = new WaitProfiler(true, 2);
+
+    profiler.record("a", WaitType.ELEMENT, 10, 1, WaitProfiler.Outcome.SUCCESS);
+    profiler.record("b", WaitType.ELEMENT, 30, 1, WaitProfiler.Outcome.SUCCESS);
+    profiler.record("c", WaitType.ELEMENT, 20, 1, WaitProfiler.Outcome.SUCCESS);
+
+    List<WaitProfiler.WaitRecord> slowest = profiler.getSlowest();
+    Assert.assertEquals(2, slowest.size());
+    Assert.assertEquals("b", slowest.get(0).getCondition());
+    Assert.assertEquals("c", slowest.get(1).getCondition());
+    Assert.assertEquals("(no test)", slowest.get(0).getTest());
+  }
+
+  @Test
+  public void test_disabledProfilerRecordsNothing()
+  {
+    WaitProfiler profiler = new WaitProfiler(false, 10);
+    profiler.record("a", WaitType.ELEMENT, 10, 1, WaitProfiler.Outcome.SUCCESS);
+
+    Assert.assertEquals(0, profiler.toJson().getJSONArray("tests").length());
+    Assert.assertTrue(profiler.getSlowest().isEmpty());
+  }
+
+  @Test
+  public void test_writeReport()
+      throws IOException
+  {
+    WaitProfiler profiler = new WaitProfiler(true, 10);
+    profiler.record("a", WaitType.AJAX, 10, 2, WaitProfiler.Outcome.ERROR);
+
+    File report = File.createTempFile("seauto-wait-profile", ".json");
+    try {
+      profiler.writeReport(report);
+      JSONObject json = new JSONObject(FileUtils.readFileToString(report, StandardCharsets.UTF_8.name()));
+
+      Assert.assertEquals("ERROR", json.getJSONArray("slowest").getJSONObject(0).getString("outcome"));
+      Assert.assertEquals(1, json.getJSONArray("tests").getJSONObject(0).getJSONArray("conditions").getJSONObject(0).getInt("errors"));
+    }
+    finally {
+      FileUtils.deleteQuietly(report);
+    }
+  }
+}
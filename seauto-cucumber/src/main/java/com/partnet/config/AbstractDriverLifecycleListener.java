@@ -25,7 +25,10 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 import com.partnet.automation.Browser;
+import com.partnet.automation.selenium.DriverPrelauncher;
 import com.partnet.automation.selenium.DriverProvider;
+import com.partnet.automation.selenium.ScreenshotWriter;
+import com.partnet.automation.wait.WaitProfiler;
 
 import cucumber.api.Scenario;
 
@@ -40,6 +43,8 @@ public abstract class AbstractDriverLifecycleListener
 
   private static final Logger LOG = LoggerFactory.getLogger(AbstractDriverLifecycleListener.class);
 
+  private static final String BROWSER_PROPERTY = "test.config.browser";
+
   @Inject
   private DriverProvider driverProvider;
 
@@ -48,7 +53,7 @@ public abstract class AbstractDriverLifecycleListener
    */
   public void beforeFirefox()
   {
-    driverProvider.launch(Browser.FIREFOX);
+    launch(Browser.FIREFOX);
   }
 
   /**
@@ -56,7 +61,7 @@ public abstract class AbstractDriverLifecycleListener
    */
   public void beforeChrome()
   {
-    driverProvider.launch(Browser.CHROME);
+    launch(Browser.CHROME);
   }
 
   /**
@@ -64,7 +69,7 @@ public abstract class AbstractDriverLifecycleListener
    */
   public void beforePhantomJs()
   {
-    driverProvider.launch(Browser.PHANTOMJS);
+    launch(Browser.PHANTOMJS);
   }
 
   /**
@@ -72,26 +77,67 @@ public abstract class AbstractDriverLifecycleListener
    */
   public void beforeHmtlUnit()
   {
-    driverProvider.launch(Browser.HTMLUNIT);
+    launch(Browser.HTMLUNIT);
   }
 
   public void beforeIe()
   {
-    driverProvider.launch(Browser.IE);
+    launch(Browser.IE);
+  }
+
+  /**
+   * Launches the browser for the scenario that is about to run, and
+   * prelaunches the browser of the next scenario in the background when it is
+   * known.
+   * 
+   * @param browser browser to launch
+   * @see #getNextScenarioBrowser(Browser)
+   */
+  private void launch(Browser browser)
+  {
+    driverProvider.launch(browser);
+
+    Browser nextBrowser = getNextScenarioBrowser(browser);
+    if (nextBrowser != null && driverProvider instanceof DriverPrelauncher) {
+      ((DriverPrelauncher) driverProvider).prelaunch(nextBrowser);
+    }
+  }
+
+  /**
+   * Gets the browser the next scenario will launch, so it can be prelaunched
+   * while the current scenario runs. Cucumber does not tell the hooks of the
+   * next scenario ahead of time, and a guess that turns out wrong costs a
+   * browser start that is thrown away, so by default a browser is only
+   * prelaunched when the <code>test.config.browser</code> system property fixes the
+   * browser of every scenario.
+   * <p>
+   * Override when the browser of the next scenario is known some other way,
+   * e.g. when every feature of the run uses the same hook.
+   * 
+   * @param browser browser launched for the current scenario
+   * @return browser of the next scenario, or null if it is not known
+   */
+  protected Browser getNextScenarioBrowser(Browser browser)
+  {
+    return System.getProperty(BROWSER_PROPERTY) == null ? null : browser;
   }
 
   /**
-   * Places the Scenario into the logging {@link MDC}
+   * Places the Scenario into the logging {@link MDC}, and attributes the waits
+   * of the scenario to it in the {@link WaitProfiler}.
    * 
    * @param scenario name of the scenario being run.
    */
   public void setup(Scenario scenario)
   {
     MDC.put("scenario", scenario.getName());
+    WaitProfiler.getInstance().startTest(scenario.getId());
   }
 
   public void after(Scenario scenario)
   {
+    WaitProfiler.getInstance().endTest();
+
     if (driverProvider.get() == null) {
       LOG.warn("Driver for scenario {} {} is not running!", scenario.getId(), scenario.getName());
       return;
@@ -99,7 +145,7 @@ public abstract class AbstractDriverLifecycleListener
 
     if (scenario.isFailed()) {
       StringBuilder sbPath = new StringBuilder();
-      sbPath.append(System.getProperty("user.dir")).append(File.separator).append("target").append(File.separator).append("seauto").append(File.separator).append("screenshots").append(File.separator).append(String.format("%s.png", scenario.getId().replaceAll(";", "__")));
+      sbPath.append(System.getProperty("user.dir")).append(File.separator).append("target").append(File.separator).append("seauto").append(File.separator).append("screenshots").append(File.separator).append(String.format("%s.%s", scenario.getId().replaceAll(";", "__"), ScreenshotWriter.getInstance().getExtension()));
       LOG.debug("Save screenshot to {}", sbPath.toString());
 
       driverProvider.saveScreenshotAs(sbPath.toString());
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.jbehave;
+
+import org.jbehave.core.reporters.NullStoryReporter;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.partnet.automation.Browser;
+import com.partnet.automation.selenium.DriverPrelauncher;
+import com.partnet.automation.selenium.DriverProvider;
+import com.partnet.automation.selenium.DriverRegistry;
+
+/**
+ * StoryReporter that prelaunches the browser for the next scenario while the
+ * current scenario runs. Once the first step of a scenario starts, the
+ * browser launched by the before scenario steps is in use, so the same
+ * browser, as it was resolved by {@link DriverProvider#launch(Browser)}, is
+ * started in the background for the next scenario.
+ * <p>
+ * Only has an effect when the <code>test.config.driver.prelaunch</code> system
+ * property is true and the driver provider is a {@link DriverPrelauncher}.
+ *
+ * @see DriverPrelauncher#prelaunch(Browser)
+ */
+public class DriverPrelaunchStoryReporter
+    extends NullStoryReporter
+{
+
+  private static final Logger LOG = LoggerFactory.getLogger(DriverPrelaunchStoryReporter.class);
+
+  private final DriverProvider driverProvider;
+
+  private final ThreadLocal<Boolean> prelaunchPending = new ThreadLocal<Boolean>();
+
+  /**
+   * @param driverProvider provider the scenarios launch their browsers with
+   */
+  public DriverPrelaunchStoryReporter(DriverProvider driverProvider)
+  {
+    this.driverProvider = driverProvider;
+  }
+
+  @Override
+  public void beforeScenario(String scenarioTitle)
+  {
+    prelaunchPending.set(Boolean.TRUE);
+  }
+
+  @Override
+  public void beforeStep(String step)
+  {
+    if (!Boolean.TRUE.equals(prelaunchPending.get())) {
+      return;
+    }
+    prelaunchPending.remove();
+
+    if (!(driverProvider instanceof DriverPrelauncher)) {
+      return;
+    }
+
+    WebDriver driver = driverProvider.get();
+    if (driver == null) {
+      LOG.debug("No browser was launched for this scenario, nothing to prelaunch");
+      return;
+    }
+
+    Browser browser = DriverRegistry.getInstance().getBrowser(driver);
+    LOG.debug("Prelaunch {} for the next scenario", browser);
+    ((DriverPrelauncher) driverProvider).prelaunch(browser);
+  }
+
+  @Override
+  public void afterScenario()
+  {
+    prelaunchPending.remove();
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.jbehave;
+
+import org.jbehave.core.model.Story;
+import org.jbehave.core.reporters.NullStoryReporter;
+
+import com.partnet.automation.wait.WaitProfiler;
+
+/**
+ * StoryReporter that attributes the waits of a story to the story, and the
+ * waits of its scenarios to the scenarios, in the {@link WaitProfiler}.
+ * <p>
+ * Only has an effect when the <code>test.config.wait.profile</code> system
+ * property is true.
+ */
+public class WaitProfilerStoryReporter
+    extends NullStoryReporter
+{
+
+  private final ThreadLocal<String> storyName = new ThreadLocal<String>();
+
+  @Override
+  public void beforeStory(Story story, boolean givenStory)
+  {
+    // given stories run as part of the scenario that names them
+    if (!givenStory) {
+      storyName.set(story.getName());
+      WaitProfiler.getInstance().startTest(story.getName());
+    }
+  }
+
+  @Override
+  public void beforeScenario(String scenarioTitle)
+  {
+    WaitProfiler.getInstance().startTest(String.format("%s - %s", storyName.get(), scenarioTitle));
+  }
+
+  @Override
+  public void afterScenario()
+  {
+    WaitProfiler.getInstance().startTest(storyName.get());
+  }
+
+  @Override
+  public void afterStory(boolean givenStory)
+  {
+    if (!givenStory) {
+      storyName.remove();
+      WaitProfiler.getInstance().endTest();
+    }
+  }
+
+}
@@ -30,6 +30,8 @@ import org.jbehave.core.reporters.HtmlOutput;
 import org.jbehave.core.reporters.StoryReporter;
 import org.jbehave.core.reporters.StoryReporterBuilder;
 
+import com.partnet.automation.selenium.ScreenshotWriter;
+
 public class WebDriverHtmlOutputWithImg
     extends HtmlOutput
 {
@@ -69,9 +71,11 @@ public class WebDriverHtmlOutputWithImg
   private void changeALine()
   {
     // If the img path changes, be sure to change it in the
-    // StoryLifecycleListener class as well!
+    // StoryLifecycleListener class as well! The extension is the one the
+    // screenshots are written with.
+    String screenshot = "../screenshots/failed-scenario-{3}." + ScreenshotWriter.getInstance().getExtension();
     super.overwritePattern("failed", "<div class=\"step failed\">{0} " + "<span class=\"keyword failed\">({1})</span><br/>" + "<span class=\"message failed\"><pre class=\"falure\">{2}</pre></span><br/>" + "<span class=\"message failed\">Failure UUID: {3}</span><br/>"
-        + "<a color=\"black\" target=\"jb_scn_shot\" href=\"../screenshots/failed-scenario-{3}.png\">" + "<img src=\"../screenshots/failed-scenario-{3}.png\" alt=\"Screenshot of failed step\" width='20%' />" + "</a>" + "</div>");
+        + "<a color=\"black\" target=\"jb_scn_shot\" href=\"" + screenshot + "\">" + "<img src=\"" + screenshot + "\" alt=\"Screenshot of failed step\" width='20%' />" + "</a>" + "</div>");
   }
 
   private static class WebDriverHtmlFormatWithImg
@@ -42,6 +42,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.partnet.automation.RuntimeConfiguration;
+import com.partnet.automation.selenium.DriverProvider;
 
 /**
  * Provides an instance of {@link Configuration}.
@@ -56,6 +57,9 @@ public final class DefaultConfigurationProducer
   @Inject
   private RuntimeConfiguration runConfig;
 
+  @Inject
+  private DriverProvider driverProvider;
+
   @Produces
   @Singleton
   @ConfigurationAlternative
@@ -74,6 +78,6 @@ public final class DefaultConfigurationProducer
 
     .useKeywords(keywords).useStepCollector(new MarkUnmatchedStepsAsPending(keywords)).useStoryParser(new RegexStoryParser(keywords, new ExamplesTableFactory(keywords, new LoadFromClasspath(this.getClass()), converters))).useDefaultStoryReporter(new ConsoleOutput(keywords))
 
-    .useStoryReporterBuilder(new StoryReporterBuilder().withFormats(Format.CONSOLE, Format.TXT, Format.STATS, WebDriverHtmlOutputWithImg.WEB_DRIVER_HTML_WITH_IMG).withFailureTrace(true).withReporters(new LoggingStoryReporter()).withKeywords(keywords)).useParameterConverters(converters);
+    .useStoryReporterBuilder(new StoryReporterBuilder().withFormats(Format.CONSOLE, Format.TXT, Format.STATS, WebDriverHtmlOutputWithImg.WEB_DRIVER_HTML_WITH_IMG).withFailureTrace(true).withReporters(new LoggingStoryReporter(), new WaitProfilerStoryReporter(), new DriverPrelaunchStoryReporter(driverProvider)).withKeywords(keywords)).useParameterConverters(converters);
   }
 }
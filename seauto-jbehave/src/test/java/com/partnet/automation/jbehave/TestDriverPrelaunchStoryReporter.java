@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.partnet.automation.jbehave;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import com.partnet.automation.Browser;
+import com.partnet.automation.selenium.DriverPrelauncher;
+import com.partnet.automation.selenium.DriverProvider;
+
+public class TestDriverPrelaunchStoryReporter
+{
+
+  private final StubProvider provider = new StubProvider();
+
+  private final DriverPrelaunchStoryReporter reporter = new DriverPrelaunchStoryReporter(provider);
+
+  @After
+  public void quitDriver()
+  {
+    provider.end();
+  }
+
+  @Test
+  public void test_launchedBrowserIsPrelaunchedOncePerScenario()
+  {
+    provider.driver = new HtmlUnitDriver();
+
+    reporter.beforeScenario("first");
+    reporter.beforeStep("Given a page");
+    reporter.beforeStep("When it is opened");
+    reporter.afterScenario();
+
+    Assert.assertEquals(1, provider.prelaunched.size());
+    Assert.assertEquals(Browser.HTMLUNIT, provider.prelaunched.get(0));
+  }
+
+  @Test
+  public void test_nothingIsPrelaunchedWithoutDriver()
+  {
+    reporter.beforeScenario("first");
+    reporter.beforeStep("Given a page");
+    reporter.afterScenario();
+
+    Assert.assertTrue(provider.prelaunched.isEmpty());
+  }
+
+  @Test
+  public void test_stepsOutsideScenarioDoNotPrelaunch()
+  {
+    provider.driver = new HtmlUnitDriver();
+
+    reporter.beforeStep("Given a story step");
+
+    Assert.assertTrue(provider.prelaunched.isEmpty());
+  }
+
+  /**
+   * Provider with a fixed driver that records what it is asked to prelaunch.
+   */
+  private static class StubProvider
+      implements DriverProvider, DriverPrelauncher
+  {
+    private WebDriver driver;
+
+    private final List<Browser> prelaunched = new ArrayList<Browser>();
+
+    @Override
+    public void launch()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void launch(Browser browser)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void prelaunch(Browser browser)
+    {
+      prelaunched.add(browser);
+    }
+
+    @Override
+    public WebDriver get()
+    {
+      return driver;
+    }
+
+    @Override
+    public void end()
+    {
+      if (driver != null) {
+        driver.quit();
+        driver = null;
+      }
+    }
+
+    @Override
+    public boolean saveScreenshotAs(String path)
+    {
+      return false;
+    }
+  }
+}
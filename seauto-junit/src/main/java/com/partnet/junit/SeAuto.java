@@ -17,10 +17,15 @@
 package com.partnet.junit;
 
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.partnet.junit.annotations.browser.Android;
 import org.jboss.weld.environment.se.Weld;
 import org.jboss.weld.environment.se.WeldContainer;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.junit.runners.model.FrameworkMethod;
@@ -29,8 +34,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.partnet.automation.Browser;
+import com.partnet.automation.selenium.DriverPrelauncher;
 import com.partnet.automation.selenium.DriverProvider;
+import com.partnet.automation.selenium.ScreenshotWriter;
 import com.partnet.automation.util.PathUtils;
+import com.partnet.automation.wait.WaitProfiler;
 import com.partnet.junit.annotations.browser.Chrome;
 import com.partnet.junit.annotations.browser.Firefox;
 import com.partnet.junit.annotations.browser.HTMLUnit;
@@ -50,6 +58,8 @@ public class SeAuto
 
   private final WeldContainer weld = new Weld().initialize();
 
+  private List<FrameworkMethod> methodsInRunOrder;
+
   public SeAuto(Class<?> klass)
       throws InitializationError
   {
@@ -75,27 +85,32 @@ public class SeAuto
       return;
     }
 
-    // prefer annotations of methods over class, but use class as a fallback.
-    Browser browser = getBrowser(method.getAnnotations());
-
-    if (browser == null) {
-      browser = getBrowser(klass.getAnnotations());
-    }
-
     try {
-      driverProvider.launch(browser);
+      driverProvider.launch(getBrowser(method));
     } catch (Throwable e) {
       //shut down driver if it is running
-      finalizeTest(method, driverProvider);
+      finalizeTest(method, driverProvider, true);
       throw e;
     }
 
+    // warm up the browser of the next test while this one runs
+    FrameworkMethod nextMethod = getNextMethod(method);
+    if (nextMethod != null && driverProvider instanceof DriverPrelauncher) {
+      ((DriverPrelauncher) driverProvider).prelaunch(getBrowser(nextMethod));
+    }
+
+    FailureListener failureListener = new FailureListener(describeChild(method));
+    notifier.addListener(failureListener);
+    WaitProfiler.getInstance().startTest(getTestName(method));
 
     try {
       super.runChild(method, notifier);
     } finally {
+      notifier.removeListener(failureListener);
+      WaitProfiler.getInstance().endTest();
+
       //make sure the browser is killed
-      finalizeTest(method, driverProvider);
+      finalizeTest(method, driverProvider, failureListener.failed);
     }
   }
 
@@ -104,14 +119,17 @@ public class SeAuto
    * Finalizes the test by taking a screenshot, then killing the browser
    * @param method {@link FrameworkMethod} for the running test
    * @param driverProvider Web driver provider
+   * @param failed true if the test failed
    */
-  private void finalizeTest(FrameworkMethod method, DriverProvider driverProvider)
+  private void finalizeTest(FrameworkMethod method, DriverProvider driverProvider, boolean failed)
   {
     if (super.isIgnored(method)) {
       return;
     }
 
-    takeScreenshot(method, driverProvider);
+    if (ScreenshotWriter.isScreenshotWanted(failed)) {
+      takeScreenshot(method, driverProvider);
+    }
     log.debug("Ending browser for test " + getTestName(method));
     driverProvider.end();
   }
@@ -119,7 +137,7 @@ public class SeAuto
   private void takeScreenshot(FrameworkMethod method, DriverProvider driverProvider)
   {
     String screenshotPath = PathUtils.getProjectPath().appendFolders("target", "screenshot")
-        .appendFile(getTestName(method) + ".png").toString();
+        .appendFile(getTestName(method) + "." + ScreenshotWriter.getInstance().getExtension()).toString();
     log.debug("Screenshot saved to: {}", screenshotPath);
     driverProvider.saveScreenshotAs(screenshotPath);
   }
@@ -129,6 +147,66 @@ public class SeAuto
     return klass.getName() + "-" + method.getName();
   }
 
+  /**
+   * Finds the test that will run after the given one.
+   * 
+   * @param method {@link FrameworkMethod} for the running test
+   * @return the next test that is not ignored, or null if this is the last one
+   */
+  private FrameworkMethod getNextMethod(FrameworkMethod method)
+  {
+    List<FrameworkMethod> methods = getMethodsInRunOrder();
+    int index = methods.indexOf(method);
+
+    for (int i = index + 1; index >= 0 && i < methods.size(); i++) {
+      if (!super.isIgnored(methods.get(i))) {
+        return methods.get(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The filtered and sorted children are not exposed by the runner, but the
+   * description is built from them.
+   * 
+   * @return the tests of this class in the order they are run
+   */
+  private List<FrameworkMethod> getMethodsInRunOrder()
+  {
+    if (methodsInRunOrder == null) {
+      List<FrameworkMethod> methods = new ArrayList<>();
+
+      for (Description child : getDescription().getChildren()) {
+        for (FrameworkMethod method : getChildren()) {
+          if (describeChild(method).equals(child)) {
+            methods.add(method);
+            break;
+          }
+        }
+      }
+      methodsInRunOrder = methods;
+    }
+    return methodsInRunOrder;
+  }
+
+  /**
+   * Determines what browser to launch for a test. Annotations of the method are
+   * preferred over the class, the class is used as a fallback.
+   * 
+   * @param method {@link FrameworkMethod} of the test
+   * @return the {@link Browser} enum, or null to use the default browser
+   */
+  private Browser getBrowser(FrameworkMethod method)
+  {
+    Browser browser = getBrowser(method.getAnnotations());
+
+    if (browser == null) {
+      browser = getBrowser(klass.getAnnotations());
+    }
+    return browser;
+  }
+
   /**
    * Helper method to determine what browser to launch given the annotations
    * 
@@ -162,4 +240,29 @@ public class SeAuto
     return null;
   }
 
+  /**
+   * Records whether a test failed, so the screenshot policy can be applied
+   * once the test is done.
+   */
+  private static class FailureListener
+      extends RunListener
+  {
+    private final Description description;
+
+    private volatile boolean failed = false;
+
+    FailureListener(Description description)
+    {
+      this.description = description;
+    }
+
+    @Override
+    public void testFailure(Failure failure)
+    {
+      if (description.equals(failure.getDescription())) {
+        failed = true;
+      }
+    }
+  }
+
 }
@@ -16,6 +16,11 @@
 
 package com.partnet;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 
 import org.json.JSONObject;
@@ -23,6 +28,8 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.support.ui.UnexpectedTagNameException;
 
 import com.partnet.automation.page.PageProvider;
 import com.partnet.junit.SeAuto;
@@ -65,6 +72,16 @@ public class TestHtmlView
     }
   }
 
+  @Test
+  public void test_SetValues()
+  {
+    // the initials are too long for the script, and are typed like setValue
+    // would
+    List<String> actualNames = pageProvider.get(HtmlTestPage.class, true).setNames("Jane", "Doe", "JQD").getNames();
+
+    Assert.assertEquals("Setting many text boxes did not work correctly!", Arrays.asList("Jane", "Doe", "JQ"), actualNames);
+  }
+
   @Test
   public void test_selectByVisibleTextDefaultOption()
   {
@@ -93,6 +110,65 @@ public class TestHtmlView
     Assert.assertEquals("Option was not selected correctly!", expectedOption, actualOption);
   }
 
+  @Test
+  public void test_getAllDropdownVisibleTextEntries()
+  {
+    HtmlTestPage page = pageProvider.get(HtmlTestPage.class, true);
+
+    List<String> expectedOptions = Arrays.asList("Ford", "Volvo", "Chevy", "Saab", "Dodge", "Audi", "Geo", "Mini Cooper S");
+    Assert.assertEquals("Options were not read correctly!", expectedOptions, page.getManufactOptions());
+    Assert.assertEquals("Options do not read like getText!", page.getManufactOptionsOneByOne(), page.getManufactOptions());
+  }
+
+  @Test(expected = UnexpectedTagNameException.class)
+  public void test_getAllDropdownVisibleTextEntriesOfNonSelect()
+  {
+    pageProvider.get(HtmlTestPage.class, true).getInfoBoxOptions();
+  }
+
+  @Test
+  public void test_parseDescriptionList()
+  {
+    HtmlTestPage page = pageProvider.get(HtmlTestPage.class, true);
+
+    Map<String, String> details = page.getDetails();
+    Assert.assertEquals("Ford Focus", details.get("Make"));
+    Assert.assertEquals("2015", details.get("Year"));
+    Assert.assertEquals("", details.get("Color"));
+    Assert.assertEquals("Description list does not read like getText!", page.getDetailsOneByOne(), details);
+  }
+
+  @Test
+  public void test_readTable()
+  {
+    HtmlTestPage page = pageProvider.get(HtmlTestPage.class, true);
+
+    List<Map<String, String>> cars = page.getCars();
+    Assert.assertEquals(2, cars.size());
+    Assert.assertEquals("Focus ST", cars.get(0).get("Model"));
+    Assert.assertEquals("1994", cars.get(1).get("Year"));
+    Assert.assertEquals("Table does not read like getText!", page.getCarsOneByOne(), cars);
+
+    Map<String, String> firstCar = page.getCars("Year", "Make").get(0);
+    Assert.assertEquals(Arrays.asList("Year", "Make"), Arrays.asList(firstCar.keySet().toArray()));
+    Assert.assertEquals(Arrays.asList("2015", "Ford"), Arrays.asList(firstCar.values().toArray()));
+  }
+
+  @Test
+  public void test_waitForCondition()
+  {
+    HtmlTestPage page = pageProvider.get(HtmlTestPage.class, true);
+
+    try {
+      page.waitForShownLater(1);
+      Assert.fail("The element is not shown before the button is clicked");
+    }
+    catch (TimeoutException e) {
+      // expected
+    }
+    Assert.assertTrue("The wait ended before the element was shown!", page.clickShowLaterAndWaitForIt(5));
+  }
+
   @Test
   public void test_ajaxListener()
   {
@@ -137,6 +213,19 @@ public class TestHtmlView
     ensureDriverStillResponding();
     
   }
+
+  // the alerts are queued in the page rather than in a cookie, so HTMLUnit can
+  // run this from a file
+  @Test
+  @HTMLUnit
+  public void test_HeadlessAlerts()
+  {
+    List<String> actualMessages = pageProvider.get(HtmlTestPage.class, true).clickAlertsBtnAndAcceptAlerts();
+
+    Assert.assertEquals(Arrays.asList("First Alert", "Second Alert\nOver Two Lines"), actualMessages);
+
+    ensureDriverStillResponding();
+  }
   
   @Test
   @PhantomJs
@@ -154,6 +243,24 @@ public class TestHtmlView
     pageProvider.get(HtmlTestPage.class, true).clickReloadBtnAndWait();
   }
   
+  @Test
+  @HTMLUnit
+  public void test_switchToNewWindows()
+  {
+    HtmlTestPage page = pageProvider.get(HtmlTestPage.class, true);
+    String opener = page.switchBackToOpenWindow();
+    String first = page.clickOpenWindowBtnAndSwitchToIt();
+    String second = page.clickOpenWindowBtnAndSwitchToIt();
+    String third = page.clickOpenWindowBtnAndSwitchToIt();
+
+    // each switch lands in the window just opened
+    Assert.assertEquals(4, new HashSet<>(Arrays.asList(opener, first, second, third)).size());
+    Assert.assertEquals(third, page.switchBackToOpenWindow());
+
+    page.closeWindowsOpenedBy(opener);
+    ensureDriverStillResponding();
+  }
+
   private void ensureDriverStillResponding()
   {
     String expectedInfoMsg = "Default Text";
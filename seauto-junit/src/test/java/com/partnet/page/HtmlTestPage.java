@@ -17,14 +17,22 @@
 package com.partnet.page;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.json.JSONObject;
+import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.FindBy;
 
 import com.partnet.TestHtmlView;
 import com.partnet.automation.DependencyContainer;
 import com.partnet.automation.page.Page;
+import com.partnet.automation.wait.PageCondition;
 
 /**
  * @author <a href="mailto:bbarker@part.net">bbarker</a>
@@ -39,18 +47,33 @@ public class HtmlTestPage
   @FindBy(id = "testConfirm")
   private WebElement confirmBtn;
 
+  @FindBy(id = "testAlerts")
+  private WebElement alertsBtn;
+
   @FindBy(id = "infoTextBox")
   private WebElement infoTextBox;
 
+  @FindBy(id = "firstName")
+  private WebElement firstNameBox;
+
   @FindBy(id = "manufact")
   private WebElement manufactDropdown;
 
+  @FindBy(id = "cars")
+  private WebElement carsTable;
+
+  @FindBy(id = "showLaterBtn")
+  private WebElement showLaterBtn;
+
   @FindBy(id = "jsonAjaxButton")
   private WebElement jsonAjaxBtn;
   
   @FindBy(id = "reloadPageBtn")
   private WebElement reloadPageBtn;
 
+  @FindBy(id = "openWindowBtn")
+  private WebElement openWindowBtn;
+
   public HtmlTestPage(DependencyContainer depContainer)
   {
     super(depContainer);
@@ -66,6 +89,11 @@ public class HtmlTestPage
     return super.clickAndAcceptAlert(confirmBtn);
   }
 
+  public List<String> clickAlertsBtnAndAcceptAlerts()
+  {
+    return super.clickAndAcceptAlerts(alertsBtn);
+  }
+
   @Override
   public void verify()
       throws IllegalStateException
@@ -95,6 +123,18 @@ public class HtmlTestPage
     return infoTextBox.getAttribute("value");
   }
 
+  public HtmlTestPage setNames(String firstName, String lastName, String initials)
+  {
+    setValues(Arrays.asList(firstNameBox, By.id("lastName"), By.id("initials")), Arrays.asList(firstName, lastName, initials));
+    return this;
+  }
+
+  public List<String> getNames()
+  {
+    return Arrays.asList(firstNameBox.getAttribute("value"), webDriver.findElement(By.id("lastName")).getAttribute("value"),
+        webDriver.findElement(By.id("initials")).getAttribute("value"));
+  }
+
   public HtmlTestPage selectManufactOptionByVisibleText(String visibleText)
   {
     selectByVisibleText(manufactDropdown, visibleText);
@@ -112,6 +152,83 @@ public class HtmlTestPage
     return getSelectedVisibleText(manufactDropdown);
   }
 
+  public List<String> getManufactOptions()
+  {
+    return getAllDropdownVisibleTextEntries(manufactDropdown);
+  }
+
+  public List<String> getInfoBoxOptions()
+  {
+    return getAllDropdownVisibleTextEntries(infoTextBox);
+  }
+
+  public Map<String, String> getDetails()
+  {
+    return parseDescriptionList(webDriver.findElements(By.xpath("//dl[@id='details']/*")));
+  }
+
+  public List<Map<String, String>> getCars(String... columns)
+  {
+    return readTable(carsTable, columns);
+  }
+
+  public boolean clickShowLaterAndWaitForIt(int maxWaitInSeconds)
+  {
+    showLaterBtn.click();
+    waitForCondition(PageCondition.visible(By.id("shownLater")), maxWaitInSeconds);
+    return webDriver.findElement(By.id("shownLater")).isDisplayed();
+  }
+
+  public void waitForShownLater(int maxWaitInSeconds)
+  {
+    waitForCondition(PageCondition.visible(By.id("shownLater")), maxWaitInSeconds);
+  }
+
+  // what the helpers read, one element at a time the way they used to
+
+  public List<String> getManufactOptionsOneByOne()
+  {
+    List<String> options = new ArrayList<>();
+    for (WebElement option : manufactDropdown.findElements(By.tagName("option"))) {
+      options.add(option.getText());
+    }
+    return options;
+  }
+
+  public Map<String, String> getDetailsOneByOne()
+  {
+    Map<String, String> details = new HashMap<>();
+    String term = null;
+    for (WebElement elt : webDriver.findElements(By.xpath("//dl[@id='details']/*"))) {
+      if (elt.getTagName().equals("dt")) {
+        term = elt.getText().trim();
+      }
+      else {
+        details.put(term, elt.getText().trim());
+      }
+    }
+    return details;
+  }
+
+  public List<Map<String, String>> getCarsOneByOne()
+  {
+    List<String> headers = new ArrayList<>();
+    for (WebElement header : carsTable.findElements(By.xpath("thead/tr/th"))) {
+      headers.add(header.getText());
+    }
+
+    List<Map<String, String>> cars = new ArrayList<>();
+    for (WebElement row : carsTable.findElements(By.xpath("tbody/tr"))) {
+      List<WebElement> cells = row.findElements(By.tagName("td"));
+      Map<String, String> car = new LinkedHashMap<>();
+      for (int i = 0; i < headers.size(); i++) {
+        car.put(headers.get(i), cells.get(i).getText());
+      }
+      cars.add(car);
+    }
+    return cars;
+  }
+
   public JSONObject clickAndWaitForAjaxResponse()
   {
     super.injectAjaxListener();
@@ -122,4 +239,27 @@ public class HtmlTestPage
   public void clickReloadBtnAndWait() {
     super.clickAndWait(reloadPageBtn);
   }
+
+  public String clickOpenWindowBtnAndSwitchToIt()
+  {
+    openWindowBtn.click();
+    super.switchToNewWindow(By.id("openWindowBtn"), "Test Basic HTML features");
+    return webDriver.getWindowHandle();
+  }
+
+  public String switchBackToOpenWindow()
+  {
+    super.switchToOpenWindow(By.id("openWindowBtn"), "Test Basic HTML features");
+    return webDriver.getWindowHandle();
+  }
+
+  public void closeWindowsOpenedBy(String opener)
+  {
+    for (String handle : webDriver.getWindowHandles()) {
+      if (!handle.equals(opener)) {
+        webDriver.switchTo().window(handle).close();
+      }
+    }
+    webDriver.switchTo().window(opener);
+  }
 }
@@ -0,0 +1,517 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.partnet.automation.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import org.openqa.selenium.support.CacheLookup;
+import org.openqa.selenium.support.FindAll;
+import org.openqa.selenium.support.FindBy;
+import org.openqa.selenium.support.FindBys;
+import org.openqa.selenium.support.How;
+
+/**
+ * Generates an <code>ElementBinder</code> for every concrete <code>Page</code>,
+ * <code>Panel</code> and <code>Site</code> subclass being compiled. The binder calls
+ * the public single argument constructors with <code>new</code>, and sets the
+ * element fields, inherited ones included, to locating elements whose locators
+ * were built from the {@link FindBy}, {@link FindBys} and {@link FindAll}
+ * annotations at compile time. Only fields that are neither private nor final,
+ * and are public or declared in the package of the class, are assigned
+ * directly; the others, private fields included, are still written by
+ * reflection, through a field resolved once per class.
+ * <p>
+ * The binder is named <code>&lt;binary class name&gt;_ElementBinder</code> and
+ * found by <code>PageBinding</code> at runtime. Classes a binder cannot be
+ * generated for, such as generic or private classes, are bound by reflection
+ * as before; a note says why.
+ * <p>
+ * Binders are generated when this module is on the compile classpath of the
+ * page objects, e.g. as a <code>provided</code> dependency.
+ * <p>
+ * Invalid locator annotations are reported as compile errors rather than when
+ * the page is first created.
+ */
+@SupportedAnnotationTypes("*")
+public class ElementBinderProcessor
+    extends AbstractProcessor
+{
+
+  static final String BINDER_SUFFIX = "_ElementBinder";
+
+  private static final String[] PAGE_OBJECT_CLASSES = {
+      "com.partnet.automation.page.Page",
+      "com.partnet.automation.page.panel.Panel",
+      "com.partnet.automation.page.Site" };
+
+  private static final String WEB_ELEMENT = "org.openqa.selenium.WebElement";
+
+  private static final String BY = "org.openqa.selenium.By";
+
+  private Elements elements;
+
+  private Types types;
+
+  private final List<TypeMirror> pageObjectTypes = new ArrayList<>();
+
+  private TypeMirror webElementType;
+
+  private TypeMirror listType;
+
+  // binders generated by earlier rounds
+  private final Set<String> generated = new HashSet<>();
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv)
+  {
+    super.init(processingEnv);
+    this.elements = processingEnv.getElementUtils();
+    this.types = processingEnv.getTypeUtils();
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion()
+  {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+  {
+    if (!resolveTypes()) {
+      // seauto-core is not on the classpath
+      return false;
+    }
+
+    for (Element root : roundEnv.getRootElements()) {
+      visit(root);
+    }
+
+    // other processors may want the annotations too
+    return false;
+  }
+
+  private boolean resolveTypes()
+  {
+    if (webElementType != null) {
+      return true;
+    }
+
+    TypeElement webElement = elements.getTypeElement(WEB_ELEMENT);
+    if (webElement == null) {
+      return false;
+    }
+
+    for (String name : PAGE_OBJECT_CLASSES) {
+      TypeElement type = elements.getTypeElement(name);
+      if (type != null) {
+        pageObjectTypes.add(types.erasure(type.asType()));
+      }
+    }
+    if (pageObjectTypes.isEmpty()) {
+      return false;
+    }
+
+    webElementType = webElement.asType();
+    listType = types.erasure(elements.getTypeElement(List.class.getName()).asType());
+    return true;
+  }
+
+  private void visit(Element element)
+  {
+    if (!element.getKind().isClass() && !element.getKind().isInterface()) {
+      return;
+    }
+
+    TypeElement type = (TypeElement) element;
+    if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT) && isPageObject(type)) {
+      generate(type);
+    }
+
+    for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+      visit(nested);
+    }
+  }
+
+  private boolean isPageObject(TypeElement type)
+  {
+    TypeMirror erasure = types.erasure(type.asType());
+    for (TypeMirror pageObjectType : pageObjectTypes) {
+      if (types.isSubtype(erasure, pageObjectType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void generate(TypeElement type)
+  {
+    String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+    String binaryName = elements.getBinaryName(type).toString();
+    String binderName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + BINDER_SUFFIX;
+
+    if (!generated.add(binaryName)) {
+      return;
+    }
+    if (!type.getTypeParameters().isEmpty()) {
+      note(type, "is generic");
+      return;
+    }
+    if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+      note(type, "is an inner class");
+      return;
+    }
+    if (!isAccessible(type, packageName)) {
+      note(type, "is not visible to its binder");
+      return;
+    }
+
+    // every field is checked, so all invalid annotations are reported at once
+    List<BoundField> fields = new ArrayList<>();
+    boolean valid = true;
+    for (TypeElement c = type; c != null; c = superclassOf(c)) {
+      for (VariableElement field : ElementFilter.fieldsIn(c.getEnclosedElements())) {
+        BoundField bound = bind(type, c, field, packageName);
+        if (bound == BoundField.INVALID) {
+          valid = false;
+        }
+        else if (bound != null) {
+          fields.add(bound);
+        }
+      }
+    }
+    if (!valid) {
+      return;
+    }
+
+    StringBuilder source = new StringBuilder();
+    String typeName = type.getQualifiedName().toString();
+    source.append("// Generated by ").append(getClass().getName()).append(", do not edit\n");
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n");
+    }
+    source.append("\n");
+    source.append("public final class ").append(binderName).append("\n");
+    source.append("    extends com.partnet.automation.page.ElementBinder<").append(typeName).append(">\n");
+    source.append("{\n\n");
+
+    for (int i = 0; i < fields.size(); i++) {
+      BoundField field = fields.get(i);
+      source.append("  private static final ").append(BY).append(" BY_").append(i).append(" = ").append(field.by).append(";\n");
+      if (!field.direct) {
+        source.append("  private static final java.lang.reflect.Field FIELD_").append(i).append(" = field(")
+            .append(field.declaringType).append(".class, ").append(elements.getConstantExpression(field.name)).append(");\n");
+      }
+    }
+
+    source.append("\n  @Override\n");
+    source.append("  public ").append(typeName).append(" newInstance(java.lang.Class<?> parameterType, java.lang.Object argument)\n");
+    source.append("      throws java.lang.Exception\n");
+    source.append("  {\n");
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      if (constructor.getModifiers().contains(Modifier.PUBLIC) && constructor.getParameters().size() == 1) {
+        TypeMirror parameterType = types.erasure(constructor.getParameters().get(0).asType());
+        if (parameterType.getKind() == TypeKind.DECLARED || parameterType.getKind() == TypeKind.ARRAY) {
+          source.append("    if (parameterType == ").append(parameterType).append(".class) {\n");
+          source.append("      return new ").append(typeName).append("((").append(parameterType).append(") argument);\n");
+          source.append("    }\n");
+        }
+      }
+    }
+    source.append("    throw new java.lang.NoSuchMethodException(").append(typeName).append(".class.getName() + \".<init>(\" + parameterType.getName() + \")\");\n");
+    source.append("  }\n");
+
+    source.append("\n  @Override\n");
+    source.append("  public void initElements(org.openqa.selenium.SearchContext searchContext, ").append(typeName).append(" target)\n");
+    source.append("  {\n");
+    for (int i = 0; i < fields.size(); i++) {
+      BoundField field = fields.get(i);
+      String value = "new com.partnet.automation.page." + (field.list ? "LocatingElementList" : "LocatingElement") + "(searchContext, BY_" + i + ", " + field.cacheLookup + ")";
+      if (!field.direct) {
+        source.append("    set(FIELD_").append(i).append(", target, ").append(value).append(");\n");
+      }
+      else if (field.declaringType.equals(typeName)) {
+        source.append("    target.").append(field.name).append(" = ").append(value).append(";\n");
+      }
+      else {
+        source.append("    ((").append(field.declaringType).append(") target).").append(field.name).append(" = ").append(value).append(";\n");
+      }
+    }
+    source.append("  }\n");
+    source.append("}\n");
+
+    String qualifiedBinderName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+    try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedBinderName, type).openWriter()) {
+      writer.write(source.toString());
+    }
+    catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + qualifiedBinderName + ": " + e, type);
+    }
+  }
+
+  /**
+   * @return the field to set, null if it is not an element field, or
+   *         {@link BoundField#INVALID} if no binder can be generated for the
+   *         class
+   */
+  private BoundField bind(TypeElement type, TypeElement declaringType, VariableElement field, String packageName)
+  {
+    TypeMirror fieldType = types.erasure(field.asType());
+    boolean element = types.isAssignable(fieldType, webElementType);
+    boolean list = !element && isElementList(field);
+    if (!element && !list) {
+      return null;
+    }
+
+    if (!types.isSameType(fieldType, element ? webElementType : listType)) {
+      // can not hold a locating element, PageFactory fails on it too
+      note(type, "has the field " + declaringType.getSimpleName() + "." + field.getSimpleName() + " of type " + field.asType());
+      return BoundField.INVALID;
+    }
+    if (!isAccessible(declaringType, packageName)) {
+      note(type, "extends " + declaringType.getQualifiedName() + ", which is not visible to its binder");
+      return BoundField.INVALID;
+    }
+
+    String by = buildBy(field);
+    if (by == null) {
+      return BoundField.INVALID;
+    }
+
+    Set<Modifier> modifiers = field.getModifiers();
+    boolean direct = !modifiers.contains(Modifier.PRIVATE) && !modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.FINAL)
+        && (modifiers.contains(Modifier.PUBLIC) || packageName.equals(elements.getPackageOf(declaringType).getQualifiedName().toString()));
+
+    return new BoundField(declaringType.getQualifiedName().toString(), field.getSimpleName().toString(), list, by,
+        field.getAnnotation(CacheLookup.class) != null, direct);
+  }
+
+  private boolean isElementList(VariableElement field)
+  {
+    if (!types.isAssignable(types.erasure(field.asType()), listType) || field.asType().getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+
+    List<? extends TypeMirror> arguments = ((DeclaredType) field.asType()).getTypeArguments();
+    return arguments.size() == 1 && types.isSameType(arguments.get(0), webElementType)
+        && (field.getAnnotation(FindBy.class) != null || field.getAnnotation(FindBys.class) != null || field.getAnnotation(FindAll.class) != null);
+  }
+
+  /**
+   * @return Java expression creating the locator of the field, the same one
+   *         <code>Annotations.buildBy()</code> creates, or null if the
+   *         annotations are invalid
+   */
+  private String buildBy(VariableElement field)
+  {
+    FindBy findBy = field.getAnnotation(FindBy.class);
+    FindBys findBys = field.getAnnotation(FindBys.class);
+    FindAll findAll = field.getAnnotation(FindAll.class);
+
+    int count = (findBy == null ? 0 : 1) + (findBys == null ? 0 : 1) + (findAll == null ? 0 : 1);
+    if (count > 1) {
+      error(field, "Only one of @FindBy, @FindBys and @FindAll may be used");
+      return null;
+    }
+
+    if (findBys != null) {
+      return buildBys("org.openqa.selenium.support.pagefactory.ByChained", findBys.value(), field);
+    }
+    if (findAll != null) {
+      return buildBys("org.openqa.selenium.support.pagefactory.ByAll", findAll.value(), field);
+    }
+    if (findBy != null) {
+      return buildBy(findBy, field);
+    }
+    return "new org.openqa.selenium.support.ByIdOrName(" + elements.getConstantExpression(field.getSimpleName().toString()) + ")";
+  }
+
+  private String buildBys(String byClass, FindBy[] findBys, VariableElement field)
+  {
+    StringBuilder by = new StringBuilder("new ").append(byClass).append("(");
+    for (int i = 0; i < findBys.length; i++) {
+      String single = buildBy(findBys[i], field);
+      if (single == null) {
+        return null;
+      }
+      by.append(i == 0 ? "" : ", ").append(single);
+    }
+    return by.append(")").toString();
+  }
+
+  private String buildBy(FindBy findBy, VariableElement field)
+  {
+    List<String> strategies = new ArrayList<>();
+    addStrategy(strategies, How.CLASS_NAME, findBy.className());
+    addStrategy(strategies, How.CSS, findBy.css());
+    addStrategy(strategies, How.ID, findBy.id());
+    addStrategy(strategies, How.LINK_TEXT, findBy.linkText());
+    addStrategy(strategies, How.NAME, findBy.name());
+    addStrategy(strategies, How.PARTIAL_LINK_TEXT, findBy.partialLinkText());
+    addStrategy(strategies, How.TAG_NAME, findBy.tagName());
+    addStrategy(strategies, How.XPATH, findBy.xpath());
+    if (findBy.how() != How.UNSET) {
+      if (findBy.using().isEmpty()) {
+        error(field, "If you set the 'how' property, you must also set 'using'");
+        return null;
+      }
+      addStrategy(strategies, findBy.how(), findBy.using());
+    }
+
+    if (strategies.size() != 1) {
+      error(field, strategies.isEmpty() ? "Cannot determine how to locate element" : "You must specify at most one location strategy");
+      return null;
+    }
+    return strategies.get(0);
+  }
+
+  private void addStrategy(List<String> strategies, How how, String using)
+  {
+    if (using.isEmpty()) {
+      return;
+    }
+
+    String value = elements.getConstantExpression(using);
+    switch (how) {
+      case CLASS_NAME:
+        strategies.add(BY + ".className(" + value + ")");
+        break;
+      case CSS:
+        strategies.add(BY + ".cssSelector(" + value + ")");
+        break;
+      case ID:
+        strategies.add(BY + ".id(" + value + ")");
+        break;
+      case ID_OR_NAME:
+        strategies.add("new org.openqa.selenium.support.ByIdOrName(" + value + ")");
+        break;
+      case LINK_TEXT:
+        strategies.add(BY + ".linkText(" + value + ")");
+        break;
+      case NAME:
+        strategies.add(BY + ".name(" + value + ")");
+        break;
+      case PARTIAL_LINK_TEXT:
+        strategies.add(BY + ".partialLinkText(" + value + ")");
+        break;
+      case TAG_NAME:
+        strategies.add(BY + ".tagName(" + value + ")");
+        break;
+      case XPATH:
+        strategies.add(BY + ".xpath(" + value + ")");
+        break;
+      default:
+        break;
+    }
+  }
+
+  private TypeElement superclassOf(TypeElement type)
+  {
+    TypeMirror superclass = type.getSuperclass();
+    if (superclass.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+
+    TypeElement element = (TypeElement) types.asElement(superclass);
+    return element.getQualifiedName().contentEquals(Object.class.getName()) ? null : element;
+  }
+
+  /**
+   * @return true if code in the package can refer to the type
+   */
+  private boolean isAccessible(TypeElement type, String packageName)
+  {
+    boolean samePackage = packageName.equals(elements.getPackageOf(type).getQualifiedName().toString());
+    for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+      Set<Modifier> modifiers = e.getModifiers();
+      if (modifiers.contains(Modifier.PRIVATE) || (!samePackage && !modifiers.contains(Modifier.PUBLIC))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void note(TypeElement type, String reason)
+  {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+        "No element binder generated for " + type.getQualifiedName() + ", it " + reason + "; it is bound by reflection", type);
+  }
+
+  private void error(VariableElement field, String message)
+  {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, field);
+  }
+
+  /**
+   * An element field set by a generated binder.
+   */
+  private static final class BoundField
+  {
+
+    // the class has a field no binder can be generated for
+    static final BoundField INVALID = new BoundField(null, null, false, null, false, false);
+
+    private final String declaringType;
+
+    private final String name;
+
+    private final boolean list;
+
+    private final String by;
+
+    private final boolean cacheLookup;
+
+    // false if the field is written through a java.lang.reflect.Field
+    private final boolean direct;
+
+    private BoundField(String declaringType, String name, boolean list, String by, boolean cacheLookup, boolean direct)
+    {
+      this.declaringType = declaringType;
+      this.name = name;
+      this.list = list;
+      this.by = by;
+      this.cacheLookup = cacheLookup;
+      this.direct = direct;
+    }
+  }
+}
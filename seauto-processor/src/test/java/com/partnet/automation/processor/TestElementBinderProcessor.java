@@ -0,0 +1,234 @@
+/*
+ * Copyright 2015 Partnet, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.partnet.automation.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+
+import com.partnet.automation.page.LocatingElement;
+import com.partnet.automation.page.PageBinding;
+
+public class TestElementBinderProcessor
+{
+
+  private static final String BASE_PANEL = "package sample;"
+      + "import org.openqa.selenium.*;"
+      + "import org.openqa.selenium.support.*;"
+      + "public abstract class BasePanel extends com.partnet.automation.page.panel.Panel {"
+      + "  @FindBy(id = \"title\") private WebElement title;"
+      + "  public BasePanel(WebDriver webDriver) { super(webDriver); }"
+      + "  public String getTitle() { return title.getText(); }"
+      + "}";
+
+  private static final String ITEMS_PANEL = "package sample;"
+      + "import java.util.List;"
+      + "import org.openqa.selenium.*;"
+      + "import org.openqa.selenium.support.*;"
+      + "public class ItemsPanel extends BasePanel {"
+      + "  WebElement search;"
+      + "  @FindBy(how = How.CSS, using = \"ul \\\"li\\\"\") @CacheLookup public WebElement quoted;"
+      + "  @FindBys({ @FindBy(tagName = \"ul\"), @FindBy(className = \"item\") }) List<WebElement> items;"
+      + "  @FindAll({ @FindBy(id = \"title\"), @FindBy(name = \"search\") }) private List<WebElement> titleAndSearch;"
+      + "  List<WebElement> unannotated;"
+      + "  public ItemsPanel(WebDriver webDriver) { super(webDriver); }"
+      + "  public int getTitleAndSearchCount() { return titleAndSearch.size(); }"
+      + "  public static class Nested extends ItemsPanel {"
+      + "    public Nested(WebDriver webDriver) { super(webDriver); }"
+      + "  }"
+      + "}";
+
+  private File dir;
+
+  private WebDriver driver;
+
+  @Before
+  public void createDir()
+      throws IOException
+  {
+    dir = File.createTempFile("seauto-processor", "");
+    FileUtils.deleteQuietly(dir);
+    dir.mkdirs();
+  }
+
+  @After
+  public void deleteDir()
+  {
+    if (driver != null) {
+      driver.quit();
+    }
+    FileUtils.deleteQuietly(dir);
+  }
+
+  @Test
+  public void test_generatedBinders()
+      throws Exception
+  {
+    DiagnosticCollector<JavaFileObject> diagnostics = compile(BASE_PANEL, ITEMS_PANEL);
+    Assert.assertTrue(diagnostics.getDiagnostics().toString(), errors(diagnostics).isEmpty());
+
+    Assert.assertTrue(new File(dir, "sample/ItemsPanel_ElementBinder.java").isFile());
+    Assert.assertTrue(new File(dir, "sample/ItemsPanel$Nested_ElementBinder.java").isFile());
+    Assert.assertFalse("abstract classes are never created", new File(dir, "sample/BasePanel_ElementBinder.java").exists());
+
+    File page = new File(dir, "page.html");
+    FileUtils.writeStringToFile(page, "<html><body><h1 id=\"title\">Title</h1><input name=\"search\" value=\"term\"/>"
+        + "<ul><li class=\"item\">one</li><li class=\"item\">two</li></ul><li class=\"item\">three</li></body></html>");
+    driver = new HtmlUnitDriver(true);
+    driver.get(page.toURI().toString());
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader())) {
+      for (String name : Arrays.asList("sample.ItemsPanel", "sample.ItemsPanel$Nested")) {
+        Class<?> panelClass = loader.loadClass(name);
+        PageBinding binding = PageBinding.of(panelClass);
+        Assert.assertTrue(binding.isGenerated());
+
+        Object panel = binding.newInstance(WebDriver.class, driver);
+        Assert.assertSame(panelClass, panel.getClass());
+        binding.initElements(driver, panel);
+
+        Assert.assertEquals("Title", panelClass.getMethod("getTitle").invoke(panel));
+        Assert.assertEquals(2, panelClass.getMethod("getTitleAndSearchCount").invoke(panel));
+        Assert.assertEquals("term", ((LocatingElement) field(panelClass, "search").get(panel)).getAttribute("value"));
+        Assert.assertEquals(2, ((List<?>) field(panelClass, "items").get(panel)).size());
+        Assert.assertNull(field(panelClass, "unannotated").get(panel));
+        Assert.assertEquals("Element located By.cssSelector: ul \"li\"", field(panelClass, "quoted").get(panel).toString());
+      }
+    }
+  }
+
+  @Test
+  public void test_missingConstructor()
+      throws Exception
+  {
+    Assert.assertTrue(errors(compile(BASE_PANEL, ITEMS_PANEL)).isEmpty());
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader())) {
+      PageBinding.of(loader.loadClass("sample.ItemsPanel")).newInstance(String.class, "driver");
+      Assert.fail("ItemsPanel has no String constructor");
+    }
+    catch (NoSuchMethodException e) {
+      Assert.assertEquals("sample.ItemsPanel.<init>(java.lang.String)", e.getMessage());
+    }
+  }
+
+  @Test
+  public void test_invalidAnnotations()
+      throws IOException
+  {
+    List<String> errors = errors(compile("package sample;"
+        + "import org.openqa.selenium.*;"
+        + "import org.openqa.selenium.support.*;"
+        + "public class InvalidPanel extends com.partnet.automation.page.panel.Panel {"
+        + "  @FindBy(id = \"a\", name = \"b\") WebElement twoStrategies;"
+        + "  @FindBy(how = How.ID) WebElement noUsing;"
+        + "  @FindBy(id = \"a\") @FindBys({}) WebElement twoAnnotations;"
+        + "  public InvalidPanel(WebDriver webDriver) { super(webDriver); }"
+        + "}"));
+
+    Assert.assertEquals(Arrays.asList("You must specify at most one location strategy",
+        "If you set the 'how' property, you must also set 'using'",
+        "Only one of @FindBy, @FindBys and @FindAll may be used"), errors);
+  }
+
+  @Test
+  public void test_notGenerated()
+      throws IOException
+  {
+    DiagnosticCollector<JavaFileObject> diagnostics = compile("package sample;"
+        + "import org.openqa.selenium.*;"
+        + "public class GenericPanel<T> extends com.partnet.automation.page.panel.Panel {"
+        + "  WebElement title;"
+        + "  public GenericPanel(WebDriver webDriver) { super(webDriver); }"
+        + "}");
+
+    Assert.assertTrue(errors(diagnostics).isEmpty());
+    Assert.assertFalse(new File(dir, "sample/GenericPanel_ElementBinder.java").exists());
+    Assert.assertTrue(diagnostics.getDiagnostics().toString().contains("No element binder generated for sample.GenericPanel, it is generic"));
+  }
+
+  private DiagnosticCollector<JavaFileObject> compile(String... sources)
+      throws IOException
+  {
+    List<File> files = new ArrayList<>();
+    for (String source : sources) {
+      String name = source.replaceFirst("(?s).*? class (\\w+).*", "$1");
+      File file = new File(dir, "sample/" + name + ".java");
+      FileUtils.writeStringToFile(file, source);
+      files.add(file);
+    }
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ENGLISH, null)) {
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+          Arrays.asList("-d", dir.getPath(), "-s", dir.getPath(), "-classpath", System.getProperty("java.class.path")), null,
+          fileManager.getJavaFileObjectsFromFiles(files));
+      task.setProcessors(Arrays.asList(new ElementBinderProcessor()));
+      task.call();
+    }
+    return diagnostics;
+  }
+
+  private static List<String> errors(DiagnosticCollector<JavaFileObject> diagnostics)
+  {
+    List<String> errors = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors.add(diagnostic.getMessage(Locale.ENGLISH));
+      }
+    }
+    return errors;
+  }
+
+  private static java.lang.reflect.Field field(Class<?> type, String name)
+      throws NoSuchFieldException
+  {
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      try {
+        java.lang.reflect.Field field = c.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+      }
+      catch (NoSuchFieldException e) {
+        // declared by a superclass
+      }
+    }
+    throw new NoSuchFieldException(name);
+  }
+}